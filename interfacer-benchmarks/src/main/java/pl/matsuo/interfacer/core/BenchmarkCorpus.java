@@ -0,0 +1,237 @@
+package pl.matsuo.interfacer.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Comparator.reverseOrder;
+import static pl.matsuo.core.util.collection.CollectionUtil.map;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+
+/**
+ * Deterministic synthetic sources used by benchmarks, shaped like generated records and interfaces
+ * written for them. The same settings and <code>seed</code> always give the same files.
+ *
+ * <ul>
+ *   <li><code>interfaces</code> interfaces, each with getter and setter of single property; every
+ *       <code>genericEvery</code>-th one is generic like <code>GenericInterface</code>, with
+ *       additional list property of its type variable
+ *   <li><code>classes</code> classes with properties of about <code>matchDensity</code> of
+ *       interfaces, so each of them matches these interfaces, and <code>extraProperties</code>
+ *       properties not matching any interface
+ *   <li><code>chains</code> chains of <code>chainLength</code> classes, where class at level <code>
+ *       d</code> returns class at level <code>d - 1</code> and matches interface <code>
+ *       Link{d}</code> only after that class got <code>Link{d - 1}</code>, like <code>
+ *       SampleInterface2</code> in {@link InterfacesAdder} documentation. Every level needs its own
+ *       pass.
+ * </ul>
+ */
+@RequiredArgsConstructor
+@Getter
+@Setter
+public class BenchmarkCorpus {
+
+  public static final String INTERFACE_PACKAGE = "bench.ifc";
+  public static final String CLASS_PACKAGE = "bench.model";
+
+  static final List<String> PROPERTY_TYPES = asList("String", "Integer", "Long", "Double");
+
+  final int classes;
+  final int interfaces;
+  double matchDensity = 0.02;
+  int genericEvery;
+  int extraProperties = 2;
+  int chains;
+  int chainLength;
+  long seed = 1;
+
+  /** Write interface sources into <code>directory</code>. */
+  public void writeInterfaces(Path directory) throws IOException {
+    for (int i = 0; i < interfaces; i++) {
+      String name = "HasField" + i;
+      if (isGeneric(i)) {
+        write(
+            directory,
+            INTERFACE_PACKAGE,
+            name,
+            "public interface "
+                + name
+                + "<T> {\n\n  T getField"
+                + i
+                + "();\n\n  void setField"
+                + i
+                + "(T value);\n\n  java.util.List<T> getField"
+                + i
+                + "List();\n}\n");
+      } else {
+        write(
+            directory,
+            INTERFACE_PACKAGE,
+            name,
+            "public interface "
+                + name
+                + " {\n\n  String getField"
+                + i
+                + "();\n\n  void setField"
+                + i
+                + "(String value);\n}\n");
+      }
+    }
+
+    for (int level = 0; level < (chains > 0 ? chainLength : 0); level++) {
+      String type = level == 0 ? "String" : "Link" + (level - 1);
+      write(
+          directory,
+          INTERFACE_PACKAGE,
+          "Link" + level,
+          "public interface Link" + level + " {\n\n  " + type + " getLink" + level + "();\n}\n");
+    }
+  }
+
+  /** Write class sources into <code>directory</code>. */
+  public void writeClasses(Path directory) throws IOException {
+    Random random = new Random(seed);
+    for (int i = 0; i < classes; i++) {
+      StringBuilder body = new StringBuilder();
+      for (Integer field : fields(random)) {
+        if (isGeneric(field)) {
+          String type = PROPERTY_TYPES.get(random.nextInt(PROPERTY_TYPES.size()));
+          property(body, type, "Field" + field);
+          property(body, "java.util.List<" + type + ">", "Field" + field + "List");
+        } else {
+          property(body, "String", "Field" + field);
+        }
+      }
+      for (int extra = 0; extra < extraProperties; extra++) {
+        property(body, "Integer", "Extra" + extra);
+      }
+      write(
+          directory,
+          CLASS_PACKAGE,
+          "Record" + i,
+          "public class Record" + i + " {\n" + body + "}\n");
+    }
+
+    for (int chain = 0; chain < chains; chain++) {
+      for (int level = 0; level < chainLength; level++) {
+        StringBuilder body = new StringBuilder();
+        property(body, level == 0 ? "String" : chainClassName(chain, level - 1), "Link" + level);
+        write(
+            directory,
+            CLASS_PACKAGE,
+            chainClassName(chain, level),
+            "public class " + chainClassName(chain, level) + " {\n" + body + "}\n");
+      }
+    }
+  }
+
+  /** Number of passes needed to add all interfaces to the corpus. */
+  public int expectedPasses() {
+    return Math.max(chains > 0 ? chainLength : 0, classes > 0 ? 1 : 0);
+  }
+
+  /**
+   * Name of class at <code>level</code> of <code>chain</code>. Higher levels are named to be
+   * processed first, so a single pass never adds interfaces to two levels.
+   */
+  String chainClassName(int chain, int level) {
+    return String.format("Chain%05dLevel%03d", chain, chainLength - 1 - level);
+  }
+
+  /** Numbers of interfaces matched by next class. */
+  Set<Integer> fields(Random random) {
+    int count = Math.min(interfaces, Math.max(1, (int) Math.round(matchDensity * interfaces)));
+    Set<Integer> result = new TreeSet<>();
+    while (result.size() < count) {
+      result.add(random.nextInt(interfaces));
+    }
+    return result;
+  }
+
+  boolean isGeneric(int index) {
+    return genericEvery > 0 && index % genericEvery == 0;
+  }
+
+  /** Append field, getter and setter of property <code>name</code> to class <code>body</code>. */
+  public static void property(StringBuilder body, String type, String name) {
+    String field = Character.toLowerCase(name.charAt(0)) + name.substring(1);
+    body.append("\n  private ")
+        .append(type)
+        .append(" ")
+        .append(field)
+        .append(";\n\n  public ")
+        .append(type)
+        .append(" get")
+        .append(name)
+        .append("() {\n    return ")
+        .append(field)
+        .append(";\n  }\n\n  public void set")
+        .append(name)
+        .append("(")
+        .append(type)
+        .append(" value) {\n    this.")
+        .append(field)
+        .append(" = value;\n  }\n");
+  }
+
+  /** Write source of type <code>name</code> declared in <code>pkg</code>. */
+  public static void write(Path directory, String pkg, String name, String declaration)
+      throws IOException {
+    Path file = directory.resolve(pkg.replace('.', '/')).resolve(name + ".java");
+    Files.createDirectories(file.getParent());
+    Files.write(file, ("package " + pkg + ";\n\n" + declaration).getBytes(UTF_8));
+  }
+
+  /** Compile sources from <code>sourceDirectory</code> into <code>classesDirectory</code>. */
+  public static void compile(Path sourceDirectory, Path classesDirectory) throws IOException {
+    JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+    if (compiler == null) {
+      throw new IllegalStateException("Benchmarks have to be run on JDK with java compiler");
+    }
+
+    List<String> arguments = new ArrayList<>(asList("-d", classesDirectory.toString()));
+    arguments.addAll(map(CompilationUnitStore.javaFiles(sourceDirectory), Path::toString));
+    if (compiler.run(null, null, null, arguments.toArray(new String[0])) != 0) {
+      throw new IllegalStateException("Cannot compile " + sourceDirectory);
+    }
+  }
+
+  /** Copy content of <code>source</code> directory to <code>target</code>. */
+  public static void copy(Path source, Path target) throws IOException {
+    try (Stream<Path> paths = Files.walk(source)) {
+      for (Path path : (Iterable<Path>) paths::iterator) {
+        Path copy = target.resolve(source.relativize(path).toString());
+        if (Files.isDirectory(path)) {
+          Files.createDirectories(copy);
+        } else {
+          Files.copy(path, copy);
+        }
+      }
+    }
+  }
+
+  /** Delete <code>directory</code> with its content. */
+  public static void delete(Path directory) throws IOException {
+    if (directory == null || !Files.exists(directory)) {
+      return;
+    }
+
+    try (Stream<Path> paths = Files.walk(directory)) {
+      for (Path path : (Iterable<Path>) paths.sorted(reverseOrder())::iterator) {
+        Files.delete(path);
+      }
+    }
+  }
+}
@@ -0,0 +1,29 @@
+package pl.matsuo.interfacer.core;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs benchmarks selected by standard JMH command line with GC profiler, reporting allocation
+ * rate, and writes results to <code>jmh-result.json</code> unless other result file is given.
+ */
+public class BenchmarkRunner {
+
+  public static void main(String[] args) throws Exception {
+    CommandLineOptions commandLine = new CommandLineOptions(args);
+    ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLine);
+    if (commandLine.getIncludes().isEmpty()) {
+      options.include(BenchmarkRunner.class.getPackage().getName() + ".*Benchmark");
+    }
+    options.addProfiler(GCProfiler.class);
+    if (!commandLine.getResult().hasValue()) {
+      options.result("jmh-result.json").resultFormat(ResultFormatType.JSON);
+    }
+
+    new Runner(options.build()).run();
+  }
+}
@@ -0,0 +1,101 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Collections.emptyList;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Full {@link InterfacesAdder#addInterfacesAllFiles(java.io.File, java.io.File, String,
+ * java.util.List)} run over corpus of <code>classes</code> classes and <code>interfaces</code>
+ * source interfaces. Classes are copied from generated corpus before every iteration, as the run
+ * modifies them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+public class FullRunBenchmark {
+
+  @Param({"100", "1000"})
+  int classes;
+
+  @Param({"10", "100"})
+  int interfaces;
+
+  /** Every n-th interface is generic, see {@link BenchmarkCorpus}. */
+  @Param({"10"})
+  int genericEvery;
+
+  /** Length of class chains needing one pass per level, one chain per 50 classes. */
+  @Param({"3"})
+  int chainLength;
+
+  @Param({"1", "4"})
+  int parallelism;
+
+  /** See {@link InterfacesAdder#setMemoryBudget(int)}. */
+  @Param({"0"})
+  int memoryBudget;
+
+  Path directory;
+  Path corpusDirectory;
+  Path interfacesDirectory;
+  Path scanDirectory;
+
+  @Setup(Level.Trial)
+  public void writeCorpus() throws IOException {
+    directory = Files.createTempDirectory("interfacer-full-run");
+    corpusDirectory = directory.resolve("corpus");
+    interfacesDirectory = directory.resolve("interfaces");
+
+    BenchmarkCorpus corpus = new BenchmarkCorpus(classes, interfaces);
+    corpus.setGenericEvery(genericEvery);
+    corpus.setChains(classes / 50);
+    corpus.setChainLength(chainLength);
+    corpus.writeClasses(corpusDirectory);
+    corpus.writeInterfaces(interfacesDirectory);
+  }
+
+  @Setup(Level.Iteration)
+  public void copyClasses() throws IOException {
+    scanDirectory = Files.createTempDirectory(directory, "classes");
+    BenchmarkCorpus.copy(corpusDirectory, scanDirectory);
+  }
+
+  @TearDown(Level.Iteration)
+  public void deleteClasses() throws IOException {
+    BenchmarkCorpus.delete(scanDirectory);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteCorpus() throws IOException {
+    BenchmarkCorpus.delete(directory);
+  }
+
+  @Benchmark
+  public void addInterfacesAllFiles() {
+    InterfacesAdder interfacesAdder = new InterfacesAdder();
+    interfacesAdder.setParallelism(parallelism);
+    interfacesAdder.setMemoryBudget(memoryBudget);
+    interfacesAdder.addInterfacesAllFiles(
+        scanDirectory.toFile(), interfacesDirectory.toFile(), null, emptyList());
+  }
+}
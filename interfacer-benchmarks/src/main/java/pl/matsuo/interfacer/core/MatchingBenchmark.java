@@ -0,0 +1,142 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Collections.emptyMap;
+
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.matsuo.interfacer.model.ifc.IfcDescriptor;
+import pl.matsuo.interfacer.model.ifc.IfcResolve;
+import pl.matsuo.interfacer.model.ref.ReflectionMethodReference;
+import pl.matsuo.interfacer.showcase.GenericInterface;
+
+/**
+ * Matching of single class with interfaces: classpath interface matched directly and through {@link
+ * IfcDescriptor}, source interface, single generic method with its type constraints and the subtype
+ * check done before adding interface. Class has <code>properties</code> additional properties not
+ * used by the interfaces.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class MatchingBenchmark {
+
+  @Param({"4", "64"})
+  int properties;
+
+  Path directory;
+  InterfacesAdder interfacesAdder = new InterfacesAdder();
+  ClassOrInterfaceDeclaration sample;
+  IfcResolve classInterface;
+  IfcResolve sourceInterface;
+  IfcDescriptor descriptor;
+  ReflectionMethodReference getList;
+  MethodDeclaration getListDeclaration;
+  Type getListReturnType;
+
+  @Setup
+  public void setUp() throws IOException, NoSuchMethodException {
+    directory = Files.createTempDirectory("interfacer-matching");
+    Path classesDirectory = directory.resolve("classes");
+    Path interfacesDirectory = directory.resolve("interfaces");
+
+    StringBuilder body = new StringBuilder();
+    BenchmarkCorpus.property(body, "String", "Singleton");
+    BenchmarkCorpus.property(body, "java.util.List<String>", "List");
+    BenchmarkCorpus.property(body, "String", "Name");
+    for (int i = 0; i < properties; i++) {
+      BenchmarkCorpus.property(body, i % 2 == 0 ? "Integer" : "String", "Extra" + i);
+    }
+    BenchmarkCorpus.write(
+        classesDirectory,
+        BenchmarkCorpus.CLASS_PACKAGE,
+        "Sample",
+        "public class Sample {\n" + body + "}\n");
+    BenchmarkCorpus.write(
+        interfacesDirectory,
+        BenchmarkCorpus.INTERFACE_PACKAGE,
+        "Named",
+        "public interface Named {\n\n  CharSequence getName();\n}\n");
+
+    ParsingContext parsingContext =
+        ParsingContext.builder()
+            .classLoader(getClass().getClassLoader())
+            .scanDirectory(classesDirectory.toFile())
+            .interfacesDirectory(interfacesDirectory.toFile())
+            .build();
+    sample = parsingContext.classDeclaration(BenchmarkCorpus.CLASS_PACKAGE + ".Sample").get();
+
+    classInterface =
+        new ClasspathInterfacesScanner()
+            .processClassFromClasspath(GenericInterface.class, parsingContext.typeResolutionCache);
+    descriptor = IfcDescriptor.compile(classInterface);
+    sourceInterface =
+        new SourceInterfacesScanner()
+            .scanInterfacesFromSrc(
+                parsingContext.compilationUnits(interfacesDirectory.toFile()),
+                parsingContext.typeResolutionCache)
+            .get(0);
+
+    getList =
+        new ReflectionMethodReference(
+            GenericInterface.class.getMethod("getList"), parsingContext.typeResolutionCache);
+    getListDeclaration = sample.getMethodsByName("getList").get(0);
+    getListReturnType = GenericInterface.class.getMethod("getList").getGenericReturnType();
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    BenchmarkCorpus.delete(directory);
+  }
+
+  @Benchmark
+  public Map<String, String> classIfcResolveMatches() {
+    return classInterface.matches(sample);
+  }
+
+  @Benchmark
+  public Map<String, String> typeDeclarationIfcResolveMatches() {
+    return sourceInterface.matches(sample);
+  }
+
+  @Benchmark
+  public Map<String, String> descriptorMatches() {
+    return descriptor.matches(sample);
+  }
+
+  @Benchmark
+  public Map<String, String> reflectionMethodReferenceMatches() {
+    return getList.matches(getListDeclaration, emptyMap());
+  }
+
+  @Benchmark
+  public Map<String, String> typeConstraints() {
+    return ReflectionMethodReference.typeConstraints(
+        getListDeclaration.getType(), getListReturnType);
+  }
+
+  @Benchmark
+  public boolean canBeAssignedTo() {
+    return interfacesAdder.canBeAssignedTo(sample, descriptor);
+  }
+}
@@ -0,0 +1,206 @@
+package pl.matsuo.interfacer.core;
+
+import static java.lang.management.MemoryType.HEAP;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static pl.matsuo.core.util.collection.CollectionUtil.filter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Value;
+import org.apache.maven.cli.MavenCli;
+
+/**
+ * Measures overhead of <code>interfacer-maven-plugin</code> in builds of generated project, run by
+ * Maven embedded in this JVM:
+ *
+ * <ul>
+ *   <li><code>cold</code> - first build in fresh JVM, including loading of Maven and the plugin
+ *   <li><code>warm</code> - the same clean build repeated in the same JVM
+ *   <li><code>no-change</code> - build with nothing changed since previous one
+ *   <li><code>one-file-changed</code> - build after single scanned file was regenerated
+ * </ul>
+ *
+ * <p>Every scenario records wall time of the build, execution time of the plugin goal and peak heap
+ * of the JVM, which is shared by Maven and the plugin. Results are written as JSON, in the same
+ * shape as <code>InterfacerPluginBenchmark</code> of the Gradle plugin, so results of plugin
+ * releases may be compared.
+ *
+ * <p>Settings are read from system properties with <code>interfacer.pluginBenchmark.</code> prefix:
+ * <code>pluginVersion</code>, <code>classes</code>, <code>interfaces</code>, <code>parallelism
+ * </code>, <code>memoryBudget</code> and <code>result</code> (JSON file). Builds are run offline,
+ * so the plugin version has to be available in local repository. Module pom runs it with Maven
+ * libraries on classpath, eg. <code>mvn -B exec:exec -pl interfacer-benchmarks
+ * -Dinterfacer.pluginBenchmark.classes=2000</code>.
+ */
+public class MavenPluginBenchmark {
+
+  static final String PREFIX = "interfacer.pluginBenchmark.";
+
+  /** Measurement of single build. */
+  @Value
+  static class Result {
+    String tool;
+    String pluginVersion;
+    String scenario;
+    int classes;
+    long buildMillis;
+    long taskMillis;
+    long peakHeapBytes;
+  }
+
+  public static void main(String[] args) throws IOException {
+    String pluginVersion = property("pluginVersion", null);
+    if (pluginVersion == null) {
+      throw new IllegalStateException("Property " + PREFIX + "pluginVersion is required");
+    }
+
+    int classes = Integer.parseInt(property("classes", "1000"));
+    Path directory = Files.createTempDirectory("interfacer-maven-plugin-benchmark");
+    try {
+      BenchmarkCorpus corpus =
+          new BenchmarkCorpus(classes, Integer.parseInt(property("interfaces", "100")));
+      corpus.setGenericEvery(10);
+      corpus.setChains(classes / 100);
+      corpus.setChainLength(3);
+      Path corpusDirectory = directory.resolve("corpus");
+      Path project = directory.resolve("project");
+      corpus.writeClasses(corpusDirectory);
+      corpus.writeInterfaces(project.resolve("src/interfaces"));
+      Files.write(project.resolve("pom.xml"), pom(pluginVersion).getBytes(UTF_8));
+
+      // MavenCli requires it when it is not started by launcher script
+      System.setProperty("maven.multiModuleProjectDirectory", project.toString());
+
+      List<Result> results = new ArrayList<>();
+      restoreClasses(corpusDirectory, project);
+      results.add(build("cold", pluginVersion, classes, project));
+      restoreClasses(corpusDirectory, project);
+      results.add(build("warm", pluginVersion, classes, project));
+      results.add(build("no-change", pluginVersion, classes, project));
+      String changed = BenchmarkCorpus.CLASS_PACKAGE.replace('.', '/') + "/Record0.java";
+      Files.copy(
+          corpusDirectory.resolve(changed),
+          project.resolve("src/generated").resolve(changed),
+          StandardCopyOption.REPLACE_EXISTING);
+      results.add(build("one-file-changed", pluginVersion, classes, project));
+
+      results.forEach(System.out::println);
+      Path resultFile = Paths.get(property("result", "plugin-benchmark.json"));
+      Files.write(resultFile, json(results).getBytes(UTF_8));
+      System.out.println("Results written to " + resultFile.toAbsolutePath());
+    } finally {
+      BenchmarkCorpus.delete(directory);
+    }
+  }
+
+  /** Replace scanned sources of <code>project</code> with corpus and remove its build output. */
+  static void restoreClasses(Path corpusDirectory, Path project) throws IOException {
+    BenchmarkCorpus.delete(project.resolve("src/generated"));
+    BenchmarkCorpus.delete(project.resolve("target"));
+    BenchmarkCorpus.copy(corpusDirectory, project.resolve("src/generated"));
+  }
+
+  /** Run <code>process-sources</code> build of <code>project</code> and measure it. */
+  static Result build(String scenario, String pluginVersion, int classes, Path project) {
+    List<MemoryPoolMXBean> heapPools =
+        filter(ManagementFactory.getMemoryPoolMXBeans(), pool -> pool.getType() == HEAP);
+    System.gc();
+    heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+    MojoTimingSpy.reset();
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    long start = System.nanoTime();
+    int status;
+    try (PrintStream out = new PrintStream(output)) {
+      status =
+          new MavenCli()
+              .doMain(new String[] {"-B", "-o", "process-sources"}, project.toString(), out, out);
+    }
+    long buildMillis = (System.nanoTime() - start) / 1_000_000;
+    if (status != 0) {
+      System.out.println(new String(output.toByteArray(), UTF_8));
+      throw new IllegalStateException("Build failed in scenario " + scenario);
+    }
+
+    long peakHeap = 0;
+    for (MemoryPoolMXBean pool : heapPools) {
+      peakHeap += pool.getPeakUsage().getUsed();
+    }
+    return new Result(
+        "maven", pluginVersion, scenario, classes, buildMillis, MojoTimingSpy.millis(), peakHeap);
+  }
+
+  static String pom(String pluginVersion) {
+    return "<project xmlns=\"http://maven.apache.org/POM/4.0.0\">\n"
+        + "  <modelVersion>4.0.0</modelVersion>\n"
+        + "  <groupId>bench</groupId>\n"
+        + "  <artifactId>plugin-benchmark</artifactId>\n"
+        + "  <version>1</version>\n"
+        + "  <properties>\n"
+        + "    <project.build.sourceEncoding>UTF-8</project.build.sourceEncoding>\n"
+        + "  </properties>\n"
+        + "  <build>\n"
+        + "    <plugins>\n"
+        + "      <plugin>\n"
+        + "        <groupId>pl.matsuo.interfacer</groupId>\n"
+        + "        <artifactId>interfacer-maven-plugin</artifactId>\n"
+        + "        <version>"
+        + pluginVersion
+        + "</version>\n"
+        + "        <executions>\n"
+        + "          <execution>\n"
+        + "            <goals>\n"
+        + "              <goal>add-interfaces</goal>\n"
+        + "            </goals>\n"
+        + "            <configuration>\n"
+        + "              <interfacesDirectory>${project.basedir}/src/interfaces</interfacesDirectory>\n"
+        + "              <scanDirectory>${project.basedir}/src/generated</scanDirectory>\n"
+        + "              <parallelism>"
+        + property("parallelism", "1")
+        + "</parallelism>\n"
+        + "              <memoryBudget>"
+        + property("memoryBudget", "0")
+        + "</memoryBudget>\n"
+        + "            </configuration>\n"
+        + "          </execution>\n"
+        + "        </executions>\n"
+        + "      </plugin>\n"
+        + "    </plugins>\n"
+        + "  </build>\n"
+        + "</project>\n";
+  }
+
+  static String json(List<Result> results) {
+    StringBuilder json = new StringBuilder("[\n");
+    for (int i = 0; i < results.size(); i++) {
+      Result result = results.get(i);
+      json.append(
+          String.format(
+              "  {\"tool\": \"%s\", \"pluginVersion\": \"%s\", \"scenario\": \"%s\","
+                  + " \"classes\": %d, \"buildMillis\": %d, \"taskMillis\": %d,"
+                  + " \"peakHeapBytes\": %d}%s\n",
+              result.tool,
+              result.pluginVersion,
+              result.scenario,
+              result.classes,
+              result.buildMillis,
+              result.taskMillis,
+              result.peakHeapBytes,
+              i < results.size() - 1 ? "," : ""));
+    }
+    return json.append("]\n").toString();
+  }
+
+  static String property(String name, String defaultValue) {
+    return System.getProperty(PREFIX + name, defaultValue);
+  }
+}
@@ -0,0 +1,55 @@
+package pl.matsuo.interfacer.core;
+
+import javax.inject.Named;
+import javax.inject.Singleton;
+import org.apache.maven.eventspy.AbstractEventSpy;
+import org.apache.maven.execution.ExecutionEvent;
+
+/**
+ * Measures execution time of <code>interfacer-maven-plugin</code> goals in builds run by {@link
+ * MavenPluginBenchmark}. Embedded Maven finds it through <code>META-INF/sisu/javax.inject.Named
+ * </code> index on the classpath.
+ */
+@Named
+@Singleton
+public class MojoTimingSpy extends AbstractEventSpy {
+
+  static final String PLUGIN_ARTIFACT_ID = "interfacer-maven-plugin";
+
+  static long started;
+  static long nanos;
+
+  static synchronized void reset() {
+    nanos = 0;
+  }
+
+  static synchronized long millis() {
+    return nanos / 1_000_000;
+  }
+
+  @Override
+  public void onEvent(Object event) {
+    if (!(event instanceof ExecutionEvent)) {
+      return;
+    }
+
+    ExecutionEvent executionEvent = (ExecutionEvent) event;
+    if (executionEvent.getMojoExecution() == null
+        || !PLUGIN_ARTIFACT_ID.equals(executionEvent.getMojoExecution().getArtifactId())) {
+      return;
+    }
+
+    synchronized (MojoTimingSpy.class) {
+      switch (executionEvent.getType()) {
+        case MojoStarted:
+          started = System.nanoTime();
+          break;
+        case MojoSucceeded:
+        case MojoFailed:
+          nanos += System.nanoTime() - started;
+          break;
+        default:
+      }
+    }
+  }
+}
@@ -0,0 +1,191 @@
+package pl.matsuo.interfacer.core;
+
+import static java.lang.management.MemoryType.HEAP;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static pl.matsuo.core.util.collection.CollectionUtil.filter;
+import static pl.matsuo.core.util.collection.CollectionUtil.map;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Value;
+
+/**
+ * Runs {@link InterfacesAdder#addInterfacesAllFiles(java.io.File, java.io.File, String, List)} on
+ * generated corpora of increasing size and records wall time, number of passes and peak heap of
+ * every run. Growth between consecutive sizes is reported as exponent <code>k</code> of <code>
+ * cost ~ size^k</code>; exponent above <code>interfacer.scaling.maxExponent</code> marks
+ * super-linear behaviour and makes the suite exit with status 1.
+ *
+ * <p>Settings are read from system properties with <code>interfacer.scaling.</code> prefix: <code>
+ * sizes</code> (numbers of classes), <code>interfaces</code>, <code>matchDensity</code>, <code>
+ * genericEvery</code>, <code>chainLength</code> (one chain per 100 classes), <code>parallelism
+ * </code>, <code>memoryBudget</code>, <code>maxExponent</code> and <code>result</code> (JSON file).
+ * Run it in fresh JVM with fixed heap, eg. <code>java -Xmx2g -cp benchmarks.jar
+ * pl.matsuo.interfacer.core.ScalingSuite</code>.
+ */
+public class ScalingSuite {
+
+  static final String PREFIX = "interfacer.scaling.";
+
+  /** Measurement of single run. */
+  @Value
+  static class Result {
+    int classes;
+    int interfaces;
+    long millis;
+    int passes;
+    int expectedPasses;
+    long peakHeapBytes;
+  }
+
+  public static void main(String[] args) throws IOException {
+    List<Integer> sizes =
+        map(
+            filter(
+                map(asList(property("sizes", "500,1000,2000,4000").split(",")), String::trim),
+                size -> !size.isEmpty()),
+            Integer::valueOf);
+    double maxExponent = Double.parseDouble(property("maxExponent", "1.3"));
+
+    // first run only warms up the JIT
+    run(sizes.get(0));
+    List<Result> results = new ArrayList<>();
+    for (Integer size : sizes) {
+      Result result = run(size);
+      results.add(result);
+      System.out.println(result);
+    }
+
+    List<String> superLinear = report(results, maxExponent);
+    Path resultFile = Paths.get(property("result", "scaling-result.json"));
+    Files.write(resultFile, json(results).getBytes(UTF_8));
+    System.out.println("Results written to " + resultFile.toAbsolutePath());
+
+    if (!superLinear.isEmpty()) {
+      superLinear.forEach(System.out::println);
+      System.exit(1);
+    }
+  }
+
+  /** Generate corpus with <code>classes</code> classes and run interface adding on it. */
+  static Result run(int classes) throws IOException {
+    Path directory = Files.createTempDirectory("interfacer-scaling");
+    try {
+      BenchmarkCorpus corpus =
+          new BenchmarkCorpus(classes, Integer.parseInt(property("interfaces", "100")));
+      corpus.setMatchDensity(Double.parseDouble(property("matchDensity", "0.02")));
+      corpus.setGenericEvery(Integer.parseInt(property("genericEvery", "10")));
+      corpus.setChains(classes / 100);
+      corpus.setChainLength(Integer.parseInt(property("chainLength", "3")));
+      Path scanDirectory = directory.resolve("classes");
+      Path interfacesDirectory = directory.resolve("interfaces");
+      corpus.writeClasses(scanDirectory);
+      corpus.writeInterfaces(interfacesDirectory);
+
+      InterfacesAdder interfacesAdder = new InterfacesAdder();
+      interfacesAdder.setParallelism(Integer.parseInt(property("parallelism", "1")));
+      interfacesAdder.setMemoryBudget(Integer.parseInt(property("memoryBudget", "0")));
+
+      List<MemoryPoolMXBean> heapPools =
+          filter(ManagementFactory.getMemoryPoolMXBeans(), pool -> pool.getType() == HEAP);
+      System.gc();
+      heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+      long start = System.nanoTime();
+      interfacesAdder.addInterfacesAllFiles(
+          scanDirectory.toFile(), interfacesDirectory.toFile(), null, emptyList());
+      long millis = (System.nanoTime() - start) / 1_000_000;
+      long peakHeap = 0;
+      for (MemoryPoolMXBean pool : heapPools) {
+        peakHeap += pool.getPeakUsage().getUsed();
+      }
+
+      return new Result(
+          classes,
+          corpus.getInterfaces(),
+          millis,
+          interfacesAdder.getPasses(),
+          corpus.expectedPasses(),
+          peakHeap);
+    } finally {
+      BenchmarkCorpus.delete(directory);
+    }
+  }
+
+  /**
+   * Print growth exponents of time and peak heap between consecutive results and return
+   * descriptions of ones exceeding <code>maxExponent</code>, together with runs that needed other
+   * number of passes than expected.
+   */
+  static List<String> report(List<Result> results, double maxExponent) {
+    List<String> problems = new ArrayList<>();
+    for (Result result : results) {
+      if (result.passes != result.expectedPasses) {
+        problems.add(
+            "Unexpected number of passes for "
+                + result.classes
+                + " classes: "
+                + result.passes
+                + " instead of "
+                + result.expectedPasses);
+      }
+    }
+
+    for (int i = 1; i < results.size(); i++) {
+      Result previous = results.get(i - 1);
+      Result current = results.get(i);
+      double timeExponent =
+          exponent(previous.classes, current.classes, previous.millis, current.millis);
+      double heapExponent =
+          exponent(
+              previous.classes, current.classes, previous.peakHeapBytes, current.peakHeapBytes);
+      String growth =
+          String.format(
+              "%d -> %d classes: time exponent %.2f, heap exponent %.2f",
+              previous.classes, current.classes, timeExponent, heapExponent);
+      System.out.println(growth);
+      if (timeExponent > maxExponent || heapExponent > maxExponent) {
+        problems.add("Super-linear growth " + growth);
+      }
+    }
+    return problems;
+  }
+
+  /** Exponent <code>k</code> of <code>cost ~ size^k</code> fitted to two measurements. */
+  static double exponent(long size1, long size2, long cost1, long cost2) {
+    if (size1 == size2 || cost1 <= 0 || cost2 <= 0) {
+      return 0;
+    }
+    return Math.log((double) cost2 / cost1) / Math.log((double) size2 / size1);
+  }
+
+  static String json(List<Result> results) {
+    StringBuilder json = new StringBuilder("[\n");
+    for (int i = 0; i < results.size(); i++) {
+      Result result = results.get(i);
+      json.append(
+          String.format(
+              "  {\"classes\": %d, \"interfaces\": %d, \"millis\": %d, \"passes\": %d,"
+                  + " \"expectedPasses\": %d, \"peakHeapBytes\": %d}%s\n",
+              result.classes,
+              result.interfaces,
+              result.millis,
+              result.passes,
+              result.expectedPasses,
+              result.peakHeapBytes,
+              i < results.size() - 1 ? "," : ""));
+    }
+    return json.append("]\n").toString();
+  }
+
+  static String property(String name, String defaultValue) {
+    return System.getProperty(PREFIX + name, defaultValue);
+  }
+}
@@ -0,0 +1,97 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Arrays.asList;
+import static pl.matsuo.core.util.collection.CollectionUtil.map;
+
+import com.github.javaparser.ast.CompilationUnit;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import pl.matsuo.interfacer.model.ifc.IfcDescriptor;
+import pl.matsuo.interfacer.model.ifc.IfcResolve;
+import pl.matsuo.interfacer.model.ref.TypeResolutionCache;
+
+/**
+ * Scanning of <code>interfaces</code> interfaces from parsed sources and from compiled classes,
+ * including compilation into {@link IfcDescriptor}s. Every invocation uses new type resolution
+ * cache, and classpath scanning new class loader, so nothing is reused between invocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Dorg.slf4j.simpleLogger.defaultLogLevel=warn")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class ScanningBenchmark {
+
+  @Param({"10", "100", "400"})
+  int interfaces;
+
+  Path directory;
+  Path classesDirectory;
+  ParsingContext parsingContext;
+  List<CompilationUnit> compilationUnits;
+
+  @Setup
+  public void setUp() throws IOException {
+    directory = Files.createTempDirectory("interfacer-scanning");
+    Path sourceDirectory = directory.resolve("interfaces");
+    classesDirectory = directory.resolve("classes");
+    Files.createDirectories(classesDirectory);
+
+    new BenchmarkCorpus(0, interfaces).writeInterfaces(sourceDirectory);
+    BenchmarkCorpus.compile(sourceDirectory, classesDirectory);
+
+    parsingContext =
+        ParsingContext.builder()
+            .classLoader(getClass().getClassLoader())
+            .scanDirectory(directory.resolve("empty").toFile())
+            .interfacesDirectory(sourceDirectory.toFile())
+            .build();
+    compilationUnits = parsingContext.compilationUnits(sourceDirectory.toFile());
+  }
+
+  @TearDown
+  public void tearDown() throws IOException {
+    BenchmarkCorpus.delete(directory);
+  }
+
+  @Benchmark
+  public List<IfcResolve> scanInterfacesFromSrc() {
+    return map(
+        new SourceInterfacesScanner()
+            .scanInterfacesFromSrc(
+                compilationUnits, new TypeResolutionCache(parsingContext.typeSolver)),
+        IfcDescriptor::compile);
+  }
+
+  @Benchmark
+  public List<IfcResolve> scanInterfacesFromClasspath() throws IOException {
+    List<String> classpath = asList(classesDirectory.toString());
+    ClasspathInterfacesScanner scanner = new ClasspathInterfacesScanner();
+    try (URLClassLoader classLoader = scanner.getCompileClassLoader(classpath)) {
+      return map(
+          scanner.scanInterfacesFromClasspath(
+              classpath,
+              classLoader,
+              BenchmarkCorpus.INTERFACE_PACKAGE,
+              new TypeResolutionCache(parsingContext.typeSolver)),
+          IfcDescriptor::compile);
+    }
+  }
+}
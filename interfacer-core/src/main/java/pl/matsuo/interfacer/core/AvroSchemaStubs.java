@@ -0,0 +1,389 @@
+package pl.matsuo.interfacer.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Creates small stub sources of classes generated by Avro from schemas embedded in them as <code>
+ * SCHEMA$</code> field, so generated classes do not have to be parsed in full.
+ *
+ * <p>Stub starts with the original source up to the opening brace of class body, so its header has
+ * the same positions as in the original file and interfaces added to the stub are spliced into the
+ * original by {@link CompilationUnitWriter}. Body of the record stub contains only accessors of
+ * schema fields, with types derived from field types and logical types the way Avro compiler does
+ * with default settings. Every derived accessor has to be found in the original source, so files
+ * generated with other settings or templates are not replaced by stubs and are parsed in full.
+ */
+public class AvroSchemaStubs {
+
+  static final Pattern SCHEMA =
+      Pattern.compile(
+          "SCHEMA\\$\\s*=\\s*new\\s+org\\.apache\\.avro\\.Schema\\.Parser\\(\\)\\s*\\.parse\\(");
+
+  /** Stub of class <code>className</code> generated into <code>source</code>, if it has schema. */
+  public static Optional<String> stub(String source, String className) {
+    Matcher schemaMatcher = SCHEMA.matcher(source);
+    if (!schemaMatcher.find()) {
+      return Optional.empty();
+    }
+
+    Matcher header =
+        Pattern.compile(
+                "(?m)^public\\s+(?:final\\s+)?(class|enum)\\s+" + Pattern.quote(className) + "\\b")
+            .matcher(source);
+    if (!header.find()) {
+      return Optional.empty();
+    }
+    int bodyStart = source.indexOf('{', header.end());
+    if (bodyStart < 0 || bodyStart > schemaMatcher.start()) {
+      return Optional.empty();
+    }
+
+    try {
+      Object schema = new Json(stringLiterals(source, schemaMatcher.end())).parse();
+      if (!(schema instanceof Map)) {
+        return Optional.empty();
+      }
+
+      Map<?, ?> namedSchema = (Map<?, ?>) schema;
+      StringBuilder stub = new StringBuilder(source.substring(0, bodyStart + 1)).append('\n');
+      String type = String.valueOf(namedSchema.get("type"));
+      if (header.group(1).equals("enum")) {
+        if (!type.equals("enum")) {
+          return Optional.empty();
+        }
+        stub.append("  ")
+            .append(String.join(", ", strings(namedSchema.get("symbols"))))
+            .append(";\n");
+      } else if (type.equals("record") || type.equals("error")) {
+        String namespace = namespace(namedSchema, "");
+        for (Object field : (List<?>) namedSchema.get("fields")) {
+          Map<?, ?> fieldSchema = (Map<?, ?>) field;
+          String name = accessorName((String) fieldSchema.get("name"));
+          String javaType = javaType(fieldSchema.get("type"), namespace, false);
+          String getter = "public " + javaType + " get" + name + "()";
+          String setter = "public void set" + name + "(" + javaType + " value)";
+          if (!source.contains(getter) || !source.contains(setter)) {
+            return Optional.empty();
+          }
+          stub.append("  ").append(getter).append(" {}\n  ").append(setter).append(" {}\n");
+        }
+      } else if (!type.equals("fixed")) {
+        return Optional.empty();
+      }
+      return Optional.of(stub.append("}\n").toString());
+    } catch (RuntimeException e) {
+      // schema is not in expected shape, file is parsed in full
+      return Optional.empty();
+    }
+  }
+
+  /** Java type of values of <code>schema</code>, boxed if <code>boxed</code> is set. */
+  static String javaType(Object schema, String namespace, boolean boxed) {
+    if (schema instanceof List) {
+      List<Object> types = new ArrayList<>((List<?>) schema);
+      types.remove("null");
+      if (types.size() != 1) {
+        return types.isEmpty() ? "java.lang.Void" : "java.lang.Object";
+      }
+      return javaType(types.get(0), namespace, true);
+    } else if (schema instanceof String) {
+      return primitiveType((String) schema, boxed)
+          .orElseGet(() -> fullName((String) schema, namespace));
+    }
+
+    Map<?, ?> complexSchema = (Map<?, ?>) schema;
+    String type = (String) complexSchema.get("type");
+    Object logicalType = complexSchema.get("logicalType");
+    if ("date".equals(logicalType)) {
+      return "java.time.LocalDate";
+    } else if ("time-millis".equals(logicalType) || "time-micros".equals(logicalType)) {
+      return "java.time.LocalTime";
+    } else if ("timestamp-millis".equals(logicalType) || "timestamp-micros".equals(logicalType)) {
+      return "java.time.Instant";
+    } else if ("local-timestamp-millis".equals(logicalType)
+        || "local-timestamp-micros".equals(logicalType)) {
+      return "java.time.LocalDateTime";
+    }
+
+    switch (type) {
+      case "record":
+      case "error":
+      case "enum":
+      case "fixed":
+        return fullName((String) complexSchema.get("name"), namespace(complexSchema, namespace));
+      case "array":
+        return "java.util.List<" + javaType(complexSchema.get("items"), namespace, true) + ">";
+      case "map":
+        return "java.util.Map<"
+            + stringType(complexSchema)
+            + ","
+            + javaType(complexSchema.get("values"), namespace, true)
+            + ">";
+      case "string":
+        return stringType(complexSchema);
+      default:
+        return javaType(type, namespace, boxed);
+    }
+  }
+
+  static Optional<String> primitiveType(String type, boolean boxed) {
+    switch (type) {
+      case "null":
+        return Optional.of("java.lang.Void");
+      case "boolean":
+        return Optional.of(boxed ? "java.lang.Boolean" : "boolean");
+      case "int":
+        return Optional.of(boxed ? "java.lang.Integer" : "int");
+      case "long":
+        return Optional.of(boxed ? "java.lang.Long" : "long");
+      case "float":
+        return Optional.of(boxed ? "java.lang.Float" : "float");
+      case "double":
+        return Optional.of(boxed ? "java.lang.Double" : "double");
+      case "bytes":
+        return Optional.of("java.nio.ByteBuffer");
+      case "string":
+        return Optional.of("java.lang.CharSequence");
+      default:
+        return Optional.empty();
+    }
+  }
+
+  /** Type of strings, which is changed by <code>avro.java.string</code> property of schema. */
+  static String stringType(Map<?, ?> schema) {
+    return "String".equals(schema.get("avro.java.string"))
+        ? "java.lang.String"
+        : "java.lang.CharSequence";
+  }
+
+  static String namespace(Map<?, ?> namedSchema, String enclosingNamespace) {
+    String name = (String) namedSchema.get("name");
+    if (name.contains(".")) {
+      return name.substring(0, name.lastIndexOf('.'));
+    }
+    Object namespace = namedSchema.get("namespace");
+    return namespace != null ? (String) namespace : enclosingNamespace;
+  }
+
+  static String fullName(String name, String namespace) {
+    return name.contains(".") || namespace.isEmpty() ? name : namespace + "." + name;
+  }
+
+  /** Name of accessor of <code>field</code> without prefix, eg. <code>MyField</code>. */
+  static String accessorName(String field) {
+    StringBuilder name = new StringBuilder();
+    boolean upper = true;
+    for (char c : field.toCharArray()) {
+      if (c == '_') {
+        upper = true;
+      } else {
+        name.append(upper ? Character.toUpperCase(c) : c);
+        upper = false;
+      }
+    }
+    return name.toString();
+  }
+
+  static List<String> strings(Object values) {
+    List<String> result = new ArrayList<>();
+    for (Object value : (List<?>) values) {
+      result.add((String) value);
+    }
+    return result;
+  }
+
+  /**
+   * Concatenated values of java string literals starting at <code>start</code>, separated by commas
+   * or pluses and ending with closing parenthesis.
+   */
+  static String stringLiterals(String source, int start) {
+    StringBuilder value = new StringBuilder();
+    int i = start;
+    while (true) {
+      char c = source.charAt(i++);
+      if (c == ')') {
+        return value.toString();
+      } else if (c == '"') {
+        for (c = source.charAt(i++); c != '"'; c = source.charAt(i++)) {
+          if (c != '\\') {
+            value.append(c);
+            continue;
+          }
+          c = source.charAt(i++);
+          switch (c) {
+            case 'n':
+              value.append('\n');
+              break;
+            case 't':
+              value.append('\t');
+              break;
+            case 'r':
+              value.append('\r');
+              break;
+            case 'b':
+              value.append('\b');
+              break;
+            case 'f':
+              value.append('\f');
+              break;
+            case 'u':
+              while (source.charAt(i) == 'u') {
+                i++;
+              }
+              value.append((char) Integer.parseInt(source.substring(i, i + 4), 16));
+              i += 4;
+              break;
+            default:
+              if (c >= '0' && c <= '7') {
+                int end = i;
+                while (end < i + 2 && source.charAt(end) >= '0' && source.charAt(end) <= '7') {
+                  end++;
+                }
+                value.append((char) Integer.parseInt(source.substring(i - 1, end), 8));
+                i = end;
+              } else {
+                value.append(c);
+              }
+          }
+        }
+      } else if (!Character.isWhitespace(c) && c != ',' && c != '+') {
+        throw new IllegalArgumentException("Unexpected '" + c + "' in schema literal");
+      }
+    }
+  }
+
+  /** Minimal JSON reader producing maps, lists, strings, numbers, booleans and nulls. */
+  static class Json {
+    final String text;
+    int position;
+
+    Json(String text) {
+      this.text = text;
+    }
+
+    Object parse() {
+      Object value = value();
+      skipWhitespace();
+      if (position != text.length()) {
+        throw error();
+      }
+      return value;
+    }
+
+    Object value() {
+      skipWhitespace();
+      char c = text.charAt(position);
+      if (c == '{') {
+        position++;
+        Map<String, Object> object = new LinkedHashMap<>();
+        if (!consume('}')) {
+          do {
+            skipWhitespace();
+            String key = string();
+            if (!consume(':')) {
+              throw error();
+            }
+            object.put(key, value());
+          } while (consume(','));
+          if (!consume('}')) {
+            throw error();
+          }
+        }
+        return object;
+      } else if (c == '[') {
+        position++;
+        List<Object> array = new ArrayList<>();
+        if (!consume(']')) {
+          do {
+            array.add(value());
+          } while (consume(','));
+          if (!consume(']')) {
+            throw error();
+          }
+        }
+        return array;
+      } else if (c == '"') {
+        return string();
+      } else if (text.startsWith("true", position)) {
+        position += 4;
+        return true;
+      } else if (text.startsWith("false", position)) {
+        position += 5;
+        return false;
+      } else if (text.startsWith("null", position)) {
+        position += 4;
+        return null;
+      }
+
+      int start = position;
+      while (position < text.length() && "+-0123456789.eE".indexOf(text.charAt(position)) >= 0) {
+        position++;
+      }
+      if (start == position) {
+        throw error();
+      }
+      return Double.parseDouble(text.substring(start, position));
+    }
+
+    String string() {
+      if (text.charAt(position++) != '"') {
+        throw error();
+      }
+      StringBuilder value = new StringBuilder();
+      for (char c = text.charAt(position++); c != '"'; c = text.charAt(position++)) {
+        if (c == '\\') {
+          c = text.charAt(position++);
+          switch (c) {
+            case 'n':
+              c = '\n';
+              break;
+            case 't':
+              c = '\t';
+              break;
+            case 'r':
+              c = '\r';
+              break;
+            case 'b':
+              c = '\b';
+              break;
+            case 'f':
+              c = '\f';
+              break;
+            case 'u':
+              c = (char) Integer.parseInt(text.substring(position, position + 4), 16);
+              position += 4;
+              break;
+            default:
+          }
+        }
+        value.append(c);
+      }
+      return value.toString();
+    }
+
+    boolean consume(char c) {
+      skipWhitespace();
+      if (position < text.length() && text.charAt(position) == c) {
+        position++;
+        return true;
+      }
+      return false;
+    }
+
+    void skipWhitespace() {
+      while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+        position++;
+      }
+    }
+
+    IllegalArgumentException error() {
+      return new IllegalArgumentException("Invalid schema json at " + position);
+    }
+  }
+}
@@ -0,0 +1,779 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Arrays.asList;
+import static java.util.Comparator.comparing;
+import static pl.matsuo.core.util.collection.CollectionUtil.filter;
+import static pl.matsuo.core.util.collection.CollectionUtil.filterMap;
+import static pl.matsuo.core.util.collection.CollectionUtil.map;
+import static pl.matsuo.interfacer.core.RunReport.Counter.CHECKS_ATTEMPTED;
+import static pl.matsuo.interfacer.core.RunReport.Counter.CHECKS_REJECTED_EARLY;
+import static pl.matsuo.interfacer.core.RunReport.Counter.CLASSES_EXAMINED;
+import static pl.matsuo.interfacer.core.RunReport.Counter.FILES_PARSED;
+import static pl.matsuo.interfacer.core.RunReport.Counter.INTERFACES_ADDED;
+import static pl.matsuo.interfacer.core.RunReport.Phase.CLASSPATH_SCAN;
+import static pl.matsuo.interfacer.core.RunReport.Phase.MATCH;
+import static pl.matsuo.interfacer.core.RunReport.Phase.PARSE;
+import static pl.matsuo.interfacer.core.RunReport.Phase.SOURCE_INTERFACE_SCAN;
+import static pl.matsuo.interfacer.core.RunReport.Phase.WRITE;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javassist.bytecode.AccessFlag;
+import javassist.bytecode.BadBytecode;
+import javassist.bytecode.Bytecode;
+import javassist.bytecode.ClassFile;
+import javassist.bytecode.MethodInfo;
+import javassist.bytecode.Opcode;
+import javassist.bytecode.SignatureAttribute;
+import javassist.bytecode.SignatureAttribute.ClassSignature;
+import javassist.bytecode.SignatureAttribute.ClassType;
+import javassist.bytecode.SignatureAttribute.MethodSignature;
+import javassist.bytecode.SignatureAttribute.ObjectType;
+import javassist.bytecode.SignatureAttribute.TypeArgument;
+import lombok.Getter;
+import lombok.NonNull;
+import lombok.Setter;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Adds interfaces to compiled classes in <code>classesDirectory</code>, without parsing sources or
+ * resolving symbols. Interfaces are taken from <code>interfacePackage</code> on classpath, like in
+ * {@link ClasspathCatalog}, and from <code>interfacesDirectory</code>, whose sources are expected
+ * to be compiled into <code>classesDirectory</code>; they are loaded, but not initialized.
+ *
+ * <p>Class matches interface when for every abstract method of the interface it has public method
+ * with the same name, parameters assignable to the interface ones and return type assignable to the
+ * interface one. Type variables of the interface are bound from generic signatures of matching
+ * methods. Matched interface is appended to the interface table of the class and to its generic
+ * <code>Signature</code> attribute, and bridge methods are added where erased signatures differ,
+ * like the compiler does for covariant and generic methods.
+ *
+ * <p>Like {@link InterfacesAdder}, passes are repeated for classes depending on modified ones.
+ * Class files are read, matched and written in parallel; interfaces are added sequentially.
+ */
+@Slf4j
+public class BytecodeInterfacesAdder {
+
+  static final Pattern CLASS_NAME = Pattern.compile("L([^;<]+)");
+
+  /**
+   * Number of threads used for reading, matching and writing. Value <code>1</code> means sequential
+   * processing, value lower than <code>1</code> means using all available processors.
+   */
+  @Getter @Setter int parallelism = 1;
+
+  /** Timings and counters of the last run, see {@link RunReport}. */
+  @Getter RunReport report = new RunReport();
+
+  /** File receiving {@link RunReport} of every run as JSON. When null, report is not written. */
+  @Getter @Setter File reportFile;
+
+  final Map<String, ClassModel> classes = new LinkedHashMap<>();
+  final Map<String, List<String>> classpathSupertypes = new ConcurrentHashMap<>();
+  final Map<String, List<ClassMethod>> classpathMethods = new ConcurrentHashMap<>();
+  ClassLoader classLoader;
+
+  /** Class read from class file, modified in place. */
+  static class ClassModel {
+    final Path file;
+    final ClassFile classFile;
+    final String name;
+
+    ClassModel(Path file, ClassFile classFile) {
+      this.file = file;
+      this.classFile = classFile;
+      name = classFile.getName();
+    }
+
+    /** Only top level classes are processed, like primary types of source files. */
+    boolean isProcessed() {
+      return !classFile.isInterface() && !name.contains("$") && !name.endsWith("-info");
+    }
+  }
+
+  /** Interface from the catalog with its abstract methods. */
+  static class Ifc {
+    final Class<?> type;
+    final List<Method> methods;
+    final Set<String> methodKeys = new TreeSet<>();
+
+    Ifc(Class<?> type) {
+      this.type = type;
+      methods = filter(asList(type.getMethods()), m -> Modifier.isAbstract(m.getModifiers()));
+      methods.forEach(
+          m -> methodKeys.add(InterfaceIndex.methodKey(m.getName(), m.getParameterCount())));
+    }
+  }
+
+  /** Public instance method of class, with erased descriptor and generic signature if known. */
+  @Value
+  static class ClassMethod {
+    String name;
+    String descriptor;
+    String signature;
+  }
+
+  /** Interface matched by class, with its type arguments and implementations of its methods. */
+  @Value
+  static class Match {
+    Ifc ifc;
+    List<TypeArgument> typeArguments;
+    Map<Method, ClassMethod> implementations;
+  }
+
+  /** Add interfaces to classes compiled into <code>classesDirectory</code>. */
+  public void addInterfaces(
+      @NonNull File classesDirectory,
+      File interfacesDirectory,
+      String interfacePackage,
+      List<String> compileClasspathElements) {
+    if (interfacesDirectory == null && interfacePackage == null) {
+      throw new RuntimeException(
+          "No interface source defined: interfacesDirectory null interfacePackage null");
+    }
+
+    log.info("Start processing " + classesDirectory);
+    report = new RunReport();
+    classes.clear();
+    classpathSupertypes.clear();
+    classpathMethods.clear();
+
+    // compiled classes go first, so they win over stale copies on classpath
+    List<String> classpath = new ArrayList<>();
+    classpath.add(classesDirectory.getPath());
+    if (compileClasspathElements != null) {
+      for (String element : compileClasspathElements) {
+        if (!new File(element).getAbsoluteFile().equals(classesDirectory.getAbsoluteFile())) {
+          classpath.add(element);
+        }
+      }
+    }
+
+    ParallelMapper parallelMapper = new ParallelMapper(parallelism);
+    try (ClasspathCatalog catalog =
+        report.time(
+            CLASSPATH_SCAN,
+            () -> new ClasspathCatalog(classpath, interfacePackage, parallelMapper))) {
+      classLoader = catalog.getClassLoader();
+      List<Ifc> ifcs = interfaces(catalog, interfacesDirectory);
+
+      List<Path> files = classFiles(classesDirectory.toPath());
+      List<ClassModel> models =
+          report.time(PARSE, () -> parallelMapper.map(files, BytecodeInterfacesAdder::read));
+      report.add(FILES_PARSED, files.size());
+      models.forEach(model -> classes.put(model.name, model));
+
+      DependencyIndex dependencyIndex = new DependencyIndex();
+      models.forEach(
+          model ->
+              dependencyIndex.add(model.name, referencedTypes(model), declaredSupertypes(model)));
+
+      Set<ClassModel> modified =
+          addInterfacesUntilFixpoint(
+              filter(models, ClassModel::isProcessed), dependencyIndex, ifcs, parallelMapper);
+
+      log.info("Saving " + modified.size() + " modified classes");
+      report.time(
+          WRITE,
+          () -> parallelMapper.map(new ArrayList<>(modified), BytecodeInterfacesAdder::write));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading from classes directory", e);
+    } finally {
+      report.finish();
+      if (reportFile != null) {
+        try {
+          report.write(reportFile);
+        } catch (IOException e) {
+          log.warn("Cannot write report to " + reportFile, e);
+        }
+      }
+    }
+  }
+
+  /** Interfaces from the catalog and compiled interfaces of <code>interfacesDirectory</code>. */
+  List<Ifc> interfaces(ClasspathCatalog catalog, File interfacesDirectory) {
+    Map<String, Class<?>> types = new LinkedHashMap<>();
+    catalog.getTypes().forEach(type -> types.put(type.getName(), type));
+    report.time(
+        SOURCE_INTERFACE_SCAN,
+        () -> {
+          for (String name : sourceTypeNames(interfacesDirectory)) {
+            try {
+              Class<?> type = Class.forName(name, false, classLoader);
+              if (type.isInterface() && !type.isAnnotation()) {
+                types.putIfAbsent(name, type);
+              }
+            } catch (ClassNotFoundException | LinkageError e) {
+              log.warn("Cannot load compiled interface " + name, e);
+            }
+          }
+          return null;
+        });
+
+    List<Ifc> ifcs =
+        new ArrayList<>(filter(map(types.values(), Ifc::new), ifc -> !ifc.methods.isEmpty()));
+    ifcs.sort(comparing(ifc -> -ifc.methods.size()));
+    return ifcs;
+  }
+
+  /** Names of types declared in files of <code>sourceDirectory</code>, by java naming rules. */
+  static List<String> sourceTypeNames(File sourceDirectory) {
+    if (sourceDirectory == null) {
+      return new ArrayList<>();
+    }
+
+    try {
+      Path root = sourceDirectory.toPath().toAbsolutePath().normalize();
+      List<String> names = new ArrayList<>();
+      for (Path file : CompilationUnitStore.javaFiles(root)) {
+        String path = root.relativize(file).toString().replace(File.separatorChar, '.');
+        names.add(path.substring(0, path.length() - ".java".length()));
+      }
+      return names;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading interfaces directory", e);
+    }
+  }
+
+  /**
+   * Execute passes of interface adding until no class is modified. Every pass after the first one
+   * checks only classes depending on classes modified in previous pass.
+   */
+  Set<ClassModel> addInterfacesUntilFixpoint(
+      List<ClassModel> models,
+      DependencyIndex dependencyIndex,
+      List<Ifc> ifcs,
+      ParallelMapper parallelMapper) {
+    Set<ClassModel> modified = new LinkedHashSet<>();
+
+    List<ClassModel> worklist = models;
+    for (int pass = 1; !worklist.isEmpty(); pass++) {
+      report.startPass(pass);
+      log.info("Pass " + pass + ": checking " + worklist.size() + " classes");
+
+      // class files are not modified while matching
+      List<ClassModel> checked = worklist;
+      List<List<Match>> matches =
+          report.time(MATCH, () -> parallelMapper.map(checked, model -> matches(model, ifcs)));
+
+      Set<String> modifiedTypes = new LinkedHashSet<>();
+      for (int i = 0; i < checked.size(); i++) {
+        ClassModel model = checked.get(i);
+        for (Match match : matches.get(i)) {
+          // interface added in previous iteration may already cover this one
+          if (!isSubtype(model.name, match.ifc.type.getName())) {
+            log.info(
+                "Modifying the class: " + model.name + " with ifc " + match.ifc.type.getName());
+            addInterface(model, match);
+            report.increment(INTERFACES_ADDED);
+            modified.add(model);
+            modifiedTypes.add(model.name);
+          }
+        }
+      }
+
+      // subclasses of dependents inherit their methods, so they may match new interfaces too
+      worklist =
+          filter(
+              filterMap(
+                  dependencyIndex.subtypesClosure(dependencyIndex.dependentsOf(modifiedTypes)),
+                  classes::get),
+              ClassModel::isProcessed);
+    }
+
+    return modified;
+  }
+
+  /** Interfaces matched by class <code>model</code> that it does not implement yet. */
+  List<Match> matches(ClassModel model, List<Ifc> ifcs) {
+    Map<String, List<ClassMethod>> methods = new HashMap<>();
+    Set<String> methodKeys = new HashSet<>();
+    for (ClassMethod method : methods(model)) {
+      methods.computeIfAbsent(method.name, name -> new ArrayList<>()).add(method);
+      methodKeys.add(
+          InterfaceIndex.methodKey(method.name, parameterDescriptors(method.descriptor).size()));
+    }
+
+    List<Ifc> candidates = filter(ifcs, ifc -> methodKeys.containsAll(ifc.methodKeys));
+    report.increment(CLASSES_EXAMINED);
+    report.add(CHECKS_ATTEMPTED, ifcs.size());
+    report.add(CHECKS_REJECTED_EARLY, ifcs.size() - candidates.size());
+
+    return filterMap(
+        candidates, ifc -> isSubtype(model.name, ifc.type.getName()) ? null : match(methods, ifc));
+  }
+
+  /** Match of <code>ifc</code> by class with <code>methods</code>, or null if it does not match. */
+  Match match(Map<String, List<ClassMethod>> methods, Ifc ifc) {
+    Map<String, ObjectType> bindings = new HashMap<>();
+    Map<Method, ClassMethod> implementations = new LinkedHashMap<>();
+    for (Method method : ifc.methods) {
+      for (ClassMethod candidate : methods.getOrDefault(method.getName(), new ArrayList<>())) {
+        Map<String, ObjectType> candidateBindings = new HashMap<>(bindings);
+        if (implementsMethod(candidate, method, ifc.type, candidateBindings)) {
+          implementations.put(method, candidate);
+          bindings = candidateBindings;
+          break;
+        }
+      }
+      if (!implementations.containsKey(method)) {
+        return null;
+      }
+    }
+
+    List<TypeArgument> typeArguments = new ArrayList<>();
+    for (TypeVariable<?> typeVariable : ifc.type.getTypeParameters()) {
+      ObjectType binding = bindings.get(typeVariable.getName());
+      if (binding == null) {
+        return null;
+      }
+      typeArguments.add(new TypeArgument(binding));
+    }
+    return new Match(ifc, typeArguments, implementations);
+  }
+
+  /**
+   * Check if <code>candidate</code> may implement interface <code>method</code>, adding type
+   * variables it binds to <code>bindings</code>.
+   */
+  boolean implementsMethod(
+      ClassMethod candidate, Method method, Class<?> ifc, Map<String, ObjectType> bindings) {
+    List<String> parameters = parameterDescriptors(candidate.descriptor);
+    Class<?>[] ifcParameters = method.getParameterTypes();
+    if (parameters.size() != ifcParameters.length
+        || !isAssignable(returnDescriptor(candidate.descriptor), method.getReturnType())) {
+      return false;
+    }
+    for (int i = 0; i < ifcParameters.length; i++) {
+      if (!isAssignable(parameters.get(i), ifcParameters[i])) {
+        return false;
+      }
+    }
+
+    MethodSignature signature;
+    try {
+      signature =
+          SignatureAttribute.toMethodSignature(
+              candidate.signature != null ? candidate.signature : candidate.descriptor);
+    } catch (BadBytecode e) {
+      log.debug("Invalid signature of " + candidate, e);
+      return false;
+    }
+
+    Type[] genericParameters = method.getGenericParameterTypes();
+    if (signature.getParameterTypes().length != genericParameters.length
+        || !bind(signature.getReturnType(), method.getGenericReturnType(), ifc, bindings)) {
+      return false;
+    }
+    for (int i = 0; i < genericParameters.length; i++) {
+      if (!bind(signature.getParameterTypes()[i], genericParameters[i], ifc, bindings)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Bind type variables of <code>ifc</code> used in <code>generic</code> to parts of class type
+   * <code>type</code>. Return false if type variable is bound to primitive or to two different
+   * types.
+   */
+  static boolean bind(
+      SignatureAttribute.Type type, Type generic, Class<?> ifc, Map<String, ObjectType> bindings) {
+    if (generic instanceof TypeVariable
+        && ((TypeVariable<?>) generic).getGenericDeclaration() == ifc) {
+      if (!(type instanceof ObjectType)) {
+        return false;
+      }
+      ObjectType bound =
+          bindings.putIfAbsent(((TypeVariable<?>) generic).getName(), (ObjectType) type);
+      return bound == null || bound.encode().equals(((ObjectType) type).encode());
+    } else if (generic instanceof ParameterizedType && type instanceof ClassType) {
+      TypeArgument[] arguments = ((ClassType) type).getTypeArguments();
+      Type[] generics = ((ParameterizedType) generic).getActualTypeArguments();
+      if (arguments != null && arguments.length == generics.length) {
+        for (int i = 0; i < generics.length; i++) {
+          if (!arguments[i].isWildcard()
+              && !bind(arguments[i].getType(), generics[i], ifc, bindings)) {
+            return false;
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /** Check if value of type with <code>descriptor</code> may be used as <code>type</code>. */
+  boolean isAssignable(String descriptor, Class<?> type) {
+    if (type.isPrimitive() || type.isArray()) {
+      return descriptor.equals(descriptor(type));
+    } else if (descriptor.startsWith("[")) {
+      return type == Object.class;
+    }
+    return descriptor.startsWith("L") && isSubtype(typeName(descriptor), type.getName());
+  }
+
+  /** Check if <code>type</code> is <code>supertype</code> or its subtype, by binary names. */
+  boolean isSubtype(String type, String supertype) {
+    if (supertype.equals(Object.class.getName())) {
+      return true;
+    }
+
+    Set<String> visited = new HashSet<>();
+    Deque<String> queue = new ArrayDeque<>();
+    queue.add(type);
+    while (!queue.isEmpty()) {
+      String current = queue.poll();
+      if (current.equals(supertype)) {
+        return true;
+      }
+      if (visited.add(current)) {
+        queue.addAll(supertypes(current));
+      }
+    }
+    return false;
+  }
+
+  /** Direct supertypes of type <code>name</code>, with interfaces added in this run. */
+  List<String> supertypes(String name) {
+    ClassModel model = classes.get(name);
+    if (model == null) {
+      return classpathSupertypes.computeIfAbsent(name, this::loadSupertypes);
+    }
+
+    return new ArrayList<>(declaredSupertypes(model));
+  }
+
+  private List<String> loadSupertypes(String name) {
+    List<String> result = new ArrayList<>();
+    try {
+      Class<?> type = Class.forName(name, false, classLoader);
+      if (type.getSuperclass() != null) {
+        result.add(type.getSuperclass().getName());
+      }
+      for (Class<?> ifc : type.getInterfaces()) {
+        result.add(ifc.getName());
+      }
+    } catch (ClassNotFoundException | LinkageError e) {
+      log.debug("Cannot load " + name, e);
+    }
+    return result;
+  }
+
+  /** Public instance methods of class <code>model</code>, including inherited ones. */
+  List<ClassMethod> methods(ClassModel model) {
+    List<ClassMethod> result = new ArrayList<>();
+    for (ClassModel current = model; ; ) {
+      for (MethodInfo method : current.classFile.getMethods()) {
+        int accessFlags = method.getAccessFlags();
+        if ((accessFlags & AccessFlag.PUBLIC) != 0
+            && (accessFlags & (AccessFlag.STATIC | AccessFlag.BRIDGE | AccessFlag.SYNTHETIC)) == 0
+            && !method.getName().startsWith("<")) {
+          SignatureAttribute signature =
+              (SignatureAttribute) method.getAttribute(SignatureAttribute.tag);
+          result.add(
+              new ClassMethod(
+                  method.getName(),
+                  method.getDescriptor(),
+                  signature != null ? signature.getSignature() : null));
+        }
+      }
+
+      String superclass = current.classFile.getSuperclass();
+      if (superclass == null) {
+        return result;
+      } else if (classes.containsKey(superclass)) {
+        current = classes.get(superclass);
+      } else {
+        result.addAll(classpathMethods.computeIfAbsent(superclass, this::loadMethods));
+        return result;
+      }
+    }
+  }
+
+  private List<ClassMethod> loadMethods(String name) {
+    try {
+      List<ClassMethod> result = new ArrayList<>();
+      for (Method method : Class.forName(name, false, classLoader).getMethods()) {
+        if (!Modifier.isStatic(method.getModifiers())) {
+          result.add(new ClassMethod(method.getName(), descriptor(method), null));
+        }
+      }
+      return result;
+    } catch (ClassNotFoundException | LinkageError e) {
+      log.debug("Cannot load " + name, e);
+      return new ArrayList<>();
+    }
+  }
+
+  /** Add matched interface to the class, with its type arguments and bridge methods. */
+  void addInterface(ClassModel model, Match match) {
+    ClassFile classFile = model.classFile;
+    String[] originalInterfaces = classFile.getInterfaces();
+    String ifcName = match.ifc.type.getName();
+    classFile.addInterface(ifcName);
+
+    match.implementations.forEach(
+        (method, implementation) -> {
+          String descriptor = descriptor(method);
+          boolean declared =
+              classFile.getMethods().stream()
+                  .anyMatch(
+                      m ->
+                          m.getName().equals(method.getName())
+                              && m.getDescriptor().equals(descriptor));
+          if (!declared) {
+            addBridge(classFile, method, implementation);
+          }
+        });
+
+    SignatureAttribute attribute =
+        (SignatureAttribute) classFile.getAttribute(SignatureAttribute.tag);
+    if (attribute == null && match.typeArguments.isEmpty()) {
+      return;
+    }
+
+    try {
+      ClassSignature signature =
+          attribute != null
+              ? SignatureAttribute.toClassSignature(attribute.getSignature())
+              : new ClassSignature(
+                  null,
+                  new ClassType(classFile.getSuperclass()),
+                  Stream.of(originalInterfaces).map(ClassType::new).toArray(ClassType[]::new));
+      List<ClassType> interfaces = new ArrayList<>(asList(signature.getInterfaces()));
+      interfaces.add(
+          new ClassType(
+              ifcName,
+              match.typeArguments.isEmpty()
+                  ? null
+                  : match.typeArguments.toArray(new TypeArgument[0])));
+      classFile.addAttribute(
+          new SignatureAttribute(
+              classFile.getConstPool(),
+              new ClassSignature(
+                      signature.getParameters(),
+                      signature.getSuperClass(),
+                      interfaces.toArray(new ClassType[0]))
+                  .encode()));
+    } catch (BadBytecode e) {
+      throw new IllegalStateException("Invalid signature of " + model.name, e);
+    }
+  }
+
+  /**
+   * Add bridge method with erased signature of interface <code>method</code>, calling <code>
+   * implementation</code> with parameters cast to its types.
+   */
+  static void addBridge(ClassFile classFile, Method method, ClassMethod implementation) {
+    Bytecode code = new Bytecode(classFile.getConstPool());
+    code.addAload(0);
+    int slot = 1;
+    List<String> targetParameters = parameterDescriptors(implementation.descriptor);
+    Class<?>[] parameters = method.getParameterTypes();
+    for (int i = 0; i < parameters.length; i++) {
+      String parameter = descriptor(parameters[i]);
+      slot += load(code, parameter, slot);
+      if (!targetParameters.get(i).equals(parameter)) {
+        String target = targetParameters.get(i);
+        code.addCheckcast(target.startsWith("[") ? target : typeName(target));
+      }
+    }
+    code.addInvokevirtual(classFile.getName(), method.getName(), implementation.descriptor);
+    code.addOpcode(returnOpcode(descriptor(method.getReturnType())));
+    code.setMaxLocals(slot);
+
+    MethodInfo bridge =
+        new MethodInfo(classFile.getConstPool(), method.getName(), descriptor(method));
+    bridge.setAccessFlags(AccessFlag.PUBLIC | AccessFlag.SYNTHETIC | AccessFlag.BRIDGE);
+    bridge.setCodeAttribute(code.toCodeAttribute());
+    classFile.addMethod2(bridge);
+  }
+
+  /** Load local variable of type <code>descriptor</code>, return number of slots it takes. */
+  static int load(Bytecode code, String descriptor, int slot) {
+    switch (descriptor.charAt(0)) {
+      case 'J':
+        code.addLload(slot);
+        return 2;
+      case 'D':
+        code.addDload(slot);
+        return 2;
+      case 'F':
+        code.addFload(slot);
+        return 1;
+      case 'L':
+      case '[':
+        code.addAload(slot);
+        return 1;
+      default:
+        code.addIload(slot);
+        return 1;
+    }
+  }
+
+  static int returnOpcode(String descriptor) {
+    switch (descriptor.charAt(0)) {
+      case 'V':
+        return Opcode.RETURN;
+      case 'J':
+        return Opcode.LRETURN;
+      case 'D':
+        return Opcode.DRETURN;
+      case 'F':
+        return Opcode.FRETURN;
+      case 'L':
+      case '[':
+        return Opcode.ARETURN;
+      default:
+        return Opcode.IRETURN;
+    }
+  }
+
+  /**
+   * Binary names of classes used in signatures of methods declared by class <code>model</code> and
+   * of its supertypes.
+   */
+  static Set<String> referencedTypes(ClassModel model) {
+    Set<String> result = new TreeSet<>(declaredSupertypes(model));
+    for (MethodInfo method : model.classFile.getMethods()) {
+      addClassNames(method.getDescriptor(), result);
+      SignatureAttribute signature =
+          (SignatureAttribute) method.getAttribute(SignatureAttribute.tag);
+      if (signature != null) {
+        addClassNames(signature.getSignature(), result);
+      }
+    }
+    return result;
+  }
+
+  /** Binary names of superclass and interfaces of class <code>model</code>. */
+  static Set<String> declaredSupertypes(ClassModel model) {
+    Set<String> result = new TreeSet<>(asList(model.classFile.getInterfaces()));
+    if (model.classFile.getSuperclass() != null) {
+      result.add(model.classFile.getSuperclass());
+    }
+    return result;
+  }
+
+  private static void addClassNames(String signature, Set<String> result) {
+    Matcher matcher = CLASS_NAME.matcher(signature);
+    while (matcher.find()) {
+      result.add(matcher.group(1).replace('/', '.'));
+    }
+  }
+
+  static String descriptor(Method method) {
+    StringBuilder descriptor = new StringBuilder("(");
+    for (Class<?> parameter : method.getParameterTypes()) {
+      descriptor.append(descriptor(parameter));
+    }
+    return descriptor.append(')').append(descriptor(method.getReturnType())).toString();
+  }
+
+  static String descriptor(Class<?> type) {
+    if (type.isArray()) {
+      return type.getName().replace('.', '/');
+    } else if (!type.isPrimitive()) {
+      return "L" + type.getName().replace('.', '/') + ";";
+    } else if (type == boolean.class) {
+      return "Z";
+    } else if (type == long.class) {
+      return "J";
+    } else if (type == void.class) {
+      return "V";
+    }
+    // B, C, D, F, I, S
+    return type.getName().substring(0, 1).toUpperCase();
+  }
+
+  /** Descriptors of parameters of method with <code>descriptor</code>. */
+  static List<String> parameterDescriptors(String descriptor) {
+    List<String> result = new ArrayList<>();
+    int i = 1;
+    while (descriptor.charAt(i) != ')') {
+      int start = i;
+      while (descriptor.charAt(i) == '[') {
+        i++;
+      }
+      i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+      result.add(descriptor.substring(start, i));
+    }
+    return result;
+  }
+
+  static String returnDescriptor(String descriptor) {
+    return descriptor.substring(descriptor.indexOf(')') + 1);
+  }
+
+  /** Binary name of class type with <code>descriptor</code>, eg. <code>java.lang.String</code>. */
+  static String typeName(String descriptor) {
+    return descriptor.substring(1, descriptor.length() - 1).replace('/', '.');
+  }
+
+  /** All class files located under <code>root</code>, sorted by path. */
+  static List<Path> classFiles(Path root) throws IOException {
+    if (!Files.isDirectory(root)) {
+      return new ArrayList<>();
+    }
+
+    try (Stream<Path> paths = Files.walk(root)) {
+      return paths
+          .filter(Files::isRegularFile)
+          .filter(path -> path.toString().endsWith(".class"))
+          .sorted()
+          .collect(Collectors.toList());
+    }
+  }
+
+  static ClassModel read(Path file) {
+    try (DataInputStream input =
+        new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      return new ClassModel(file, new ClassFile(input));
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error reading " + file, e);
+    }
+  }
+
+  static Void write(ClassModel model) {
+    try {
+      ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+      try (DataOutputStream output = new DataOutputStream(bytes)) {
+        model.classFile.write(output);
+      }
+      CompilationUnitWriter.writeAtomically(model.file, bytes.toByteArray());
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error writing " + model.file, e);
+    }
+  }
+}
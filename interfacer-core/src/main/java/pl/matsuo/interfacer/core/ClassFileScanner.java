@@ -0,0 +1,198 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.toList;
+import static pl.matsuo.core.util.collection.CollectionUtil.flatMap;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Finds names of interfaces on classpath by reading headers of class files located under <code>
+ * interfacePackage</code> prefixes. Other jar entries and directories are not read, and scanner
+ * itself does not load any class. Found interfaces are loaded afterwards by {@link
+ * ClasspathInterfacesScanner}, which builds reflection based descriptors of them; other classes of
+ * the package are never loaded. Classpath elements are scanned in parallel.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class ClassFileScanner {
+
+  static final int ACC_INTERFACE = 0x0200;
+  static final int ACC_ANNOTATION = 0x2000;
+
+  final ParallelMapper parallelMapper;
+
+  /** Header of class file: binary name and access flags. */
+  @Value
+  public static class ClassHeader {
+    String name;
+    int accessFlags;
+
+    public boolean isInterface() {
+      return (accessFlags & ACC_INTERFACE) != 0 && (accessFlags & ACC_ANNOTATION) == 0;
+    }
+  }
+
+  /**
+   * Sorted binary names of interfaces (excluding annotations) from packages listed comma separated
+   * in <code>interfacePackage</code> and their subpackages.
+   */
+  public List<String> scanInterfaceNames(List<String> classpathElements, String interfacePackage) {
+    if (interfacePackage == null || classpathElements == null) {
+      return emptyList();
+    }
+
+    List<String> prefixes =
+        Arrays.stream(interfacePackage.split(","))
+            .map(String::trim)
+            .filter(name -> !name.isEmpty())
+            .map(name -> name.replace('.', '/') + "/")
+            .collect(toList());
+
+    List<ClassHeader> headers =
+        flatMap(parallelMapper.map(classpathElements, element -> scan(element, prefixes)), h -> h);
+
+    return new ArrayList<>(
+        new TreeSet<>(
+            headers.stream()
+                .filter(ClassHeader::isInterface)
+                .map(ClassHeader::getName)
+                .collect(toList())));
+  }
+
+  /**
+   * Headers of class files under <code>prefixes</code> in jar or directory <code>element</code>.
+   */
+  List<ClassHeader> scan(String element, List<String> prefixes) {
+    File file = new File(element);
+    try {
+      if (file.isDirectory()) {
+        return scanDirectory(file.toPath(), prefixes);
+      } else if (file.isFile()) {
+        return scanJar(file, prefixes);
+      }
+    } catch (IOException e) {
+      log.warn("Error scanning classpath element " + element, e);
+    }
+
+    return emptyList();
+  }
+
+  private List<ClassHeader> scanDirectory(Path root, List<String> prefixes) throws IOException {
+    List<ClassHeader> result = new ArrayList<>();
+    for (String prefix : prefixes) {
+      Path directory = root.resolve(prefix);
+      if (!Files.isDirectory(directory)) {
+        continue;
+      }
+
+      try (Stream<Path> paths = Files.walk(directory)) {
+        for (Path path : paths.filter(this::isClassFile).sorted().collect(toList())) {
+          try (InputStream input = Files.newInputStream(path)) {
+            result.add(readHeader(input));
+          }
+        }
+      }
+    }
+
+    return result;
+  }
+
+  private List<ClassHeader> scanJar(File file, List<String> prefixes) throws IOException {
+    List<ClassHeader> result = new ArrayList<>();
+    try (JarFile jarFile = new JarFile(file)) {
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (name.endsWith(".class")
+            && !name.endsWith("-info.class")
+            && prefixes.stream().anyMatch(name::startsWith)) {
+          try (InputStream input = jarFile.getInputStream(entry)) {
+            result.add(readHeader(input));
+          }
+        }
+      }
+    }
+
+    return result;
+  }
+
+  private boolean isClassFile(Path path) {
+    String name = path.getFileName().toString();
+    return name.endsWith(".class") && !name.endsWith("-info.class") && Files.isRegularFile(path);
+  }
+
+  /** Read class file header up to <code>this_class</code>, skipping the constant pool. */
+  public static ClassHeader readHeader(InputStream inputStream) throws IOException {
+    DataInputStream input = new DataInputStream(new BufferedInputStream(inputStream));
+    if (input.readInt() != 0xCAFEBABE) {
+      throw new IOException("Not a class file");
+    }
+    input.readUnsignedShort(); // minor version
+    input.readUnsignedShort(); // major version
+
+    int constantPoolCount = input.readUnsignedShort();
+    String[] utf8 = new String[constantPoolCount];
+    int[] classNameIndex = new int[constantPoolCount];
+    for (int i = 1; i < constantPoolCount; i++) {
+      int tag = input.readUnsignedByte();
+      switch (tag) {
+        case 1: // Utf8
+          utf8[i] = input.readUTF();
+          break;
+        case 7: // Class
+          classNameIndex[i] = input.readUnsignedShort();
+          break;
+        case 8: // String
+        case 16: // MethodType
+        case 19: // Module
+        case 20: // Package
+          input.skipBytes(2);
+          break;
+        case 15: // MethodHandle
+          input.skipBytes(3);
+          break;
+        case 3: // Integer
+        case 4: // Float
+        case 9: // Fieldref
+        case 10: // Methodref
+        case 11: // InterfaceMethodref
+        case 12: // NameAndType
+        case 17: // Dynamic
+        case 18: // InvokeDynamic
+          input.skipBytes(4);
+          break;
+        case 5: // Long
+        case 6: // Double
+          input.skipBytes(8);
+          // 8 byte constants take two entries
+          i++;
+          break;
+        default:
+          throw new IOException("Unknown constant pool tag " + tag);
+      }
+    }
+
+    int accessFlags = input.readUnsignedShort();
+    int thisClass = input.readUnsignedShort();
+    return new ClassHeader(utf8[classNameIndex[thisClass]].replace('/', '.'), accessFlags);
+  }
+}
@@ -0,0 +1,28 @@
+package pl.matsuo.interfacer.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Matching of single class, parsed from one compilation unit, with its candidate interfaces. */
+@Name("pl.matsuo.interfacer.ClassMatching")
+@Label("Interfacer Class Matching")
+@Category("Interfacer")
+@Description("Matching of class with candidate interfaces found in interface index")
+class ClassMatchingEvent extends jdk.jfr.Event {
+
+  @Label("Class")
+  String className;
+
+  @Label("Pass")
+  int pass;
+
+  @Label("Candidates")
+  @Description("Interfaces not rejected by interface index")
+  int candidates;
+
+  @Label("Matched")
+  @Description("Interfaces matched by the class")
+  int matched;
+}
@@ -0,0 +1,97 @@
+package pl.matsuo.interfacer.core;
+
+import static pl.matsuo.core.util.collection.CollectionUtil.filterMap;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.net.URLClassLoader;
+import java.util.List;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import pl.matsuo.interfacer.model.ifc.IfcResolve;
+import pl.matsuo.interfacer.model.ref.TypeResolutionCache;
+
+/**
+ * Classloader over compile classpath together with interfaces found in <code>interfacePackage
+ * </code>. Creating it is the most expensive part of run start (opening jars, scanning, loading
+ * classes), so it may be shared by many {@link InterfacesAdder} runs over the same classpath.
+ * Catalog is immutable and may be used concurrently; it has to be closed to release classpath jars.
+ */
+@Slf4j
+@Getter
+public class ClasspathCatalog implements Closeable {
+
+  final String fingerprint;
+  final URLClassLoader classLoader;
+  final List<Class<?>> types;
+  final ClasspathIndex classpathIndex;
+
+  public ClasspathCatalog(List<String> compileClasspathElements, String interfacePackage) {
+    this(compileClasspathElements, interfacePackage, ParallelMapper.SEQUENTIAL);
+  }
+
+  /** Create catalog scanning classpath elements with <code>parallelMapper</code>. */
+  public ClasspathCatalog(
+      List<String> compileClasspathElements,
+      String interfacePackage,
+      ParallelMapper parallelMapper) {
+    this(compileClasspathElements, interfacePackage, parallelMapper, null);
+  }
+
+  /**
+   * Create catalog with {@link ClasspathIndex} of classpath jars stored in <code>indexDirectory
+   * </code>, or without index if <code>indexDirectory</code> is null.
+   */
+  public ClasspathCatalog(
+      List<String> compileClasspathElements,
+      String interfacePackage,
+      ParallelMapper parallelMapper,
+      File indexDirectory) {
+    try {
+      fingerprint = fingerprint(compileClasspathElements, interfacePackage);
+    } catch (IOException e) {
+      throw new RuntimeException("Error reading classpath", e);
+    }
+    ClasspathInterfacesScanner scanner = new ClasspathInterfacesScanner();
+    classLoader = scanner.getCompileClassLoader(compileClasspathElements);
+    types =
+        scanner.scanClasses(
+            compileClasspathElements, classLoader, interfacePackage, parallelMapper);
+    classpathIndex =
+        indexDirectory != null && compileClasspathElements != null
+            ? new ClasspathIndex(compileClasspathElements, indexDirectory, parallelMapper)
+            : null;
+  }
+
+  /**
+   * Fingerprint of catalog inputs, see {@link IncrementalManifest#catalogFingerprint(String,
+   * java.util.Collection, java.io.File)}. Catalog created for the same classpath is still valid if
+   * its fingerprint did not change.
+   */
+  public static String fingerprint(List<String> compileClasspathElements, String interfacePackage)
+      throws IOException {
+    return IncrementalManifest.catalogFingerprint(interfacePackage, compileClasspathElements, null);
+  }
+
+  /**
+   * Create {@link IfcResolve} for every interface in catalog, resolving with <code>
+   * typeResolutionCache</code>.
+   */
+  public List<IfcResolve> interfaces(TypeResolutionCache typeResolutionCache) {
+    ClasspathInterfacesScanner scanner = new ClasspathInterfacesScanner();
+    return filterMap(types, type -> scanner.processClassFromClasspath(type, typeResolutionCache));
+  }
+
+  @Override
+  public void close() {
+    if (classpathIndex != null) {
+      classpathIndex.close();
+    }
+    try {
+      classLoader.close();
+    } catch (IOException e) {
+      log.warn("Error closing classloader", e);
+    }
+  }
+}
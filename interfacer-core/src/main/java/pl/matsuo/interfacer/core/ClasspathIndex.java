@@ -0,0 +1,310 @@
+package pl.matsuo.interfacer.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static pl.matsuo.core.util.collection.CollectionUtil.filter;
+import static pl.matsuo.core.util.collection.CollectionUtil.filterMap;
+
+import com.google.common.hash.Hashing;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Optional;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import lombok.RequiredArgsConstructor;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+import pl.matsuo.interfacer.core.ClassFileScanner.ClassHeader;
+
+/**
+ * Index of classes in classpath jars, mapping binary class name to jar entry and access flags.
+ * Index of a jar is built once from class file headers and stored in <code>indexDirectory</code>
+ * under hash of jar path, so it is reused by all builds using the same jar. Index is valid while
+ * size and modification time of the jar match those stored in it; jar with other modification time
+ * but the same content hash keeps its index. Stored indexes are memory mapped and searched in
+ * place; class files are read only when a class is resolved. Directories on classpath are not
+ * indexed.
+ *
+ * <p>Index file contains magic number, version, size, modification time and SHA-256 of the jar,
+ * number of classes, offsets of class records and records sorted by name: access flags, name and
+ * entry name, strings prefixed with their length.
+ */
+@Slf4j
+public class ClasspathIndex implements Closeable {
+
+  static final int MAGIC = 0x49464358;
+  static final int VERSION = 2;
+  static final int SIZE_OFFSET = 8;
+  static final int MODIFIED_OFFSET = 16;
+  static final int HASH_OFFSET = 24;
+  static final int HASH_SIZE = 32;
+  static final int COUNT_OFFSET = HASH_OFFSET + HASH_SIZE;
+  static final int HEADER_SIZE = COUNT_OFFSET + 4;
+
+  final List<JarIndex> jars;
+
+  /** Location of class in classpath jar. */
+  @Value
+  public static class Entry {
+    File jar;
+    String entryName;
+    int accessFlags;
+  }
+
+  /** Create index of jars from <code>classpathElements</code>, indexing them in parallel. */
+  public ClasspathIndex(
+      List<String> classpathElements, File indexDirectory, ParallelMapper parallelMapper) {
+    jars =
+        filterMap(
+            parallelMapper.map(
+                filter(classpathElements, element -> new File(element).isFile()),
+                element -> open(new File(element), indexDirectory.toPath())),
+            jar -> jar);
+  }
+
+  /** Find class <code>binaryName</code> in the first jar containing it. */
+  public Optional<Entry> find(String binaryName) {
+    byte[] key = binaryName.getBytes(UTF_8);
+    for (JarIndex jar : jars) {
+      Optional<Entry> entry = jar.find(key);
+      if (entry.isPresent()) {
+        return entry;
+      }
+    }
+    return Optional.empty();
+  }
+
+  /** Content of class file <code>entry</code>. */
+  public InputStream open(Entry entry) throws IOException {
+    for (JarIndex jar : jars) {
+      if (jar.jar.equals(entry.jar)) {
+        return jar.jarFile.getInputStream(jar.jarFile.getEntry(entry.entryName));
+      }
+    }
+    throw new IOException("Jar not indexed " + entry.jar);
+  }
+
+  @Override
+  public void close() {
+    for (JarIndex jar : jars) {
+      try {
+        jar.jarFile.close();
+      } catch (IOException e) {
+        log.warn("Error closing " + jar.jar, e);
+      }
+    }
+  }
+
+  private static JarIndex open(File jar, Path indexDirectory) {
+    try {
+      Path indexFile =
+          indexDirectory.resolve(
+              Hashing.sha256().hashString(jar.getCanonicalPath(), UTF_8) + ".idx");
+      if (!isValid(indexFile, jar)) {
+        log.info("Indexing " + jar);
+        Files.createDirectories(indexDirectory);
+        CompilationUnitWriter.writeAtomically(indexFile, build(jar));
+      }
+
+      ByteBuffer buffer = map(indexFile);
+      return new JarIndex(jar, new JarFile(jar), buffer, buffer.getInt(COUNT_OFFSET));
+    } catch (IOException | RuntimeException e) {
+      log.warn("Cannot index " + jar + ", it will be resolved by class loader", e);
+      return null;
+    }
+  }
+
+  /**
+   * True if stored index describes current content of <code>jar</code>. Jar is hashed only when its
+   * modification time differs from the stored one; if content did not change, stored modification
+   * time is updated.
+   */
+  private static boolean isValid(Path indexFile, File jar) throws IOException {
+    ByteBuffer header = readHeader(indexFile);
+    if (header == null || header.getLong(SIZE_OFFSET) != jar.length()) {
+      return false;
+    } else if (header.getLong(MODIFIED_OFFSET) == jar.lastModified()) {
+      return true;
+    }
+
+    byte[] storedHash = new byte[HASH_SIZE];
+    header.position(HASH_OFFSET);
+    header.get(storedHash);
+    if (!Arrays.equals(storedHash, contentHash(jar))) {
+      return false;
+    }
+
+    log.debug("Content of " + jar + " did not change, reusing index");
+    byte[] index = Files.readAllBytes(indexFile);
+    ByteBuffer.wrap(index).putLong(MODIFIED_OFFSET, jar.lastModified());
+    CompilationUnitWriter.writeAtomically(indexFile, index);
+    return true;
+  }
+
+  /** Header of stored index, null if it is missing or in unknown format. */
+  private static ByteBuffer readHeader(Path indexFile) throws IOException {
+    if (!Files.isRegularFile(indexFile)) {
+      return null;
+    }
+
+    try (FileChannel channel = FileChannel.open(indexFile, READ)) {
+      ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+      while (header.hasRemaining() && channel.read(header) >= 0) {}
+      return !header.hasRemaining() && header.getInt(0) == MAGIC && header.getInt(4) == VERSION
+          ? header
+          : null;
+    }
+  }
+
+  private static ByteBuffer map(Path indexFile) throws IOException {
+    try (FileChannel channel = FileChannel.open(indexFile, READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
+  private static byte[] contentHash(File jar) throws IOException {
+    return com.google.common.io.Files.asByteSource(jar).hash(Hashing.sha256()).asBytes();
+  }
+
+  /** Content of index file for <code>jar</code>. */
+  static byte[] build(File jar) throws IOException {
+    long size = jar.length();
+    long modified = jar.lastModified();
+    byte[] contentHash = contentHash(jar);
+
+    List<byte[][]> classes = new ArrayList<>();
+    List<Integer> accessFlags = new ArrayList<>();
+    try (JarFile jarFile = new JarFile(jar)) {
+      Enumeration<JarEntry> entries = jarFile.entries();
+      while (entries.hasMoreElements()) {
+        JarEntry entry = entries.nextElement();
+        String name = entry.getName();
+        if (!name.endsWith(".class")
+            || name.endsWith("-info.class")
+            || name.startsWith("META-INF")) {
+          continue;
+        }
+
+        try (InputStream input = jarFile.getInputStream(entry)) {
+          ClassHeader header = ClassFileScanner.readHeader(input);
+          classes.add(new byte[][] {header.getName().getBytes(UTF_8), name.getBytes(UTF_8)});
+          accessFlags.add(header.getAccessFlags());
+        } catch (IOException e) {
+          log.warn("Skipping unreadable class file " + name + " in " + jar);
+        }
+      }
+    }
+
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < classes.size(); i++) {
+      order.add(i);
+    }
+    order.sort((a, b) -> compare(classes.get(a)[0], classes.get(b)[0]));
+
+    ByteArrayOutputStream records = new ByteArrayOutputStream();
+    DataOutputStream recordsOutput = new DataOutputStream(records);
+    List<Integer> offsets = new ArrayList<>();
+    int recordsStart = HEADER_SIZE + 4 * order.size();
+    for (Integer i : order) {
+      offsets.add(recordsStart + recordsOutput.size());
+      recordsOutput.writeShort(accessFlags.get(i));
+      for (byte[] value : classes.get(i)) {
+        recordsOutput.writeShort(value.length);
+        recordsOutput.write(value);
+      }
+    }
+
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(result);
+    output.writeInt(MAGIC);
+    output.writeInt(VERSION);
+    output.writeLong(size);
+    output.writeLong(modified);
+    output.write(contentHash);
+    output.writeInt(order.size());
+    for (Integer offset : offsets) {
+      output.writeInt(offset);
+    }
+    records.writeTo(output);
+    return result.toByteArray();
+  }
+
+  private static int compare(byte[] a, byte[] b) {
+    for (int i = 0; i < Math.min(a.length, b.length); i++) {
+      int difference = (a[i] & 0xFF) - (b[i] & 0xFF);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return a.length - b.length;
+  }
+
+  /** Memory mapped index of single jar. Only absolute reads are used, so it is thread safe. */
+  @RequiredArgsConstructor
+  static class JarIndex {
+    final File jar;
+    final JarFile jarFile;
+    final ByteBuffer buffer;
+    final int count;
+
+    /** Binary search of class records for <code>name</code>. */
+    Optional<Entry> find(byte[] name) {
+      int low = 0;
+      int high = count - 1;
+      while (low <= high) {
+        int middle = (low + high) >>> 1;
+        int record = buffer.getInt(HEADER_SIZE + 4 * middle);
+        int comparison = compareName(record + 2, name);
+        if (comparison < 0) {
+          low = middle + 1;
+        } else if (comparison > 0) {
+          high = middle - 1;
+        } else {
+          int entryStart = record + 4 + length(record + 2);
+          return Optional.of(
+              new Entry(jar, string(entryStart + 2, length(entryStart)), unsigned(record)));
+        }
+      }
+      return Optional.empty();
+    }
+
+    private int compareName(int position, byte[] name) {
+      int length = length(position);
+      for (int i = 0; i < Math.min(length, name.length); i++) {
+        int difference = (buffer.get(position + 2 + i) & 0xFF) - (name[i] & 0xFF);
+        if (difference != 0) {
+          return difference;
+        }
+      }
+      return length - name.length;
+    }
+
+    private int length(int position) {
+      return unsigned(position);
+    }
+
+    private int unsigned(int position) {
+      return buffer.getShort(position) & 0xFFFF;
+    }
+
+    private String string(int position, int length) {
+      byte[] bytes = new byte[length];
+      for (int i = 0; i < length; i++) {
+        bytes[i] = buffer.get(position + i);
+      }
+      return new String(bytes, UTF_8);
+    }
+  }
+}
@@ -1,82 +1,84 @@
 package pl.matsuo.interfacer.core;
 
-import static java.util.Collections.emptyList;
 import static pl.matsuo.core.util.collection.CollectionUtil.filterMap;
 import static pl.matsuo.core.util.collection.CollectionUtil.map;
 
-import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
 import java.io.File;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
 import java.util.List;
 import lombok.extern.slf4j.Slf4j;
-import org.reflections.Reflections;
-import org.reflections.scanners.SubTypesScanner;
-import org.reflections.util.ClasspathHelper;
-import org.reflections.util.ConfigurationBuilder;
-import org.reflections.util.FilterBuilder;
 import pl.matsuo.interfacer.model.ifc.ClassIfcResolve;
 import pl.matsuo.interfacer.model.ifc.IfcResolve;
+import pl.matsuo.interfacer.model.ref.TypeResolutionCache;
 
 /** Implements scanning classpath for interfaces that should be used during interface adding. */
 @Slf4j
 public class ClasspathInterfacesScanner {
 
   /**
-   * Use {@link Reflections} to scan for all interfaces in specified package <code>interfacePackage
-   * </code> and create {@link IfcResolve} instances for every one of them.
+   * Scan <code>classpathElements</code> for all interfaces in specified package <code>
+   * interfacePackage</code> and create {@link IfcResolve} instances for every one of them.
    */
   public List<IfcResolve> scanInterfacesFromClasspath(
-      ClassLoader classLoader, String interfacePackage, TypeSolver typeSolver) {
-    if (interfacePackage == null) {
-      return emptyList();
-    }
-
-    String[] interfacePackages = interfacePackage.split(",");
-    Reflections reflections = createReflections(classLoader, interfacePackages);
+      List<String> classpathElements,
+      ClassLoader classLoader,
+      String interfacePackage,
+      TypeResolutionCache typeResolutionCache) {
+    return filterMap(
+        scanClasses(classpathElements, classLoader, interfacePackage, ParallelMapper.SEQUENTIAL),
+        type -> processClassFromClasspath(type, typeResolutionCache));
+  }
 
+  /**
+   * Find interfaces in specified package <code>interfacePackage</code> with {@link
+   * ClassFileScanner} and load them with <code>classLoader</code>, without initialization. Found
+   * interfaces, together with types they reference, are loaded to be described with reflection;
+   * other classes of the package are not loaded.
+   */
+  public List<Class<?>> scanClasses(
+      List<String> classpathElements,
+      ClassLoader classLoader,
+      String interfacePackage,
+      ParallelMapper parallelMapper) {
     return filterMap(
-        reflections.getSubTypesOf(Object.class),
-        type -> processClassFromClasspath(type, typeSolver));
+        new ClassFileScanner(parallelMapper)
+            .scanInterfaceNames(classpathElements, interfacePackage),
+        name -> loadClass(classLoader, name));
   }
 
-  /** Create {@link IfcResolve} for <code>type</code> if it is representing interface. */
-  public IfcResolve processClassFromClasspath(Class<?> type, TypeSolver typeSolver) {
-    log.info("Processing classpath type: " + type.getCanonicalName());
-    if (type.isInterface()) {
-      log.info("Adding interface: " + type.getName());
-      return new ClassIfcResolve(type, typeSolver);
+  private Class<?> loadClass(ClassLoader classLoader, String name) {
+    try {
+      return Class.forName(name, false, classLoader);
+    } catch (ClassNotFoundException | LinkageError e) {
+      log.warn("Cannot load interface " + name, e);
+      return null;
     }
-
-    return null;
   }
 
-  /** Create {@link Reflections} scanner. */
-  public Reflections createReflections(ClassLoader classLoader, String[] interfacePackages) {
-    FilterBuilder filterBuilder = new FilterBuilder();
-    for (String interfacePackage : interfacePackages) {
-      filterBuilder = filterBuilder.includePackage(interfacePackage);
+  /** Create {@link IfcResolve} for <code>type</code> if it is representing interface. */
+  public IfcResolve processClassFromClasspath(
+      Class<?> type, TypeResolutionCache typeResolutionCache) {
+    log.debug("Processing classpath type: " + type.getCanonicalName());
+    if (type.isInterface()) {
+      log.debug("Adding interface: " + type.getName());
+      return new ClassIfcResolve(type, typeResolutionCache);
     }
 
-    return new Reflections(
-        new ConfigurationBuilder()
-            .addClassLoaders(classLoader)
-            .setUrls(ClasspathHelper.forClassLoader(classLoader))
-            .setScanners(new SubTypesScanner(false))
-            .filterInputsBy(filterBuilder));
+    return null;
   }
 
   /** Create classloader based on <code>compileClasspathElements</code> urls. */
-  public static ClassLoader getCompileClassLoader(List<String> compileClasspathElements) {
-    List<URL> jars = map(compileClasspathElements, ClasspathInterfacesScanner::toUrl);
+  public URLClassLoader getCompileClassLoader(List<String> compileClasspathElements) {
+    List<URL> jars = map(compileClasspathElements, this::toUrl);
     jars.forEach(element -> log.info("Compile classloader entry: " + element));
 
     return new URLClassLoader(jars.toArray(new URL[0]));
   }
 
   /** Create url from file name. */
-  public static URL toUrl(String name) {
+  public URL toUrl(String name) {
     try {
       return new File(name).toURI().toURL();
     } catch (MalformedURLException e) {
@@ -0,0 +1,237 @@
+package pl.matsuo.interfacer.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+import static pl.matsuo.core.util.collection.CollectionUtil.filter;
+import static pl.matsuo.core.util.collection.CollectionUtil.map;
+import static pl.matsuo.interfacer.core.RunReport.Counter.FILES_PARSED;
+import static pl.matsuo.interfacer.core.RunReport.Counter.SCHEMA_STUBS;
+import static pl.matsuo.interfacer.core.RunReport.Phase.PARSE;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Single store of parsed compilation units. Every source file is parsed once, even if it is
+ * reachable from more than one source root. The same asts are used for interface scanning, class
+ * modification, saving and symbol resolution (see {@link CompilationUnitTypeSolver}).
+ *
+ * <p>Files from roots registered with {@link #addLazyRoot(Path, ParserConfiguration)} are parsed
+ * only when type declared in them is requested.
+ *
+ * <p>When <code>avroSchemas</code> is set, classes generated by Avro are represented by stubs
+ * created from their schemas by {@link AvroSchemaStubs}, with storage set to the original file.
+ */
+@Slf4j
+public class CompilationUnitStore {
+
+  final Map<Path, CompilationUnit> compilationUnits = new ConcurrentSkipListMap<>();
+  final Map<String, TypeDeclaration<?>> types = new ConcurrentHashMap<>();
+  final Map<Path, ParserConfiguration> lazyRoots = new LinkedHashMap<>();
+  final Set<String> missingTypes = new HashSet<>();
+  final RunReport report;
+  final boolean avroSchemas;
+
+  public CompilationUnitStore() {
+    this(new RunReport());
+  }
+
+  /** Create store counting parsed files and parsing time in <code>report</code>. */
+  public CompilationUnitStore(RunReport report) {
+    this(report, false);
+  }
+
+  /** Create store parsing Avro generated classes as stubs if <code>avroSchemas</code> is set. */
+  public CompilationUnitStore(RunReport report, boolean avroSchemas) {
+    this.report = report;
+    this.avroSchemas = avroSchemas;
+  }
+
+  /**
+   * Parse all java files found under <code>root</code> that were not parsed yet. Files with parse
+   * errors are logged and skipped.
+   */
+  public void parse(Path root, ParserConfiguration parserConfiguration) throws IOException {
+    parse(root, parserConfiguration, ParallelMapper.SEQUENTIAL);
+  }
+
+  /**
+   * Parse all java files found under <code>root</code> that were not parsed yet using <code>
+   * parallelMapper</code>. Parsed files are registered in the store in the order of their paths.
+   */
+  public void parse(
+      Path root, ParserConfiguration parserConfiguration, ParallelMapper parallelMapper)
+      throws IOException {
+    parse(javaFiles(root), parserConfiguration, parallelMapper);
+  }
+
+  /** Parse <code>files</code> that were not parsed yet using <code>parallelMapper</code>. */
+  public void parse(
+      List<Path> files, ParserConfiguration parserConfiguration, ParallelMapper parallelMapper) {
+    List<Path> paths =
+        filter(
+            map(files, path -> path.toAbsolutePath().normalize()),
+            path -> !compilationUnits.containsKey(path));
+
+    // JavaParser instances are not thread safe
+    ThreadLocal<JavaParser> javaParser =
+        ThreadLocal.withInitial(() -> new JavaParser(parserConfiguration));
+    List<ParseResult<CompilationUnit>> parseResults =
+        report.time(
+            PARSE, () -> parallelMapper.map(paths, path -> parseFile(javaParser.get(), path)));
+    report.add(FILES_PARSED, paths.size());
+
+    for (int i = 0; i < paths.size(); i++) {
+      add(paths.get(i), parseResults.get(i));
+    }
+  }
+
+  private ParseResult<CompilationUnit> parseFile(JavaParser javaParser, Path path) {
+    try {
+      if (avroSchemas) {
+        String source = new String(Files.readAllBytes(path), UTF_8);
+        String fileName = path.getFileName().toString();
+        Optional<String> stub =
+            AvroSchemaStubs.stub(
+                source, fileName.substring(0, fileName.length() - ".java".length()));
+        if (stub.isPresent()) {
+          report.increment(SCHEMA_STUBS);
+          ParseResult<CompilationUnit> parseResult = javaParser.parse(stub.get());
+          parseResult.getResult().ifPresent(compilationUnit -> compilationUnit.setStorage(path));
+          return parseResult;
+        }
+      }
+      return javaParser.parse(path);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+  }
+
+  /** Parse files located under <code>root</code> when types declared in them are requested. */
+  public synchronized void addLazyRoot(Path root, ParserConfiguration parserConfiguration) {
+    lazyRoots.put(root.toAbsolutePath().normalize(), parserConfiguration);
+    missingTypes.clear();
+  }
+
+  /** Register parsed file in the store. */
+  public void add(Path path, ParseResult<CompilationUnit> parseResult) {
+    if (parseResult.isSuccessful() && parseResult.getResult().isPresent()) {
+      CompilationUnit compilationUnit = parseResult.getResult().get();
+      compilationUnits.put(path.toAbsolutePath().normalize(), compilationUnit);
+
+      for (TypeDeclaration<?> typeDeclaration : compilationUnit.findAll(TypeDeclaration.class)) {
+        typeDeclaration.getFullyQualifiedName().ifPresent(name -> types.put(name, typeDeclaration));
+      }
+    } else {
+      log.warn("Parse failure for " + parseResult.getProblems());
+    }
+  }
+
+  /**
+   * Drop compilation units of files located under <code>root</code> together with types declared in
+   * them, so their asts can be garbage collected. Files from lazy roots are parsed again when their
+   * types are requested.
+   */
+  public synchronized void evict(Path root) {
+    Path normalizedRoot = root.toAbsolutePath().normalize();
+    compilationUnits.keySet().removeIf(path -> path.startsWith(normalizedRoot));
+    types
+        .values()
+        .removeIf(
+            type ->
+                type.findCompilationUnit()
+                    .flatMap(CompilationUnit::getStorage)
+                    .map(storage -> storage.getPath().toAbsolutePath().startsWith(normalizedRoot))
+                    .orElse(false));
+    missingTypes.clear();
+  }
+
+  /** All compilation units stored for files located under <code>root</code>. */
+  public List<CompilationUnit> getCompilationUnits(Path root) {
+    Path normalizedRoot = root.toAbsolutePath().normalize();
+    List<CompilationUnit> result = new ArrayList<>();
+    compilationUnits.forEach(
+        (path, compilationUnit) -> {
+          if (path.startsWith(normalizedRoot)) {
+            result.add(compilationUnit);
+          }
+        });
+    return result;
+  }
+
+  /** Compilation unit parsed from <code>file</code>, if it was parsed successfully. */
+  public Optional<CompilationUnit> getCompilationUnit(Path file) {
+    return Optional.ofNullable(compilationUnits.get(file.toAbsolutePath().normalize()));
+  }
+
+  /** Declaration of type with <code>qualifiedName</code>, if it is declared in stored sources. */
+  public Optional<TypeDeclaration<?>> getType(String qualifiedName) {
+    TypeDeclaration<?> type = types.get(qualifiedName);
+    return type != null ? Optional.of(type) : loadType(qualifiedName);
+  }
+
+  /**
+   * Parse file that should contain type <code>qualifiedName</code> according to java naming
+   * conventions, from one of lazy roots. Nested types are searched in files of enclosing types.
+   */
+  private synchronized Optional<TypeDeclaration<?>> loadType(String qualifiedName) {
+    if (lazyRoots.isEmpty() || missingTypes.contains(qualifiedName)) {
+      return Optional.ofNullable(types.get(qualifiedName));
+    }
+
+    String[] segments = qualifiedName.split("\\.");
+    for (int length = segments.length; length > 0 && !types.containsKey(qualifiedName); length--) {
+      String relativePath = String.join("/", Arrays.copyOf(segments, length)) + ".java";
+      lazyRoots.forEach(
+          (root, parserConfiguration) -> {
+            Path path = root.resolve(relativePath).normalize();
+            if (!compilationUnits.containsKey(path) && Files.isRegularFile(path)) {
+              add(
+                  path,
+                  report.time(PARSE, () -> parseFile(new JavaParser(parserConfiguration), path)));
+              report.increment(FILES_PARSED);
+            }
+          });
+    }
+
+    TypeDeclaration<?> type = types.get(qualifiedName);
+    if (type == null) {
+      missingTypes.add(qualifiedName);
+    }
+    return Optional.ofNullable(type);
+  }
+
+  /** All java files located under <code>root</code>, sorted by path. */
+  public static List<Path> javaFiles(Path root) throws IOException {
+    if (!Files.isDirectory(root)) {
+      return new ArrayList<>();
+    }
+
+    try (Stream<Path> paths = Files.walk(root)) {
+      return paths
+          .filter(Files::isRegularFile)
+          .filter(path -> path.toString().endsWith(".java"))
+          .map(path -> path.toAbsolutePath().normalize())
+          .sorted()
+          .collect(toList());
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package pl.matsuo.interfacer.core;
+
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFactory;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * {@link TypeSolver} resolving types declared in compilation units from {@link
+ * CompilationUnitStore}. Contrary to {@link
+ * com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver} it does not parse
+ * files on its own, so resolved declarations always reflect current state of modified asts.
+ */
+@RequiredArgsConstructor
+public class CompilationUnitTypeSolver implements TypeSolver {
+
+  final CompilationUnitStore compilationUnitStore;
+  TypeSolver parent;
+
+  @Override
+  public TypeSolver getParent() {
+    return parent;
+  }
+
+  @Override
+  public void setParent(TypeSolver parent) {
+    this.parent = parent;
+  }
+
+  @Override
+  public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+    return compilationUnitStore
+        .getType(name)
+        .map(
+            type ->
+                SymbolReference
+                    .<ResolvedReferenceTypeDeclaration, ResolvedReferenceTypeDeclaration>solved(
+                        JavaParserFactory.toTypeDeclaration(type, getRoot())))
+        .orElseGet(() -> SymbolReference.unsolved(ResolvedReferenceTypeDeclaration.class));
+  }
+}
@@ -0,0 +1,307 @@
+package pl.matsuo.interfacer.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static java.util.Comparator.comparing;
+import static java.util.stream.Collectors.joining;
+import static java.util.stream.Collectors.toList;
+
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.Position;
+import com.github.javaparser.Range;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.DataKey;
+import com.github.javaparser.ast.Node;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.Value;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Writes back compilation units containing modified classes. Other files are not touched, so they
+ * keep their content and modification time. Every file is written to temporary file in the same
+ * directory and then renamed over the original, so readers never see partially written source.
+ *
+ * <p>Added interfaces are spliced into the original source at the end of class header: after the
+ * last implemented type, or before the opening brace of class body. Rest of the file is copied
+ * unchanged, so cost of writing does not depend on file size and formatting of generated code is
+ * kept. Compilation unit is pretty printed only if header positions are not known.
+ */
+@Slf4j
+public class CompilationUnitWriter {
+
+  /** Marks implemented types added by {@link InterfacesAdder}. */
+  public static final DataKey<Boolean> ADDED_TYPE = new DataKey<Boolean>() {};
+
+  /** Text to insert into original source before <code>position</code>. */
+  @Value
+  static class Insertion {
+    Position position;
+    String text;
+  }
+
+  /** Write compilation units declaring <code>modifiedDeclarations</code>, each one once. */
+  public void writeAll(List<ClassOrInterfaceDeclaration> modifiedDeclarations) {
+    Map<CompilationUnit, List<ClassOrInterfaceDeclaration>> declarationsByUnit =
+        new LinkedHashMap<>();
+    for (ClassOrInterfaceDeclaration declaration : modifiedDeclarations) {
+      declaration
+          .findCompilationUnit()
+          .ifPresent(
+              compilationUnit -> {
+                List<ClassOrInterfaceDeclaration> declarations =
+                    declarationsByUnit.computeIfAbsent(compilationUnit, cu -> new ArrayList<>());
+                if (declarations.stream().noneMatch(d -> d == declaration)) {
+                  declarations.add(declaration);
+                }
+              });
+    }
+
+    log.info("Saving " + declarationsByUnit.size() + " modified files");
+    declarationsByUnit.forEach(this::write);
+  }
+
+  /** Write <code>compilationUnit</code> with interfaces added to <code>declarations</code>. */
+  public void write(
+      CompilationUnit compilationUnit, List<ClassOrInterfaceDeclaration> declarations) {
+    Path file =
+        compilationUnit
+            .getStorage()
+            .orElseThrow(() -> new IllegalStateException("Compilation unit without file"))
+            .getPath();
+
+    List<Insertion> insertions = new ArrayList<>();
+    for (ClassOrInterfaceDeclaration declaration : declarations) {
+      Optional<Insertion> insertion = insertion(declaration);
+      if (!insertion.isPresent()) {
+        log.warn("No source positions for " + declaration.getNameAsString() + ", printing " + file);
+        writeAtomically(file, compilationUnit.toString().getBytes(UTF_8));
+        return;
+      }
+      insertions.add(insertion.get());
+    }
+
+    splice(file, insertions);
+  }
+
+  /**
+   * Insertion adding types marked with {@link #ADDED_TYPE} to header of <code>declaration</code>,
+   * empty if there are no such types or header positions are not known.
+   */
+  static Optional<Insertion> insertion(ClassOrInterfaceDeclaration declaration) {
+    List<ClassOrInterfaceType> addedTypes =
+        declaration.getImplementedTypes().stream()
+            .filter(type -> type.containsData(ADDED_TYPE))
+            .collect(toList());
+    List<ClassOrInterfaceType> originalTypes =
+        declaration.getImplementedTypes().stream()
+            .filter(type -> !type.containsData(ADDED_TYPE))
+            .collect(toList());
+    if (addedTypes.isEmpty()) {
+      return Optional.empty();
+    }
+    String typeList = addedTypes.stream().map(Node::toString).collect(joining(", "));
+
+    if (!originalTypes.isEmpty()) {
+      return originalTypes
+          .get(originalTypes.size() - 1)
+          .getRange()
+          .map(range -> new Insertion(range.end.right(1), ", " + typeList));
+    }
+
+    // body starts with the first brace after name, type parameters and extended types
+    List<Node> header = new ArrayList<>();
+    header.add(declaration.getName());
+    header.addAll(declaration.getTypeParameters());
+    header.addAll(declaration.getExtendedTypes());
+    Optional<Position> headerEnd = Optional.empty();
+    for (Node node : header) {
+      if (!node.getRange().isPresent()) {
+        return Optional.empty();
+      }
+      Position end = node.getRange().get().end;
+      headerEnd = Optional.of(headerEnd.filter(end::isBefore).orElse(end));
+    }
+
+    Position after = headerEnd.get();
+    return declaration
+        .getTokenRange()
+        .flatMap(
+            tokenRange -> {
+              JavaToken previous = null;
+              for (JavaToken token : tokenRange) {
+                Optional<Range> range = token.getRange();
+                if (range.isPresent()
+                    && range.get().begin.isAfter(after)
+                    && token.getText().equals("{")) {
+                  boolean space = previous != null && previous.getCategory().isWhitespace();
+                  return Optional.of(
+                      new Insertion(
+                          range.get().begin, (space ? "" : " ") + "implements " + typeList + " "));
+                }
+                previous = token;
+              }
+              return Optional.empty();
+            });
+  }
+
+  /** Copy <code>file</code> inserting texts at given positions. */
+  static void splice(Path file, List<Insertion> insertions) {
+    List<Insertion> sorted = new ArrayList<>(insertions);
+    sorted.sort(comparing(Insertion::getPosition));
+
+    try {
+      List<Long> offsets = byteOffsets(file, positions(sorted));
+      writeAtomically(
+          file,
+          temporaryFile -> {
+            try (FileChannel in = FileChannel.open(file, READ);
+                FileChannel out = FileChannel.open(temporaryFile, WRITE)) {
+              long position = 0;
+              for (int i = 0; i < sorted.size(); i++) {
+                transfer(in, position, offsets.get(i) - position, out);
+                out.write(ByteBuffer.wrap(sorted.get(i).getText().getBytes(UTF_8)));
+                position = offsets.get(i);
+              }
+              transfer(in, position, in.size() - position, out);
+            }
+          });
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error writing " + file, e);
+    }
+  }
+
+  private static List<Position> positions(List<Insertion> insertions) {
+    return insertions.stream().map(Insertion::getPosition).collect(toList());
+  }
+
+  private static void transfer(FileChannel in, long position, long count, FileChannel out)
+      throws IOException {
+    while (count > 0) {
+      long transferred = in.transferTo(position, count, out);
+      position += transferred;
+      count -= transferred;
+    }
+  }
+
+  /**
+   * Byte offsets in UTF-8 encoded <code>file</code> of sorted parser <code>positions</code>. Lines
+   * are terminated like in JavaParser (<code>\n</code>, <code>\r\n</code> or <code>\r</code>),
+   * columns count UTF-16 chars. File is read once, up to the last position.
+   */
+  static List<Long> byteOffsets(Path file, List<Position> positions) throws IOException {
+    List<Long> result = new ArrayList<>();
+    try (PushbackInputStream input =
+        new PushbackInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+      int line = Position.FIRST_LINE;
+      int column = Position.FIRST_COLUMN;
+      long offset = 0;
+
+      for (Position position : positions) {
+        while (line < position.line || (line == position.line && column < position.column)) {
+          int b = read(input, file);
+          if (b == '\n' || b == '\r') {
+            if (line == position.line) {
+              throw new IOException("Column " + position + " after end of line in " + file);
+            }
+            offset++;
+            if (b == '\r') {
+              int next = input.read();
+              if (next == '\n') {
+                offset++;
+              } else if (next >= 0) {
+                input.unread(next);
+              }
+            }
+            line++;
+            column = Position.FIRST_COLUMN;
+          } else {
+            int length = b < 0x80 ? 1 : b < 0xE0 ? 2 : b < 0xF0 ? 3 : 4;
+            for (int i = 1; i < length; i++) {
+              read(input, file);
+            }
+            offset += length;
+            // supplementary characters are surrogate pairs in parser columns
+            column += length == 4 ? 2 : 1;
+          }
+        }
+        result.add(offset);
+      }
+    }
+
+    return result;
+  }
+
+  private static int read(InputStream input, Path file) throws IOException {
+    int b = input.read();
+    if (b < 0) {
+      throw new IOException("Position after end of file " + file);
+    }
+    return b;
+  }
+
+  /** Writes content of file to temporary file. */
+  interface ContentWriter {
+    void write(Path temporaryFile) throws IOException;
+  }
+
+  /** Replace content of <code>file</code> with <code>content</code> using temporary file. */
+  public static void writeAtomically(Path file, byte[] content) {
+    writeAtomically(file, temporaryFile -> Files.write(temporaryFile, content));
+  }
+
+  /**
+   * Replace content of <code>file</code> with content written by <code>contentWriter</code>.
+   * Temporary file is created with owner only permissions, so permissions of replaced file are
+   * copied to it where file system supports them.
+   */
+  static void writeAtomically(Path file, ContentWriter contentWriter) {
+    try {
+      Path temporaryFile =
+          Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+      try {
+        contentWriter.write(temporaryFile);
+        copyPermissions(file, temporaryFile);
+        move(temporaryFile, file);
+      } finally {
+        Files.deleteIfExists(temporaryFile);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error writing " + file, e);
+    }
+  }
+
+  private static void copyPermissions(Path source, Path target) throws IOException {
+    if (Files.exists(source)
+        && Files.getFileStore(source).supportsFileAttributeView(PosixFileAttributeView.class)) {
+      Files.setPosixFilePermissions(target, Files.getPosixFilePermissions(source));
+    }
+  }
+
+  private static void move(Path source, Path target) throws IOException {
+    try {
+      Files.move(source, target, ATOMIC_MOVE, REPLACE_EXISTING);
+    } catch (AtomicMoveNotSupportedException e) {
+      Files.move(source, target, REPLACE_EXISTING);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package pl.matsuo.interfacer.core;
+
+import com.github.javaparser.symbolsolver.cache.Cache;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link Cache} backed by {@link ConcurrentHashMap}, so type solver using it may resolve types from
+ * many threads. Entries are kept until removed; JavaParser's <code>InMemoryCache</code> is backed
+ * by plain <code>WeakHashMap</code> and must not be shared between threads.
+ */
+class ConcurrentCache<K, V> implements Cache<K, V> {
+
+  final Map<K, V> values = new ConcurrentHashMap<>();
+
+  @Override
+  public void put(K key, V value) {
+    values.put(key, value);
+  }
+
+  @Override
+  public Optional<V> get(K key) {
+    return Optional.ofNullable(values.get(key));
+  }
+
+  @Override
+  public void remove(K key) {
+    values.remove(key);
+  }
+
+  @Override
+  public void removeAll() {
+    values.clear();
+  }
+
+  @Override
+  public boolean contains(K key) {
+    return values.containsKey(key);
+  }
+
+  @Override
+  public long size() {
+    return values.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return values.isEmpty();
+  }
+}
@@ -0,0 +1,169 @@
+package pl.matsuo.interfacer.core;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.ImportDeclaration;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import com.github.javaparser.ast.body.Parameter;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reverse dependency index of classes processed by {@link InterfacesAdder}. For every processed
+ * class it keeps the names of types that the class refers to in its methods' return or parameter
+ * types and in its extended and implemented types, and separately the names of its supertypes. When
+ * a class gets new interface, only classes depending on it or on its subtypes may start matching
+ * new interfaces in the next pass.
+ *
+ * <p>References are found by name, without using symbol solver, so the index may contain more
+ * dependents than necessary, but never less. Classes may be added either from parsed asts or from
+ * previously recorded names (see {@link IncrementalManifest}).
+ */
+public class DependencyIndex {
+
+  final Map<String, Set<String>> referencedTypes = new LinkedHashMap<>();
+  final Map<String, Set<String>> supertypes = new LinkedHashMap<>();
+
+  public DependencyIndex() {}
+
+  public DependencyIndex(Collection<CompilationUnit> compilationUnits) {
+    compilationUnits.forEach(this::add);
+  }
+
+  /** Add class declared in <code>compilationUnit</code> to the index. */
+  public void add(CompilationUnit compilationUnit) {
+    InterfacesAdder.classDeclaration(compilationUnit).ifPresent(this::add);
+  }
+
+  /** Add class <code>declaration</code> to the index. */
+  public void add(ClassOrInterfaceDeclaration declaration) {
+    declaration
+        .getFullyQualifiedName()
+        .ifPresent(name -> add(name, referencedTypes(declaration), supertypes(declaration)));
+  }
+
+  /**
+   * Add class <code>typeName</code> referring to <code>typeNames</code> and extending or
+   * implementing <code>supertypeNames</code>.
+   */
+  public void add(String typeName, Set<String> typeNames, Set<String> supertypeNames) {
+    referencedTypes.put(typeName, typeNames);
+    supertypes.put(typeName, supertypeNames);
+  }
+
+  /** Names of all indexed classes in the order of adding. */
+  public List<String> getTypeNames() {
+    return new ArrayList<>(referencedTypes.keySet());
+  }
+
+  /** Names of types referred to by class <code>typeName</code>. */
+  public Set<String> getReferencedTypes(String typeName) {
+    return referencedTypes.getOrDefault(typeName, new HashSet<>());
+  }
+
+  /** Names of types extended or implemented by class <code>typeName</code>. */
+  public Set<String> getSupertypes(String typeName) {
+    return supertypes.getOrDefault(typeName, new HashSet<>());
+  }
+
+  /**
+   * Names of classes that refer to any of <code>modified</code> types or their indexed subtypes, in
+   * the order of adding. Subtypes of a modified type become assignable to its new interface too.
+   */
+  public List<String> dependentsOf(Collection<String> modified) {
+    Set<String> modifiedNames = subtypesClosure(modified);
+    List<String> result = new ArrayList<>();
+    referencedTypes.forEach(
+        (name, references) -> {
+          for (String reference : references) {
+            if (modifiedNames.contains(reference)) {
+              result.add(name);
+              return;
+            }
+          }
+        });
+
+    return result;
+  }
+
+  /** <code>types</code> with all indexed classes extending or implementing them, transitively. */
+  Set<String> subtypesClosure(Collection<String> types) {
+    Set<String> result = new LinkedHashSet<>(types);
+    boolean added = true;
+    while (added) {
+      added = false;
+      for (Map.Entry<String, Set<String>> entry : supertypes.entrySet()) {
+        if (!result.contains(entry.getKey())
+            && entry.getValue().stream().anyMatch(result::contains)) {
+          result.add(entry.getKey());
+          added = true;
+        }
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Candidate qualified names of all types used in <code>declaration</code> methods' signatures and
+   * in its extended and implemented types.
+   */
+  public static Set<String> referencedTypes(ClassOrInterfaceDeclaration declaration) {
+    CompilationUnit compilationUnit = declaration.findCompilationUnit().orElse(null);
+    Set<String> result = supertypes(declaration);
+
+    for (MethodDeclaration method : declaration.getMethods()) {
+      addCandidateNames(compilationUnit, method.getType(), result);
+      for (Parameter parameter : method.getParameters()) {
+        addCandidateNames(compilationUnit, parameter.getType(), result);
+      }
+    }
+
+    return result;
+  }
+
+  /** Candidate qualified names of types extended or implemented by <code>declaration</code>. */
+  public static Set<String> supertypes(ClassOrInterfaceDeclaration declaration) {
+    CompilationUnit compilationUnit = declaration.findCompilationUnit().orElse(null);
+    Set<String> result = new LinkedHashSet<>();
+    for (ClassOrInterfaceType type : declaration.getExtendedTypes()) {
+      addCandidateNames(compilationUnit, type, result);
+    }
+    for (ClassOrInterfaceType type : declaration.getImplementedTypes()) {
+      addCandidateNames(compilationUnit, type, result);
+    }
+    return result;
+  }
+
+  private static void addCandidateNames(
+      CompilationUnit compilationUnit, Type type, Set<String> result) {
+    for (ClassOrInterfaceType classType : type.findAll(ClassOrInterfaceType.class)) {
+      String name = classType.getNameWithScope();
+      result.add(name);
+
+      if (compilationUnit == null || classType.getScope().isPresent()) {
+        continue;
+      }
+
+      result.add(
+          compilationUnit
+              .getPackageDeclaration()
+              .map(packageDeclaration -> packageDeclaration.getNameAsString() + "." + name)
+              .orElse(name));
+      for (ImportDeclaration importDeclaration : compilationUnit.getImports()) {
+        if (importDeclaration.isAsterisk()) {
+          result.add(importDeclaration.getNameAsString() + "." + name);
+        } else if (importDeclaration.getName().getIdentifier().equals(name)) {
+          result.add(importDeclaration.getNameAsString());
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,25 @@
+package pl.matsuo.interfacer.core;
+
+/**
+ * Availability of Java Flight Recorder. Event classes ({@link PassEvent}, {@link PhaseEvent},
+ * {@link ClassMatchingEvent}, {@link SlowMatchEvent}) extend <code>jdk.jfr.Event</code>, which is
+ * missing in old java 8 runtimes, so they are only created when {@link #AVAILABLE} is true.
+ *
+ * <p>When no recording is running, created events are disabled and their <code>commit</code> does
+ * nothing, so instrumentation costs about an allocation, usually removed by the JIT.
+ */
+final class FlightRecorderSupport {
+
+  static final boolean AVAILABLE = isAvailable();
+
+  private FlightRecorderSupport() {}
+
+  private static boolean isAvailable() {
+    try {
+      Class.forName("jdk.jfr.Event", false, FlightRecorderSupport.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+}
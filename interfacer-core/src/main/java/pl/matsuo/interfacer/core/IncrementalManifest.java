@@ -0,0 +1,344 @@
+package pl.matsuo.interfacer.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.stream.Collectors.toList;
+
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.stream.Stream;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
+import pl.matsuo.interfacer.model.ifc.IfcResolve;
+import pl.matsuo.interfacer.model.ref.MethodReference;
+
+/**
+ * Record of previous interfacer run over <code>scanDirectory</code>, stored on disk between builds.
+ * For every processed file it keeps content hash before and after processing, interfaces added to
+ * the class and names needed to rebuild {@link DependencyIndex} without parsing the file. For the
+ * interface catalog it keeps fingerprint of all inputs and fingerprint of every interface.
+ *
+ * <p>Copies of modified files are kept next to the manifest, so a file regenerated with the same
+ * content as before may be restored without parsing it.
+ */
+@Slf4j
+public class IncrementalManifest {
+
+  static final String HEADER = "# interfacer manifest v2";
+
+  @Getter @Setter String catalogFingerprint = "";
+  final Map<String, InterfaceEntry> interfaces = new TreeMap<>();
+  final Map<String, FileEntry> files = new TreeMap<>();
+
+  /** Recorded state of single interface from the catalog. */
+  @Data
+  @AllArgsConstructor
+  public static class InterfaceEntry {
+    String name;
+    String fingerprint;
+    Set<String> methodKeys;
+  }
+
+  /** Recorded state of single file from <code>scanDirectory</code>. */
+  @Data
+  @AllArgsConstructor
+  public static class FileEntry {
+    String path;
+    String hashBefore;
+    String hashAfter;
+    Set<String> interfaces;
+    String typeName;
+    Set<String> referencedTypes;
+    Set<String> methodKeys;
+    Set<String> supertypes;
+  }
+
+  /** Load manifest from <code>manifestFile</code>. Missing or unreadable file gives empty one. */
+  public static IncrementalManifest load(File manifestFile) {
+    IncrementalManifest manifest = new IncrementalManifest();
+    if (manifestFile == null || !manifestFile.isFile()) {
+      return manifest;
+    }
+
+    try {
+      List<String> lines = Files.readAllLines(manifestFile.toPath(), UTF_8);
+      if (lines.isEmpty() || !lines.get(0).equals(HEADER)) {
+        log.warn("Ignoring manifest in unknown format: " + manifestFile);
+        return manifest;
+      }
+
+      for (String line : lines.subList(1, lines.size())) {
+        String[] fields = line.split("\t", -1);
+        if (fields[0].equals("catalog")) {
+          manifest.catalogFingerprint = fields[1];
+        } else if (fields[0].equals("interface")) {
+          manifest.addInterface(new InterfaceEntry(fields[1], fields[2], toSet(fields[3])));
+        } else if (fields[0].equals("file")) {
+          manifest.addFile(
+              new FileEntry(
+                  fields[1],
+                  fields[2],
+                  fields[3],
+                  toSet(fields[4]),
+                  fields[5],
+                  toSet(fields[6]),
+                  toSet(fields[7]),
+                  toSet(fields[8])));
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      log.warn("Ignoring unreadable manifest: " + manifestFile, e);
+      return new IncrementalManifest();
+    }
+
+    return manifest;
+  }
+
+  /** Save manifest to <code>manifestFile</code> and remove stored copies no longer referenced. */
+  public void save(File manifestFile) {
+    try {
+      Files.createDirectories(manifestFile.getAbsoluteFile().getParentFile().toPath());
+      try (PrintWriter writer =
+          new PrintWriter(Files.newBufferedWriter(manifestFile.toPath(), UTF_8))) {
+        writer.println(HEADER);
+        writer.println("catalog\t" + catalogFingerprint);
+        interfaces
+            .values()
+            .forEach(
+                entry ->
+                    writer.println(
+                        join(
+                            "interface",
+                            entry.name,
+                            entry.fingerprint,
+                            String.join(",", entry.methodKeys))));
+        files
+            .values()
+            .forEach(
+                entry ->
+                    writer.println(
+                        join(
+                            "file",
+                            entry.path,
+                            entry.hashBefore,
+                            entry.hashAfter,
+                            String.join(",", entry.interfaces),
+                            entry.typeName,
+                            String.join(",", entry.referencedTypes),
+                            String.join(",", entry.methodKeys),
+                            String.join(",", entry.supertypes))));
+      }
+
+      removeUnusedOutputs(manifestFile);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Error writing manifest " + manifestFile, e);
+    }
+  }
+
+  public FileEntry getFile(String path) {
+    return files.get(path);
+  }
+
+  public void addFile(FileEntry entry) {
+    files.put(entry.path, entry);
+  }
+
+  public void addInterface(InterfaceEntry entry) {
+    interfaces.put(entry.name, entry);
+  }
+
+  /** Record current state of interface <code>ifc</code>. */
+  public void addInterface(IfcResolve ifc) {
+    addInterface(new InterfaceEntry(ifc.getName(), fingerprint(ifc), methodKeys(ifc)));
+  }
+
+  /**
+   * Relative paths of recorded files that may match differently with <code>ifcs</code> than with
+   * the recorded catalog. A file is affected if it declares methods with all keys of an added,
+   * changed or removed interface, or if it was given an interface that changed or was removed.
+   */
+  public Set<String> affectedFiles(List<IfcResolve> ifcs) {
+    Map<String, InterfaceEntry> current = new TreeMap<>();
+    ifcs.forEach(
+        ifc ->
+            current.put(
+                ifc.getName(),
+                new InterfaceEntry(ifc.getName(), fingerprint(ifc), methodKeys(ifc))));
+
+    Set<String> changedNames = new HashSet<>();
+    List<Set<String>> changedKeys = new ArrayList<>();
+    current.forEach(
+        (name, entry) -> {
+          InterfaceEntry recorded = interfaces.get(name);
+          if (recorded == null || !recorded.fingerprint.equals(entry.fingerprint)) {
+            changedNames.add(name);
+            changedKeys.add(entry.methodKeys);
+            if (recorded != null) {
+              changedKeys.add(recorded.methodKeys);
+            }
+          }
+        });
+    interfaces.forEach(
+        (name, recorded) -> {
+          if (!current.containsKey(name)) {
+            changedNames.add(name);
+            changedKeys.add(recorded.methodKeys);
+          }
+        });
+    // interfaces without methods never match any class
+    changedKeys.removeIf(Set::isEmpty);
+
+    Set<String> result = new TreeSet<>();
+    files.forEach(
+        (path, entry) -> {
+          boolean hadChangedInterface = entry.interfaces.stream().anyMatch(changedNames::contains);
+          boolean mayMatchChangedInterface =
+              changedKeys.stream().anyMatch(entry.methodKeys::containsAll);
+          if (hadChangedInterface || mayMatchChangedInterface) {
+            result.add(path);
+          }
+        });
+
+    log.info(
+        "Interfaces changed since last run: "
+            + changedNames
+            + ", affected files: "
+            + result.size());
+    return result;
+  }
+
+  /** Keep copy of processed <code>file</code> to restore it when it is regenerated unchanged. */
+  public void storeOutput(File manifestFile, Path file, String hash) throws IOException {
+    Path output = outputsDirectory(manifestFile).resolve(hash);
+    if (!Files.exists(output)) {
+      Files.createDirectories(output.getParent());
+      Files.copy(file, output);
+    }
+  }
+
+  /**
+   * Replace <code>file</code> with stored result of processing <code>entry</code>. Return false if
+   * there is no stored copy.
+   */
+  public boolean restoreOutput(File manifestFile, FileEntry entry, Path file) throws IOException {
+    Path output = outputsDirectory(manifestFile).resolve(entry.hashAfter);
+    if (!Files.isRegularFile(output) || !hash(output).equals(entry.hashAfter)) {
+      return false;
+    }
+
+    Files.copy(output, file, StandardCopyOption.REPLACE_EXISTING);
+    return true;
+  }
+
+  private void removeUnusedOutputs(File manifestFile) throws IOException {
+    Path outputs = outputsDirectory(manifestFile);
+    if (!Files.isDirectory(outputs)) {
+      return;
+    }
+
+    Set<String> used = new HashSet<>();
+    files.values().forEach(entry -> used.add(entry.hashAfter));
+    try (Stream<Path> paths = Files.list(outputs)) {
+      for (Path path : paths.collect(toList())) {
+        if (!used.contains(path.getFileName().toString())) {
+          Files.delete(path);
+        }
+      }
+    }
+  }
+
+  static Path outputsDirectory(File manifestFile) {
+    return manifestFile.getAbsoluteFile().getParentFile().toPath().resolve("files");
+  }
+
+  /** Hex encoded SHA-256 of <code>file</code> content. */
+  public static String hash(Path file) throws IOException {
+    return com.google.common.io.Files.asByteSource(file.toFile()).hash(Hashing.sha256()).toString();
+  }
+
+  /**
+   * Fingerprint of all inputs of the interface catalog: <code>interfacePackage</code>, size and
+   * modification time of classpath elements and content of <code>interfacesDirectory</code>
+   * sources. It is cheap to compute and allows to skip scanning for interfaces when nothing
+   * changed.
+   */
+  public static String catalogFingerprint(
+      String interfacePackage, Collection<String> classpathElements, File interfacesDirectory)
+      throws IOException {
+    Hasher hasher = Hashing.sha256().newHasher();
+    hasher.putString(String.valueOf(interfacePackage), UTF_8);
+
+    if (classpathElements != null) {
+      for (String element : classpathElements) {
+        Path root = new File(element).toPath();
+        if (!Files.exists(root)) {
+          continue;
+        }
+
+        try (Stream<Path> paths = Files.walk(root)) {
+          for (Path path : paths.filter(Files::isRegularFile).sorted().collect(toList())) {
+            hasher.putString(path.toString(), UTF_8);
+            hasher.putLong(Files.size(path));
+            hasher.putLong(Files.getLastModifiedTime(path).toMillis());
+          }
+        }
+      }
+    }
+
+    if (interfacesDirectory != null) {
+      for (Path path : CompilationUnitStore.javaFiles(interfacesDirectory.toPath())) {
+        hasher.putString(path.toString(), UTF_8);
+        hasher.putString(hash(path), UTF_8);
+      }
+    }
+
+    return hasher.hash().toString();
+  }
+
+  /** Fingerprint of interface <code>ifc</code> name and methods' signatures. */
+  public static String fingerprint(IfcResolve ifc) {
+    Set<String> signatures = new TreeSet<>();
+    for (MethodReference method : ifc.getMethods()) {
+      signatures.add(method.describe());
+    }
+
+    return Hashing.sha256()
+        .hashString(ifc.getName() + "\n" + String.join("\n", signatures), UTF_8)
+        .toString();
+  }
+
+  /** Method keys (see {@link InterfaceIndex#methodKey(String, int)}) of interface methods. */
+  public static Set<String> methodKeys(IfcResolve ifc) {
+    Set<String> result = new TreeSet<>();
+    for (MethodReference method : ifc.getMethods()) {
+      result.add(InterfaceIndex.methodKey(method.getName(), method.getParameterCount()));
+    }
+    return result;
+  }
+
+  private static String join(String... fields) {
+    return String.join("\t", fields);
+  }
+
+  private static Set<String> toSet(String value) {
+    return value.isEmpty() ? new TreeSet<>() : new TreeSet<>(Arrays.asList(value.split(",")));
+  }
+}
@@ -0,0 +1,305 @@
+package pl.matsuo.interfacer.core;
+
+import static pl.matsuo.interfacer.core.InterfacesAdder.classDeclaration;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import pl.matsuo.core.util.collection.Pair;
+import pl.matsuo.interfacer.core.IncrementalManifest.FileEntry;
+import pl.matsuo.interfacer.model.ifc.IfcResolve;
+
+/**
+ * Single incremental run of {@link InterfacesAdder} over <code>scanDirectory</code>. Compares files
+ * with {@link IncrementalManifest} of previous run, restores files regenerated with the same
+ * content and collects entries of processed files into manifest of this run.
+ *
+ * <p>Output of regenerated file is restored only if none of the types it depends on, directly or
+ * transitively, was changed, added or removed since previous run, and the interface catalog did not
+ * change. Otherwise interfaces added to it in previous run may be no longer valid and the file is
+ * processed again. File still holding output of previous run is processed again under the same
+ * conditions, after it is copied from <code>sourceDirectory</code>; without it the file is kept.
+ */
+@Slf4j
+class IncrementalRun {
+
+  final File manifestFile;
+  final IncrementalManifest previous;
+  @Getter final String catalogFingerprint;
+  @Getter final boolean catalogChanged;
+  final Path root;
+  /** All java files from <code>scanDirectory</code>. */
+  @Getter final List<Path> files;
+  /** New and changed files, and regenerated files that could not be restored. */
+  @Getter final List<Path> changedFiles = new ArrayList<>();
+
+  final Map<Path, String> hashesBefore = new HashMap<>();
+  /** Regenerated files replaced with output of previous run. */
+  final Set<Path> restoredFiles = new HashSet<>();
+  /** Entries of files processed in this run; file checked in many passes keeps all interfaces. */
+  final Map<Path, FileEntry> processedEntries = new LinkedHashMap<>();
+
+  IncrementalRun(
+      File manifestFile,
+      File scanDirectory,
+      File interfacesDirectory,
+      String interfacePackage,
+      List<String> compileClasspathElements,
+      File sourceDirectory)
+      throws IOException {
+    this.manifestFile = manifestFile;
+    previous = IncrementalManifest.load(manifestFile);
+    catalogFingerprint =
+        IncrementalManifest.catalogFingerprint(
+            interfacePackage, compileClasspathElements, interfacesDirectory);
+    catalogChanged = !catalogFingerprint.equals(previous.getCatalogFingerprint());
+    root = scanDirectory.toPath().toAbsolutePath().normalize();
+    files = CompilationUnitStore.javaFiles(root);
+
+    List<Path> regeneratedFiles = new ArrayList<>();
+    List<Path> outputFiles = new ArrayList<>();
+    Set<String> changedTypes = new HashSet<>();
+    Set<String> currentPaths = new HashSet<>();
+    for (Path file : files) {
+      String hash = IncrementalManifest.hash(file);
+      hashesBefore.put(file, hash);
+      String path = relativePath(root, file);
+      currentPaths.add(path);
+
+      FileEntry entry = previous.getFile(path);
+      if (entry == null) {
+        changedFiles.add(file);
+        changedTypes.add(typeName(path));
+      } else if (hash.equals(entry.getHashAfter())) {
+        log.debug("Unchanged since last run: " + file);
+        if (!hash.equals(entry.getHashBefore())) {
+          outputFiles.add(file);
+        }
+      } else if (hash.equals(entry.getHashBefore())) {
+        regeneratedFiles.add(file);
+      } else {
+        changedFiles.add(file);
+        changedTypes.add(entry.getTypeName());
+      }
+    }
+    previous.files.forEach(
+        (path, entry) -> {
+          if (!currentPaths.contains(path)) {
+            changedTypes.add(entry.getTypeName());
+          }
+        });
+
+    Set<String> affectedTypes = dependentsClosure(changedTypes);
+    if (sourceDirectory != null) {
+      for (Path file : outputFiles) {
+        FileEntry entry = previous.getFile(relativePath(root, file));
+        Path source = sourceDirectory.toPath().resolve(relativePath(root, file));
+        if ((catalogChanged || affectedTypes.contains(entry.getTypeName()))
+            && Files.isRegularFile(source)) {
+          log.debug("Copying again from source directory: " + file);
+          Files.copy(source, file, StandardCopyOption.REPLACE_EXISTING);
+          String hash = IncrementalManifest.hash(file);
+          hashesBefore.put(file, hash);
+          if (hash.equals(entry.getHashBefore())) {
+            regeneratedFiles.add(file);
+          } else {
+            changedFiles.add(file);
+          }
+        }
+      }
+    }
+    for (Path file : regeneratedFiles) {
+      FileEntry entry = previous.getFile(relativePath(root, file));
+      if (!catalogChanged
+          && !affectedTypes.contains(entry.getTypeName())
+          && previous.restoreOutput(manifestFile, entry, file)) {
+        restoredFiles.add(file);
+      } else {
+        changedFiles.add(file);
+      }
+    }
+  }
+
+  /** <code>types</code> and names of recorded classes depending on them, transitively. */
+  Set<String> dependentsClosure(Set<String> types) {
+    DependencyIndex dependencyIndex = new DependencyIndex();
+    previous.files.values().forEach(entry -> add(dependencyIndex, entry));
+
+    Set<String> result = new LinkedHashSet<>(types);
+    List<String> added = new ArrayList<>(types);
+    while (!added.isEmpty()) {
+      List<String> dependents = dependencyIndex.dependentsOf(added);
+      added = new ArrayList<>();
+      for (String dependent : dependents) {
+        if (result.add(dependent)) {
+          added.add(dependent);
+        }
+      }
+    }
+    return result;
+  }
+
+  /** True if neither files nor the interface catalog changed since previous run. */
+  boolean isUpToDate() {
+    return !catalogChanged && changedFiles.isEmpty();
+  }
+
+  /**
+   * Changed files followed by files that may match differently with <code>ifcs</code> than with the
+   * catalog of previous run.
+   */
+  List<Path> checkedFiles(List<IfcResolve> ifcs) {
+    List<Path> checkedFiles = new ArrayList<>(changedFiles);
+    if (catalogChanged) {
+      Set<String> affectedFiles = previous.affectedFiles(ifcs);
+      for (Path file : files) {
+        if (affectedFiles.contains(relativePath(root, file)) && !checkedFiles.contains(file)) {
+          checkedFiles.add(file);
+        }
+      }
+    }
+    log.info("Checking " + checkedFiles.size() + " of " + files.size() + " files");
+    return checkedFiles;
+  }
+
+  /**
+   * Index of all files, built from asts of files parsed by <code>parsingContext</code> and from
+   * names recorded in previous run for the other ones.
+   */
+  DependencyIndex dependencyIndex(ParsingContext parsingContext) {
+    DependencyIndex dependencyIndex = new DependencyIndex();
+    for (Path file : files) {
+      Optional<CompilationUnit> compilationUnit = parsingContext.compilationUnit(file);
+      if (compilationUnit.isPresent()) {
+        dependencyIndex.add(compilationUnit.get());
+      } else {
+        FileEntry entry = previous.getFile(relativePath(root, file));
+        if (entry != null) {
+          add(dependencyIndex, entry);
+        }
+      }
+    }
+    return dependencyIndex;
+  }
+
+  /** Files of classes recorded in previous run, by class name. */
+  Map<String, Path> typeFiles() {
+    Map<String, Path> typeFiles = new HashMap<>();
+    for (Path file : files) {
+      FileEntry entry = previous.getFile(relativePath(root, file));
+      if (entry != null) {
+        typeFiles.put(entry.getTypeName(), file);
+      }
+    }
+    return typeFiles;
+  }
+
+  /** Record <code>compilationUnits</code> processed with <code>modifications</code>. */
+  void processed(
+      Map<Path, CompilationUnit> compilationUnits,
+      List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications)
+      throws IOException {
+    for (Map.Entry<Path, CompilationUnit> compilationUnit : compilationUnits.entrySet()) {
+      Path file = compilationUnit.getKey();
+      FileEntry entry = fileEntry(file, compilationUnit.getValue(), modifications);
+      FileEntry processedEntry = processedEntries.get(file);
+      if (processedEntry != null) {
+        entry.getInterfaces().addAll(processedEntry.getInterfaces());
+      }
+      processedEntries.put(file, entry);
+    }
+  }
+
+  /**
+   * Save manifest of this run with interfaces <code>ifcs</code>, or the interfaces of previous run
+   * if <code>ifcs</code> is null. Files not processed in this run keep entries of previous run.
+   */
+  void save(List<IfcResolve> ifcs) throws IOException {
+    IncrementalManifest manifest = new IncrementalManifest();
+    manifest.setCatalogFingerprint(catalogFingerprint);
+    if (ifcs != null) {
+      ifcs.forEach(manifest::addInterface);
+    } else {
+      previous.interfaces.values().forEach(manifest::addInterface);
+    }
+
+    for (Path file : files) {
+      FileEntry entry = processedEntries.get(file);
+      if (entry != null) {
+        manifest.addFile(entry);
+        if (!entry.getHashBefore().equals(entry.getHashAfter())) {
+          manifest.storeOutput(manifestFile, file, entry.getHashAfter());
+        }
+      } else if (previous.getFile(relativePath(root, file)) != null) {
+        manifest.addFile(previous.getFile(relativePath(root, file)));
+      }
+    }
+    manifest.save(manifestFile);
+  }
+
+  /** Create manifest entry describing processed <code>file</code>. */
+  private FileEntry fileEntry(
+      Path file,
+      CompilationUnit compilationUnit,
+      List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications)
+      throws IOException {
+    String path = relativePath(root, file);
+    String hashBefore = hashesBefore.get(file);
+    FileEntry previousEntry = previous.getFile(path);
+
+    Set<String> interfaces = new TreeSet<>();
+    String originalHash = hashBefore;
+    // file holding output of previous run keeps its original hash and interfaces added then
+    if (previousEntry != null
+        && (hashBefore.equals(previousEntry.getHashAfter()) || restoredFiles.contains(file))) {
+      originalHash = previousEntry.getHashBefore();
+      interfaces.addAll(previousEntry.getInterfaces());
+    }
+
+    Optional<ClassOrInterfaceDeclaration> declaration = classDeclaration(compilationUnit);
+    for (Pair<IfcResolve, ClassOrInterfaceDeclaration> modification : modifications) {
+      if (declaration.isPresent() && modification.getValue() == declaration.get()) {
+        interfaces.add(modification.getKey().getName());
+      }
+    }
+
+    return new FileEntry(
+        path,
+        originalHash,
+        IncrementalManifest.hash(file),
+        interfaces,
+        declaration.flatMap(ClassOrInterfaceDeclaration::getFullyQualifiedName).orElse(""),
+        declaration.map(DependencyIndex::referencedTypes).orElse(new TreeSet<>()),
+        declaration.map(InterfaceIndex::methodKeys).orElse(new TreeSet<>()),
+        declaration.map(DependencyIndex::supertypes).orElse(new TreeSet<>()));
+  }
+
+  private static void add(DependencyIndex dependencyIndex, FileEntry entry) {
+    dependencyIndex.add(entry.getTypeName(), entry.getReferencedTypes(), entry.getSupertypes());
+  }
+
+  /** Name of class expected in file at relative <code>path</code>, used before it is parsed. */
+  static String typeName(String path) {
+    return path.replaceAll("\\.java$", "").replace('/', '.');
+  }
+
+  static String relativePath(Path root, Path file) {
+    return root.relativize(file).toString().replace(File.separatorChar, '/');
+  }
+}
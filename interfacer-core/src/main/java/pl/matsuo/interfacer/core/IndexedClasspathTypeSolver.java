@@ -0,0 +1,116 @@
+package pl.matsuo.interfacer.core;
+
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.symbolsolver.javassistmodel.JavassistFactory;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import javassist.ClassPath;
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.NotFoundException;
+import pl.matsuo.interfacer.core.ClasspathIndex.Entry;
+
+/**
+ * {@link TypeSolver} resolving classes from jars with {@link ClasspathIndex}. Class is found with a
+ * single index probe and read from its class file with javassist, without loading it. Types not
+ * found in the index (JDK, classpath directories) are left to next solvers.
+ */
+public class IndexedClasspathTypeSolver implements TypeSolver {
+
+  final ClasspathIndex classpathIndex;
+  final ClassPool classPool = new ClassPool(false);
+  final Map<String, SymbolReference<ResolvedReferenceTypeDeclaration>> solved =
+      new ConcurrentHashMap<>();
+  TypeSolver parent;
+
+  public IndexedClasspathTypeSolver(ClasspathIndex classpathIndex) {
+    this.classpathIndex = classpathIndex;
+    classPool.appendClassPath(new IndexClassPath());
+    classPool.appendSystemPath();
+  }
+
+  @Override
+  public TypeSolver getParent() {
+    return parent;
+  }
+
+  @Override
+  public void setParent(TypeSolver parent) {
+    this.parent = parent;
+  }
+
+  @Override
+  public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+    SymbolReference<ResolvedReferenceTypeDeclaration> result = solved.get(name);
+    if (result == null) {
+      result = solve(name);
+      solved.putIfAbsent(name, result);
+    }
+    return result;
+  }
+
+  /** Try <code>name</code> and names with trailing dots replaced by '$' for nested classes. */
+  private SymbolReference<ResolvedReferenceTypeDeclaration> solve(String name) {
+    String binaryName = name;
+    while (true) {
+      if (classpathIndex.find(binaryName).isPresent()) {
+        try {
+          CtClass ctClass;
+          synchronized (classPool) {
+            ctClass = classPool.get(binaryName);
+          }
+          return SymbolReference.solved(JavassistFactory.toTypeDeclaration(ctClass, getRoot()));
+        } catch (NotFoundException e) {
+          throw new IllegalStateException("Indexed class not found " + binaryName, e);
+        }
+      }
+
+      int lastDot = binaryName.lastIndexOf('.');
+      if (lastDot < 0) {
+        return SymbolReference.unsolved(ResolvedReferenceTypeDeclaration.class);
+      }
+      binaryName = binaryName.substring(0, lastDot) + "$" + binaryName.substring(lastDot + 1);
+    }
+  }
+
+  /** Javassist class path reading class files of indexed classes. */
+  class IndexClassPath implements ClassPath {
+
+    @Override
+    public InputStream openClassfile(String classname) throws NotFoundException {
+      Optional<Entry> entry = classpathIndex.find(classname);
+      if (!entry.isPresent()) {
+        return null;
+      }
+
+      try {
+        return classpathIndex.open(entry.get());
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    @Override
+    public URL find(String classname) {
+      return classpathIndex
+          .find(classname)
+          .map(
+              entry -> {
+                try {
+                  return new URL("jar:" + entry.getJar().toURI() + "!/" + entry.getEntryName());
+                } catch (MalformedURLException e) {
+                  throw new IllegalStateException(e);
+                }
+              })
+          .orElse(null);
+    }
+  }
+}
@@ -0,0 +1,78 @@
+package pl.matsuo.interfacer.core;
+
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.MethodDeclaration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import pl.matsuo.interfacer.model.ifc.IfcResolve;
+import pl.matsuo.interfacer.model.ref.MethodReference;
+
+/**
+ * Inverted index from method key (name and number of parameters) to interfaces requiring such
+ * method. Class can match interface only if it declares methods with all keys of the interface, so
+ * the index allows to skip type resolution for most of (class, interface) pairs.
+ */
+public class InterfaceIndex {
+
+  final List<IfcResolve> ifcs;
+  final int[] requiredKeys;
+  final Map<String, List<Integer>> ifcsByMethodKey = new HashMap<>();
+
+  public InterfaceIndex(List<IfcResolve> ifcs) {
+    this.ifcs = new ArrayList<>(ifcs);
+    this.requiredKeys = new int[ifcs.size()];
+
+    for (int i = 0; i < this.ifcs.size(); i++) {
+      Set<String> keys = new TreeSet<>();
+      for (MethodReference method : this.ifcs.get(i).getMethods()) {
+        keys.add(methodKey(method.getName(), method.getParameterCount()));
+      }
+
+      requiredKeys[i] = keys.size();
+      for (String key : keys) {
+        ifcsByMethodKey.computeIfAbsent(key, k -> new ArrayList<>()).add(i);
+      }
+    }
+  }
+
+  /**
+   * Interfaces, in the original order, whose all method keys are declared by <code>declaration
+   * </code>. Interfaces without methods are never returned, as they can not be matched.
+   */
+  public List<IfcResolve> candidates(ClassOrInterfaceDeclaration declaration) {
+    Set<String> keys = methodKeys(declaration);
+
+    int[] foundKeys = new int[ifcs.size()];
+    for (String key : keys) {
+      for (Integer index : ifcsByMethodKey.getOrDefault(key, new ArrayList<>())) {
+        foundKeys[index]++;
+      }
+    }
+
+    List<IfcResolve> result = new ArrayList<>();
+    for (int i = 0; i < ifcs.size(); i++) {
+      if (requiredKeys[i] > 0 && foundKeys[i] == requiredKeys[i]) {
+        result.add(ifcs.get(i));
+      }
+    }
+
+    return result;
+  }
+
+  /** Method keys of methods declared in class <code>declaration</code>. */
+  public static Set<String> methodKeys(ClassOrInterfaceDeclaration declaration) {
+    Set<String> keys = new TreeSet<>();
+    for (MethodDeclaration method : declaration.getMethods()) {
+      keys.add(methodKey(method.getNameAsString(), method.getParameters().size()));
+    }
+    return keys;
+  }
+
+  static String methodKey(String name, int parameterCount) {
+    return name + "/" + parameterCount;
+  }
+}
@@ -2,38 +2,121 @@ package pl.matsuo.interfacer.core;
 
 import static java.util.Collections.emptyList;
 import static java.util.Comparator.comparing;
-import static pl.matsuo.core.util.collection.CollectionUtil.anyMatch;
 import static pl.matsuo.core.util.collection.CollectionUtil.filterMap;
 import static pl.matsuo.core.util.collection.CollectionUtil.flatMap;
+import static pl.matsuo.core.util.collection.CollectionUtil.map;
 import static pl.matsuo.core.util.collection.Pair.pair;
+import static pl.matsuo.interfacer.core.RunReport.Counter.CHECKS_ATTEMPTED;
+import static pl.matsuo.interfacer.core.RunReport.Counter.CHECKS_REJECTED_EARLY;
+import static pl.matsuo.interfacer.core.RunReport.Counter.CLASSES_EXAMINED;
+import static pl.matsuo.interfacer.core.RunReport.Counter.INTERFACES_ADDED;
+import static pl.matsuo.interfacer.core.RunReport.Phase.ASSIGNABILITY_CHECK;
+import static pl.matsuo.interfacer.core.RunReport.Phase.CLASSPATH_SCAN;
+import static pl.matsuo.interfacer.core.RunReport.Phase.MATCH;
+import static pl.matsuo.interfacer.core.RunReport.Phase.SOURCE_INTERFACE_SCAN;
+import static pl.matsuo.interfacer.core.RunReport.Phase.WRITE;
 
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
-import com.github.javaparser.utils.SourceRoot;
+import com.github.javaparser.utils.Log;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.Function;
+import lombok.Getter;
 import lombok.NonNull;
+import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import pl.matsuo.core.util.collection.Pair;
+import pl.matsuo.interfacer.model.ifc.IfcDescriptor;
 import pl.matsuo.interfacer.model.ifc.IfcResolve;
 
 @Slf4j
 public class InterfacesAdder {
 
+  /**
+   * Number of threads used for parsing and matching. Value <code>1</code> means sequential
+   * processing, value lower than <code>1</code> means using all available processors.
+   */
+  @Getter @Setter int parallelism = 1;
+
+  /**
+   * File storing {@link IncrementalManifest} between runs. When set, only files changed since
+   * previous run are processed; when null, all files are processed every time.
+   */
+  @Getter @Setter File manifestFile;
+
+  /**
+   * Directory <code>scanDirectory</code> is a copy of, when only changed files are copied to it.
+   * With {@link #manifestFile}, file still holding output of previous run is copied from it again
+   * if types it depends on changed, so interfaces that no longer match are not kept.
+   */
+  @Getter @Setter File sourceDirectory;
+
+  /**
+   * Classpath catalog shared between runs. When null, catalog is created from <code>
+   * compileClasspathElements</code> for single run and closed after it.
+   */
+  @Getter @Setter ClasspathCatalog classpathCatalog;
+
+  /**
+   * Directory storing {@link ClasspathIndex} files shared between builds. When set, classpath jar
+   * types are resolved from their class files found with the index; when null, all classpath types
+   * are resolved by class loading.
+   */
+  @Getter @Setter File classpathIndexDirectory;
+
+  /**
+   * Heap, in megabytes, available for asts of processed files. When set, files are parsed, matched
+   * and written in batches fitting the budget and their asts are dropped after every batch, so only
+   * names of classes and their dependencies are kept between batches. Value <code>0</code> keeps
+   * all asts in memory until the end of run.
+   */
+  @Getter @Setter int memoryBudget;
+
+  /**
+   * Represent classes generated by Avro with stubs created from schemas embedded in them, instead
+   * of parsing them in full. See {@link AvroSchemaStubs}.
+   */
+  @Getter @Setter boolean avroSchemas;
+
+  /** Estimated heap used by ast of one byte of source, including tokens and resolved types. */
+  static final int AST_BYTES_PER_SOURCE_BYTE = 50;
+
+  /** Timings and counters of the last run, see {@link RunReport}. */
+  @Getter RunReport report = new RunReport();
+
+  /** File receiving {@link RunReport} of every run as JSON. When null, report is not written. */
+  @Getter @Setter File reportFile;
+
+  /**
+   * Receives JavaParser messages logged during this run. When null, messages are logged with slf4j.
+   * See {@link JavaParserLogRouter}.
+   */
+  @Getter @Setter Log.Adapter javaParserLog;
+
   /**
    * Add interfaces found in <code>interfacesDirectory</code> and <code>compileClasspathElements
    * </code> to classes found in <code>scanDirectory</code>.
    *
    * <p>Method will execute multiple passes of adding. When classes implement additional interfaces,
-   * it's possible that some classes may now match new interfaces.
+   * it's possible that some classes may now match new interfaces. Parsed classes, interfaces and
+   * type solver are kept between passes and files are saved once, after the last pass.
    *
    * <pre>
    *         interface SampleInterface {
@@ -74,52 +157,502 @@ public class InterfacesAdder {
     }
 
     log.info("Start processing");
+    report = new RunReport();
 
     try {
-      List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> allModifications = new ArrayList<>();
-      while (true) {
-        List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications =
-            addInterfacesAllFiles(
-                scanDirectory,
-                interfacesDirectory,
-                interfacePackage,
-                compileClasspathElements,
-                allModifications);
-
-        if (modifications.isEmpty()) {
-          break;
+      JavaParserLogRouter.withAdapter(
+          javaParserLog,
+          () -> {
+            addInterfacesWithCatalog(
+                scanDirectory, interfacesDirectory, interfacePackage, compileClasspathElements);
+            return null;
+          });
+    } finally {
+      report.finish();
+      if (reportFile != null) {
+        try {
+          report.write(reportFile);
+        } catch (IOException e) {
+          log.warn("Cannot write report to " + reportFile, e);
         }
       }
+    }
+  }
+
+  /** Number of passes executed by the last run, <code>0</code> if no class was checked. */
+  public int getPasses() {
+    return report.getPasses();
+  }
+
+  private void addInterfacesWithCatalog(
+      File scanDirectory,
+      File interfacesDirectory,
+      String interfacePackage,
+      List<String> compileClasspathElements) {
+    ClasspathCatalog catalog =
+        classpathCatalog != null
+            ? classpathCatalog
+            : new ClasspathCatalog(
+                compileClasspathElements,
+                interfacePackage,
+                new ParallelMapper(parallelism),
+                classpathIndexDirectory);
+    try {
+      if (manifestFile != null) {
+        addInterfacesIncremental(
+            scanDirectory,
+            interfacesDirectory,
+            interfacePackage,
+            compileClasspathElements,
+            catalog);
+      } else {
+        addInterfacesAllFiles(scanDirectory, interfacesDirectory, catalog);
+      }
+    } finally {
+      if (catalog != classpathCatalog) {
+        catalog.close();
+      }
+    }
+  }
+
+  void addInterfacesAllFiles(
+      File scanDirectory, File interfacesDirectory, ClasspathCatalog catalog) {
+    if (memoryBudget > 0) {
+      addInterfacesStreaming(scanDirectory, interfacesDirectory, catalog);
+      return;
+    }
+
+    try (ParsingContext parsingContext =
+        ParsingContext.builder()
+            .classLoader(catalog.getClassLoader())
+            .classpathIndex(catalog.getClasspathIndex())
+            .scanDirectory(scanDirectory)
+            .interfacesDirectory(interfacesDirectory)
+            .parallelMapper(new ParallelMapper(parallelism))
+            .report(report)
+            .avroSchemas(avroSchemas)
+            .build()) {
+      List<CompilationUnit> compilationUnits = parsingContext.compilationUnits(scanDirectory);
+
+      List<IfcResolve> ifcs = scanInterfaces(interfacesDirectory, catalog, parsingContext);
+
+      List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications =
+          addInterfacesUntilFixpoint(
+              classDeclarations(compilationUnits),
+              new DependencyIndex(compilationUnits),
+              ifcs,
+              parsingContext);
+
+      writeModified(modifications);
+    }
+  }
+
+  /**
+   * Variant of {@link #addInterfacesAllFiles(File, File, ClasspathCatalog)} keeping memory used for
+   * asts within {@link #memoryBudget}.
+   */
+  void addInterfacesStreaming(
+      File scanDirectory, File interfacesDirectory, ClasspathCatalog catalog) {
+    try (ParsingContext parsingContext =
+        ParsingContext.builder()
+            .classLoader(catalog.getClassLoader())
+            .classpathIndex(catalog.getClasspathIndex())
+            .scanDirectory(scanDirectory)
+            .interfacesDirectory(interfacesDirectory)
+            .parallelMapper(new ParallelMapper(parallelism))
+            .scanFiles(emptyList())
+            .report(report)
+            .avroSchemas(avroSchemas)
+            .build()) {
+      List<IfcResolve> ifcs = scanInterfaces(interfacesDirectory, catalog, parsingContext);
+
+      addInterfacesStreaming(
+          scanDirectory,
+          CompilationUnitStore.javaFiles(scanDirectory.toPath()),
+          new DependencyIndex(),
+          new HashMap<>(),
+          ifcs,
+          parsingContext,
+          (compilationUnits, modifications) -> {});
     } catch (IOException e) {
       throw new RuntimeException("Error reading from source directory", e);
     }
   }
 
-  /** Single pass of interface adding. */
-  private List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> addInterfacesAllFiles(
+  /**
+   * Incremental variant of {@link #addInterfacesAllFiles(File, File, String, List)} using {@link
+   * IncrementalManifest} stored in <code>manifestFile</code>. Only new and changed files, and files
+   * affected by changes in the interface catalog, are parsed and matched. Files regenerated with
+   * the same content as in previous run get the recorded result without parsing, unless types they
+   * depend on changed, see {@link IncrementalRun}. Other files are parsed only if classes checked
+   * in later passes depend on them.
+   */
+  void addInterfacesIncremental(
       File scanDirectory,
       File interfacesDirectory,
       String interfacePackage,
       List<String> compileClasspathElements,
-      List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> allModifications)
+      ClasspathCatalog catalog) {
+    try {
+      IncrementalRun run =
+          new IncrementalRun(
+              manifestFile,
+              scanDirectory,
+              interfacesDirectory,
+              interfacePackage,
+              compileClasspathElements,
+              sourceDirectory);
+      if (run.isUpToDate()) {
+        log.info("No changes since last run, skipping " + run.getFiles().size() + " files");
+        run.save(null);
+        return;
+      }
+
+      // in streaming mode files are parsed batch by batch
+      boolean streaming = memoryBudget > 0;
+      try (ParsingContext parsingContext =
+          ParsingContext.builder()
+              .classLoader(catalog.getClassLoader())
+              .classpathIndex(catalog.getClasspathIndex())
+              .scanDirectory(scanDirectory)
+              .interfacesDirectory(interfacesDirectory)
+              .parallelMapper(new ParallelMapper(parallelism))
+              .scanFiles(streaming ? emptyList() : run.getChangedFiles())
+              .report(report)
+              .avroSchemas(avroSchemas)
+              .build()) {
+        List<IfcResolve> ifcs = scanInterfaces(interfacesDirectory, catalog, parsingContext);
+        List<Path> checkedFiles = run.checkedFiles(ifcs);
+
+        if (streaming) {
+          addInterfacesStreaming(
+              scanDirectory,
+              checkedFiles,
+              run.dependencyIndex(parsingContext),
+              run.typeFiles(),
+              ifcs,
+              parsingContext,
+              run::processed);
+        } else {
+          // not parsed files are represented in the index by names recorded in previous run
+          parsingContext.parse(checkedFiles);
+          List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications =
+              addInterfacesUntilFixpoint(
+                  classDeclarations(
+                      filterMap(
+                          checkedFiles, file -> parsingContext.compilationUnit(file).orElse(null))),
+                  run.dependencyIndex(parsingContext),
+                  ifcs,
+                  parsingContext);
+          writeModified(modifications);
+
+          Map<Path, CompilationUnit> compilationUnits = new LinkedHashMap<>();
+          for (Path file : run.getFiles()) {
+            parsingContext
+                .compilationUnit(file)
+                .ifPresent(compilationUnit -> compilationUnits.put(file, compilationUnit));
+          }
+          run.processed(compilationUnits, modifications);
+        }
+
+        run.save(ifcs);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error reading from source directory", e);
+    }
+  }
+
+  /**
+   * Execute passes of interface adding until no class is modified. First pass checks all <code>
+   * declarations</code>, every next one only classes depending on classes modified in previous
+   * pass, according to <code>dependencyIndex</code>.
+   */
+  public List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> addInterfacesUntilFixpoint(
+      List<ClassOrInterfaceDeclaration> declarations,
+      DependencyIndex dependencyIndex,
+      List<IfcResolve> ifcs,
+      ParsingContext parsingContext) {
+    List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> allModifications = new ArrayList<>();
+    InterfaceIndex interfaceIndex = new InterfaceIndex(ifcs);
+
+    List<ClassOrInterfaceDeclaration> worklist = declarations;
+    for (int pass = 1; !worklist.isEmpty(); pass++) {
+      report.startPass(pass);
+      log.info("Pass " + pass + ": checking " + worklist.size() + " classes");
+
+      List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications =
+          addInterfacesPass(worklist, interfaceIndex, parsingContext);
+      allModifications.addAll(modifications);
+
+      List<String> modifiedTypes =
+          filterMap(
+              modifications,
+              modification -> modification.getValue().getFullyQualifiedName().orElse(null));
+      worklist =
+          filterMap(
+              dependencyIndex.dependentsOf(modifiedTypes),
+              typeName -> parsingContext.classDeclaration(typeName).orElse(null));
+    }
+
+    log.info(parsingContext.typeResolutionCache.toString());
+    return allModifications;
+  }
+
+  /** Receives files of processed batch, before their asts are dropped. */
+  interface BatchListener {
+    void processed(
+        Map<Path, CompilationUnit> compilationUnits,
+        List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications)
+        throws IOException;
+  }
+
+  /**
+   * Streaming variant of {@link #addInterfacesUntilFixpoint(List, DependencyIndex, List,
+   * ParsingContext)}. Every pass splits its files into batches fitting {@link #memoryBudget}; each
+   * batch is parsed, matched and written, then asts parsed from <code>scanDirectory</code> are
+   * dropped. Between passes only names are kept: <code>dependencyIndex</code> and <code>typeFiles
+   * </code>, mapping class names to their files. Files of classes depending on modified classes are
+   * parsed again, with interfaces already written, in the next pass.
+   */
+  void addInterfacesStreaming(
+      File scanDirectory,
+      List<Path> files,
+      DependencyIndex dependencyIndex,
+      Map<String, Path> typeFiles,
+      List<IfcResolve> ifcs,
+      ParsingContext parsingContext,
+      BatchListener batchListener)
       throws IOException {
-    ParsingContext parsingContext =
-        new ParsingContext(compileClasspathElements, scanDirectory, interfacesDirectory);
+    InterfaceIndex interfaceIndex = new InterfaceIndex(ifcs);
+    long batchSourceBytes = memoryBudget * 1024L * 1024L / 2 / AST_BYTES_PER_SOURCE_BYTE;
+
+    List<Path> worklist = files;
+    for (int pass = 1; !worklist.isEmpty(); pass++) {
+      report.startPass(pass);
+      List<List<Path>> batches = batches(worklist, batchSourceBytes);
+      log.info(
+          "Pass "
+              + pass
+              + ": checking "
+              + worklist.size()
+              + " files in "
+              + batches.size()
+              + " batches");
+
+      Set<String> modifiedTypes = new TreeSet<>();
+      for (List<Path> batch : batches) {
+        parsingContext.parse(batch);
+        Map<Path, CompilationUnit> compilationUnits = new LinkedHashMap<>();
+        for (Path file : batch) {
+          parsingContext
+              .compilationUnit(file)
+              .ifPresent(compilationUnit -> compilationUnits.put(file, compilationUnit));
+        }
+        compilationUnits.forEach(
+            (file, compilationUnit) -> {
+              dependencyIndex.add(compilationUnit);
+              classDeclaration(compilationUnit)
+                  .flatMap(ClassOrInterfaceDeclaration::getFullyQualifiedName)
+                  .ifPresent(name -> typeFiles.put(name, file));
+            });
+
+        List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications =
+            addInterfacesPass(
+                classDeclarations(new ArrayList<>(compilationUnits.values())),
+                interfaceIndex,
+                parsingContext);
+        writeModified(modifications);
+        batchListener.processed(compilationUnits, modifications);
 
-    final SourceRoot source =
-        new SourceRoot(scanDirectory.toPath(), parsingContext.parserConfiguration);
+        for (Pair<IfcResolve, ClassOrInterfaceDeclaration> modification : modifications) {
+          modification.getValue().getFullyQualifiedName().ifPresent(modifiedTypes::add);
+        }
+        parsingContext.evict(scanDirectory);
+      }
+
+      worklist =
+          new ArrayList<>(
+              new LinkedHashSet<>(
+                  filterMap(dependencyIndex.dependentsOf(modifiedTypes), typeFiles::get)));
+    }
 
-    List<IfcResolve> ifcs = scanInterfaces(interfacesDirectory, interfacePackage, parsingContext);
+    log.info(parsingContext.typeResolutionCache.toString());
+  }
 
+  /**
+   * Split <code>files</code> into consecutive batches with at most <code>batchSourceBytes</code> of
+   * sources. Every batch contains at least one file.
+   */
+  static List<List<Path>> batches(List<Path> files, long batchSourceBytes) throws IOException {
+    List<List<Path>> batches = new ArrayList<>();
+    List<Path> batch = new ArrayList<>();
+    long batchBytes = 0;
+    for (Path file : files) {
+      long size = Files.size(file);
+      if (!batch.isEmpty() && batchBytes + size > batchSourceBytes) {
+        batches.add(batch);
+        batch = new ArrayList<>();
+        batchBytes = 0;
+      }
+      batch.add(file);
+      batchBytes += size;
+    }
+    if (!batch.isEmpty()) {
+      batches.add(batch);
+    }
+    return batches;
+  }
+
+  /** Single pass of interface adding to <code>declarations</code>. */
+  List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> addInterfacesPass(
+      List<ClassOrInterfaceDeclaration> declarations,
+      InterfaceIndex interfaceIndex,
+      ParsingContext parsingContext) {
+    ParallelMapper parallelMapper = parsingContext.parallelMapper;
+    JavaParser javaParser = parsingContext.javaParser;
     List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications =
-        processAllFiles(source.tryToParse(), ifcs, parsingContext.javaParser);
-    allModifications.addAll(modifications);
+        report.time(
+            MATCH,
+            () ->
+                parallelMapper.isParallel()
+                    ? addInterfacesParallel(
+                        declarations, interfaceIndex, javaParser, parallelMapper)
+                    : flatMap(
+                        declarations,
+                        declaration ->
+                            processDeclaration(
+                                declaration,
+                                interfaceIndex,
+                                candidates -> addInterfaces(declaration, candidates, javaParser))));
+    report.add(INTERFACES_ADDED, modifications.size());
+    return modifications;
+  }
+
+  /** Candidate interfaces of <code>declaration</code>, counting checks rejected by the index. */
+  List<IfcResolve> candidates(
+      ClassOrInterfaceDeclaration declaration, InterfaceIndex interfaceIndex) {
+    List<IfcResolve> candidates = interfaceIndex.candidates(declaration);
+    report.increment(CLASSES_EXAMINED);
+    report.add(CHECKS_ATTEMPTED, interfaceIndex.ifcs.size());
+    report.add(CHECKS_REJECTED_EARLY, interfaceIndex.ifcs.size() - candidates.size());
+    return candidates;
+  }
+
+  /**
+   * Apply <code>matcher</code> to candidate interfaces of <code>declaration</code>, emitting {@link
+   * ClassMatchingEvent}.
+   */
+  <T> List<T> processDeclaration(
+      ClassOrInterfaceDeclaration declaration,
+      InterfaceIndex interfaceIndex,
+      Function<List<IfcResolve>, List<T>> matcher) {
+    if (!FlightRecorderSupport.AVAILABLE) {
+      return matcher.apply(candidates(declaration, interfaceIndex));
+    }
+
+    ClassMatchingEvent event = new ClassMatchingEvent();
+    event.begin();
+    List<IfcResolve> candidates = candidates(declaration, interfaceIndex);
+    List<T> matched = matcher.apply(candidates);
+    event.end();
+    if (event.shouldCommit()) {
+      event.className = declaration.getFullyQualifiedName().orElse(declaration.getNameAsString());
+      event.pass = report.getPasses();
+      event.candidates = candidates.size();
+      event.matched = matched.size();
+      event.commit();
+    }
+    return matched;
+  }
+
+  /**
+   * Result of <code>ifc.matches(declaration)</code>. Calls lasting longer than threshold are
+   * recorded as {@link SlowMatchEvent}s.
+   */
+  Map<String, String> matches(ClassOrInterfaceDeclaration declaration, IfcResolve ifc) {
+    if (!FlightRecorderSupport.AVAILABLE) {
+      return ifc.matches(declaration);
+    }
+
+    SlowMatchEvent event = new SlowMatchEvent();
+    event.begin();
+    String outcome = SlowMatchEvent.FAILED;
+    try {
+      Map<String, String> resolvedTypeVariables = ifc.matches(declaration);
+      outcome = resolvedTypeVariables != null ? SlowMatchEvent.MATCHED : SlowMatchEvent.NOT_MATCHED;
+      return resolvedTypeVariables;
+    } finally {
+      event.end();
+      if (event.shouldCommit()) {
+        event.className = declaration.getFullyQualifiedName().orElse(declaration.getNameAsString());
+        event.interfaceName = ifc.getName();
+        event.outcome = outcome;
+        event.commit();
+      }
+    }
+  }
+
+  /** Save files of modified classes on disk. */
+  private void writeModified(List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications) {
+    report.time(
+        WRITE,
+        () -> {
+          new CompilationUnitWriter().writeAll(map(modifications, Pair::getValue));
+          return null;
+        });
+  }
+
+  /**
+   * Match <code>declarations</code> with interfaces in parallel, then add matched interfaces
+   * sequentially in the order of declarations. Asts are not modified while matching, so types may
+   * be safely resolved from many threads.
+   */
+  public List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> addInterfacesParallel(
+      List<ClassOrInterfaceDeclaration> declarations,
+      InterfaceIndex interfaceIndex,
+      JavaParser javaParser,
+      ParallelMapper parallelMapper) {
+    List<List<Pair<IfcResolve, Map<String, String>>>> matches =
+        parallelMapper.map(
+            declarations,
+            declaration ->
+                processDeclaration(
+                    declaration,
+                    interfaceIndex,
+                    candidates -> matchInterfaces(declaration, candidates)));
+
+    List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications = new ArrayList<>();
+    for (int i = 0; i < declarations.size(); i++) {
+      ClassOrInterfaceDeclaration declaration = declarations.get(i);
+      for (Pair<IfcResolve, Map<String, String>> match : matches.get(i)) {
+        // interface added in previous iteration may already cover this one
+        if (!canBeAssignedTo(declaration, match.getKey())) {
+          modifications.add(
+              addInterfaceToClassDeclaration(
+                  declaration, match.getKey(), javaParser, match.getValue()));
+        }
+      }
+    }
 
-    // save changes on disk
-    source.saveAll();
     return modifications;
   }
 
+  /**
+   * Find interfaces matching class <code>declaration</code> without modifying it. Return pairs of
+   * interface and type variables resolution.
+   */
+  public List<Pair<IfcResolve, Map<String, String>>> matchInterfaces(
+      ClassOrInterfaceDeclaration declaration, List<IfcResolve> ifcs) {
+    return filterMap(
+        ifcs,
+        ifc -> {
+          Map<String, String> resolvedTypeVariables = matches(declaration, ifc);
+          return resolvedTypeVariables != null && !canBeAssignedTo(declaration, ifc)
+              ? pair(ifc, resolvedTypeVariables)
+              : null;
+        });
+  }
+
   /** Parse file using internal {@link JavaParser}. */
   public ParseResult<CompilationUnit> parseFile(JavaParser javaParser, File file) {
     try {
@@ -129,51 +662,58 @@ public class InterfacesAdder {
     }
   }
 
-  /** Search for interfaces on classpath and in source folder. */
+  /**
+   * Search for interfaces on classpath and in source folder. Interfaces are compiled into {@link
+   * IfcDescriptor}s, so their methods and types are resolved once per run.
+   */
   public List<IfcResolve> scanInterfaces(
-      File interfacesDirectory, String interfacePackage, ParsingContext parsingContext) {
-    List<IfcResolve> ifcs = new ArrayList<>();
-    ifcs.addAll(
-        new ClasspathInterfacesScanner()
-            .scanInterfacesFromClasspath(
-                parsingContext.classLoader, interfacePackage, parsingContext.typeSolver));
-    ifcs.addAll(
-        new SourceInterfacesScanner()
-            .scanInterfacesFromSrc(parsingContext.parserConfiguration, interfacesDirectory));
+      File interfacesDirectory, ClasspathCatalog catalog, ParsingContext parsingContext) {
+    List<IfcResolve> descriptors = new ArrayList<>();
+    descriptors.addAll(
+        report.time(
+            CLASSPATH_SCAN,
+            () ->
+                map(
+                    catalog.interfaces(parsingContext.typeResolutionCache),
+                    IfcDescriptor::compile)));
+    descriptors.addAll(
+        report.time(
+            SOURCE_INTERFACE_SCAN,
+            () ->
+                map(
+                    new SourceInterfacesScanner()
+                        .scanInterfacesFromSrc(
+                            parsingContext.compilationUnits(interfacesDirectory),
+                            parsingContext.typeResolutionCache),
+                    IfcDescriptor::compile)));
     Comparator<IfcResolve> comparator = comparing(i -> -i.getMethods().size());
-    ifcs.sort(comparator);
-    return ifcs;
-  }
-
-  /** Go through all parsed generated classes and try adding interfaces to them. */
-  public List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> processAllFiles(
-      List<ParseResult<CompilationUnit>> parseResults,
-      List<IfcResolve> ifcs,
-      JavaParser javaParser) {
-
-    return flatMap(
-        parseResults,
-        parseResult -> {
-          // Only deal with files without parse errors
-          if (parseResult.isSuccessful()) {
-            return parseResult
-                .getResult()
-                .map(
-                    cu -> {
-                      // Do the actual logic
-                      return addInterfaces(cu, ifcs, javaParser);
-                    })
-                .orElse(emptyList());
-          } else {
-            log.warn("Parse failure for " + parseResult.getProblems());
-            return emptyList();
-          }
-        });
+    descriptors.sort(comparator);
+    return descriptors;
   }
 
   /** Add interfaces to class parsed into <code>compilationUnit</code>. */
   public List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> addInterfaces(
       CompilationUnit compilationUnit, List<IfcResolve> ifcs, JavaParser javaParser) {
+    return classDeclaration(compilationUnit)
+        .map(declaration -> addInterfaces(declaration, ifcs, javaParser))
+        .orElse(emptyList());
+  }
+
+  /** Add interfaces to class <code>declaration</code>. */
+  public List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> addInterfaces(
+      ClassOrInterfaceDeclaration declaration, List<IfcResolve> ifcs, JavaParser javaParser) {
+    return filterMap(ifcs, ifc -> processDeclarationWithInterface(declaration, ifc, javaParser));
+  }
+
+  /** Classes declared as primary types of <code>compilationUnits</code>. */
+  public static List<ClassOrInterfaceDeclaration> classDeclarations(
+      List<CompilationUnit> compilationUnits) {
+    return filterMap(compilationUnits, cu -> classDeclaration(cu).orElse(null));
+  }
+
+  /** Return primary type of <code>compilationUnit</code> if it is a class. */
+  public static Optional<ClassOrInterfaceDeclaration> classDeclaration(
+      CompilationUnit compilationUnit) {
     return compilationUnit
         .getPrimaryType()
         .map(
@@ -181,12 +721,7 @@ public class InterfacesAdder {
                 primaryType.isClassOrInterfaceDeclaration()
                     ? (ClassOrInterfaceDeclaration) primaryType
                     : null)
-        .filter(declaration -> !declaration.isInterface())
-        .map(
-            declaration ->
-                filterMap(
-                    ifcs, ifc -> processDeclarationWithInterface(declaration, ifc, javaParser)))
-        .orElse(emptyList());
+        .filter(declaration -> !declaration.isInterface());
   }
 
   /**
@@ -197,7 +732,7 @@ public class InterfacesAdder {
   public Pair<IfcResolve, ClassOrInterfaceDeclaration> processDeclarationWithInterface(
       ClassOrInterfaceDeclaration declaration, IfcResolve ifc, JavaParser javaParser) {
 
-    Map<String, String> resolvedTypeVariables = ifc.matches(declaration);
+    Map<String, String> resolvedTypeVariables = matches(declaration, ifc);
 
     // if any of the declaration's ancestors is already assignable to ifc
     boolean canBeAssignedTo = canBeAssignedTo(declaration, ifc);
@@ -223,28 +758,30 @@ public class InterfacesAdder {
             + " with ifc "
             + ifc.getName());
 
-    ClassOrInterfaceType type = // new ClassOrInterfaceType(ifc.getName());
-        javaParser
-            .parseClassOrInterfaceType(ifc.getGenericName(resolvedTypeVariables))
-            .getResult()
-            .orElseThrow(() -> new RuntimeException(""));
-    // type.setTypeArguments(ifc.getTypeArguments(resolvedTypeVariables));
+    ClassOrInterfaceType type = ifc.getGenericType(resolvedTypeVariables, javaParser);
+    type.setData(CompilationUnitWriter.ADDED_TYPE, true);
 
     declaration.addImplementedType(type);
+    declaration.getFullyQualifiedName().ifPresent(ifc.getTypeResolutionCache()::invalidate);
     return pair(ifc, declaration);
   }
 
-  /** Check if <code>declaration</code> is representing subtype of interface <code>ifc</code>. */
-  private boolean canBeAssignedTo(ClassOrInterfaceDeclaration declaration, IfcResolve ifc) {
-    return anyMatch(
-        declaration.resolve().getAncestors(),
-        ancestor -> {
-          try {
-            return ifc.getResolvedTypeDeclaration().isAssignableBy(ancestor);
-          } catch (RuntimeException e) {
-            // e.printStackTrace();
-            return false;
-          }
-        });
+  /**
+   * Check if <code>declaration</code> is representing subtype of interface <code>ifc</code>, using
+   * ancestor closure cached until the class gets new interface. Class with ancestors that can not
+   * be resolved is treated as not assignable.
+   */
+  boolean canBeAssignedTo(ClassOrInterfaceDeclaration declaration, IfcResolve ifc) {
+    long start = System.nanoTime();
+    try {
+      return ifc.getTypeResolutionCache()
+          .ancestors(declaration.resolve())
+          .contains(ifc.getResolvedTypeDeclaration().getQualifiedName());
+    } catch (RuntimeException e) {
+      log.debug("Cannot resolve ancestors of " + declaration.getNameAsString(), e);
+      return false;
+    } finally {
+      report.add(ASSIGNABILITY_CHECK, System.nanoTime() - start);
+    }
   }
 }
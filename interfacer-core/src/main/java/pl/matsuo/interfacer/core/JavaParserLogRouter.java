@@ -0,0 +1,91 @@
+package pl.matsuo.interfacer.core;
+
+import com.github.javaparser.utils.Log;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * JavaParser keeps single, process wide {@link Log} adapter. Router is installed as that adapter
+ * once and passes messages to the adapter of the interfacer run executing on current thread, so
+ * concurrent runs (e.g. modules of parallel Maven build) log to their own outputs. Messages logged
+ * outside of any run go to slf4j.
+ */
+@Slf4j
+public class JavaParserLogRouter implements Log.Adapter {
+
+  static final JavaParserLogRouter INSTANCE = new JavaParserLogRouter();
+  static final ThreadLocal<Log.Adapter> currentAdapter = new ThreadLocal<>();
+  static volatile boolean installed;
+
+  /**
+   * Execute <code>action</code> with JavaParser messages from current thread sent to <code>adapter
+   * </code>.
+   */
+  public static <T> T withAdapter(Log.Adapter adapter, Supplier<T> action) {
+    install();
+
+    Log.Adapter previous = currentAdapter.get();
+    currentAdapter.set(adapter);
+    try {
+      return action.get();
+    } finally {
+      if (previous != null) {
+        currentAdapter.set(previous);
+      } else {
+        currentAdapter.remove();
+      }
+    }
+  }
+
+  /**
+   * Wrap <code>function</code> to log with adapter of current thread when executed on other one.
+   */
+  public static <E, F> Function<E, F> propagate(Function<E, F> function) {
+    Log.Adapter adapter = currentAdapter.get();
+    return adapter == null
+        ? function
+        : element -> withAdapter(adapter, () -> function.apply(element));
+  }
+
+  static void install() {
+    if (!installed) {
+      synchronized (JavaParserLogRouter.class) {
+        if (!installed) {
+          Log.setAdapter(INSTANCE);
+          installed = true;
+        }
+      }
+    }
+  }
+
+  @Override
+  public void info(Supplier<String> message) {
+    Log.Adapter adapter = currentAdapter.get();
+    if (adapter != null) {
+      adapter.info(message);
+    } else {
+      log.info(message.get());
+    }
+  }
+
+  @Override
+  public void trace(Supplier<String> message) {
+    Log.Adapter adapter = currentAdapter.get();
+    if (adapter != null) {
+      adapter.trace(message);
+    } else if (log.isTraceEnabled()) {
+      log.trace(message.get());
+    }
+  }
+
+  @Override
+  public void error(Supplier<Throwable> throwableSupplier, Supplier<String> messageSupplier) {
+    Log.Adapter adapter = currentAdapter.get();
+    if (adapter != null) {
+      adapter.error(throwableSupplier, messageSupplier);
+    } else {
+      log.error(messageSupplier.get(), throwableSupplier.get());
+    }
+  }
+}
@@ -0,0 +1,56 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.stream.Collectors.toList;
+
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import lombok.Getter;
+import pl.matsuo.core.util.collection.CollectionUtil;
+
+/**
+ * Maps list elements either sequentially or on dedicated {@link ForkJoinPool}. Order of results is
+ * always the same as order of mapped elements, so parallel processing stays deterministic.
+ */
+@Getter
+public class ParallelMapper {
+
+  public static final ParallelMapper SEQUENTIAL = new ParallelMapper(1);
+
+  final int parallelism;
+
+  /**
+   * Create mapper using <code>parallelism</code> threads. Value <code>1</code> means sequential
+   * processing, value lower than <code>1</code> means using all available processors.
+   */
+  public ParallelMapper(int parallelism) {
+    this.parallelism = parallelism < 1 ? Runtime.getRuntime().availableProcessors() : parallelism;
+  }
+
+  public boolean isParallel() {
+    return parallelism > 1;
+  }
+
+  /** Map <code>elements</code> using <code>mapper</code> keeping the order of elements. */
+  public <E, F> List<F> map(List<E> elements, Function<E, F> mapper) {
+    if (!isParallel() || elements.size() < 2) {
+      return CollectionUtil.map(elements, mapper);
+    }
+
+    ForkJoinPool pool = new ForkJoinPool(parallelism);
+    try {
+      Function<E, F> workerMapper = JavaParserLogRouter.propagate(mapper);
+      return pool.submit(() -> elements.parallelStream().map(workerMapper).collect(toList())).get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new RuntimeException("Parallel processing interrupted", e);
+    } catch (ExecutionException e) {
+      throw e.getCause() instanceof RuntimeException
+          ? (RuntimeException) e.getCause()
+          : new RuntimeException(e.getCause());
+    } finally {
+      pool.shutdown();
+    }
+  }
+}
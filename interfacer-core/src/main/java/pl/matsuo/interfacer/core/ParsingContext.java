@@ -1,41 +1,221 @@
 package pl.matsuo.interfacer.core;
 
+import static pl.matsuo.interfacer.core.RunReport.Counter.RESOLUTION_FAILURES;
+import static pl.matsuo.interfacer.core.RunReport.Counter.SYMBOL_RESOLUTIONS;
+
 import com.github.javaparser.JavaParser;
 import com.github.javaparser.ParserConfiguration;
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
 import com.github.javaparser.symbolsolver.JavaSymbolSolver;
+import com.github.javaparser.symbolsolver.cache.Cache;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.model.resolution.SymbolReference;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.ClassLoaderTypeSolver;
 import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
-import com.github.javaparser.symbolsolver.resolution.typesolvers.JavaParserTypeSolver;
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import lombok.Builder;
 import lombok.NonNull;
+import lombok.extern.slf4j.Slf4j;
+import pl.matsuo.interfacer.model.ref.TypeResolutionCache;
+
+/**
+ * Data transfer object containing objects used for parsing. Closing the context releases caches
+ * JavaParser keeps for its type solver.
+ */
+@Slf4j
+public class ParsingContext implements Closeable {
 
-/** Data transfer object containing objects used for parsing. */
-public class ParsingContext {
+  /**
+   * Map in which JavaParser keeps facade of every type solver. Its keys are weak, but facades keep
+   * their type solvers, and so all parsed asts, strongly reachable. Only the entry of this context
+   * is removed, so contexts of concurrent runs keep their facades. Null if the map is not
+   * accessible; facades are then left to JavaParser.
+   */
+  static final Map<TypeSolver, JavaParserFacade> FACADES = facades();
 
   final ClassLoader classLoader;
+  final CompilationUnitStore compilationUnitStore;
+  final Cache<String, SymbolReference<ResolvedReferenceTypeDeclaration>> solvedTypes =
+      new ConcurrentCache<>();
   final CombinedTypeSolver typeSolver;
+  final TypeResolutionCache typeResolutionCache;
   final ParserConfiguration parserConfiguration;
   final JavaParser javaParser;
+  final ParallelMapper parallelMapper;
+  final RunReport report;
 
   public ParsingContext(
       List<String> compileClasspathElements,
       @NonNull File scanDirectory,
-      @NonNull File interfacesDirectory) {
-    classLoader = ClasspathInterfacesScanner.getCompileClassLoader(compileClasspathElements);
-    typeSolver = createTypeSolver(scanDirectory, interfacesDirectory, classLoader);
+      File interfacesDirectory) {
+    this(
+        new ClasspathInterfacesScanner().getCompileClassLoader(compileClasspathElements),
+        null,
+        scanDirectory,
+        interfacesDirectory,
+        null,
+        null,
+        null,
+        false);
+  }
+
+  /**
+   * Create context parsing source directories, see {@link #builder()} for optional settings.
+   *
+   * @param classLoader loader resolving jdk and classpath types
+   * @param classpathIndex index resolving classpath types from their class files, may be null
+   * @param scanDirectory directory with processed classes
+   * @param interfacesDirectory directory with sources of interfaces, may be null
+   * @param parallelMapper mapper used for parsing, sequential if null. Type solver caches
+   *     resolution results in {@link ConcurrentCache}, {@link TypeResolutionCache} is thread safe
+   *     and compilation unit store is not modified after parsing, so resolving types concurrently
+   *     is safe as long as asts are not modified at the same time
+   * @param scanFiles files from <code>scanDirectory</code> parsed up front, or all files if null.
+   *     Other files are parsed when types declared in them are resolved or requested by {@link
+   *     #classDeclaration(String)}
+   * @param report report recording parsing and type lookups, new one if null
+   * @param avroSchemas represent classes generated by Avro with stubs created from their schemas,
+   *     see {@link AvroSchemaStubs}
+   */
+  @Builder
+  ParsingContext(
+      @NonNull ClassLoader classLoader,
+      ClasspathIndex classpathIndex,
+      @NonNull File scanDirectory,
+      File interfacesDirectory,
+      ParallelMapper parallelMapper,
+      List<Path> scanFiles,
+      RunReport report,
+      boolean avroSchemas) {
+    parallelMapper = parallelMapper != null ? parallelMapper : ParallelMapper.SEQUENTIAL;
+    report = report != null ? report : new RunReport();
+    this.parallelMapper = parallelMapper;
+    this.classLoader = classLoader;
+    this.report = report;
+    compilationUnitStore = new CompilationUnitStore(report, avroSchemas);
+    typeSolver = createTypeSolver(classLoader, classpathIndex);
+    typeResolutionCache = new TypeResolutionCache(typeSolver);
     parserConfiguration = new ParserConfiguration();
     parserConfiguration.setSymbolResolver(new JavaSymbolSolver(typeSolver));
     javaParser = new JavaParser(parserConfiguration);
+
+    try {
+      if (scanFiles == null) {
+        compilationUnitStore.parse(scanDirectory.toPath(), parserConfiguration, parallelMapper);
+      } else {
+        compilationUnitStore.addLazyRoot(scanDirectory.toPath(), parserConfiguration);
+        compilationUnitStore.parse(scanFiles, parserConfiguration, parallelMapper);
+      }
+      if (interfacesDirectory != null) {
+        compilationUnitStore.parse(
+            interfacesDirectory.toPath(), parserConfiguration, parallelMapper);
+      }
+    } catch (IOException e) {
+      throw new RuntimeException("Error reading from source directory", e);
+    }
   }
 
   /** Create type solver used for type resolution when checking is class matching interface. */
   public CombinedTypeSolver createTypeSolver(
-      File scanDirectory, File interfacesDirectory, ClassLoader classLoader) {
-    CombinedTypeSolver combinedTypeSolver = new CombinedTypeSolver();
+      ClassLoader classLoader, ClasspathIndex classpathIndex) {
+    CombinedTypeSolver combinedTypeSolver =
+        new CombinedTypeSolver(
+            CombinedTypeSolver.ExceptionHandlers.IGNORE_NONE,
+            Collections.emptyList(),
+            solvedTypes) {
+          @Override
+          public SymbolReference<ResolvedReferenceTypeDeclaration> tryToSolveType(String name) {
+            SymbolReference<ResolvedReferenceTypeDeclaration> result = super.tryToSolveType(name);
+            report.increment(SYMBOL_RESOLUTIONS);
+            if (!result.isSolved()) {
+              report.increment(RESOLUTION_FAILURES);
+            }
+            return result;
+          }
+        };
+    // types from processed asts have to win over stale compiled copies on classpath
+    combinedTypeSolver.add(new CompilationUnitTypeSolver(compilationUnitStore));
+    if (classpathIndex != null) {
+      combinedTypeSolver.add(new IndexedClasspathTypeSolver(classpathIndex));
+    }
+    // jdk types and classpath directories
     combinedTypeSolver.add(new ClassLoaderTypeSolver(classLoader));
-    combinedTypeSolver.add(new JavaParserTypeSolver(scanDirectory.toPath()));
-    combinedTypeSolver.add(new JavaParserTypeSolver(interfacesDirectory.toPath()));
     return combinedTypeSolver;
   }
+
+  /**
+   * Drop asts of files parsed from <code>directory</code> and all resolution results that keep them
+   * reachable. Files are parsed again when types declared in them are requested.
+   */
+  public void evict(File directory) {
+    compilationUnitStore.evict(directory.toPath());
+    solvedTypes.removeAll();
+    typeResolutionCache.evictAstTypes();
+    releaseFacade();
+  }
+
+  /** Release resolution caches of this context kept by JavaParser, see {@link #FACADES}. */
+  @Override
+  public void close() {
+    releaseFacade();
+  }
+
+  private void releaseFacade() {
+    if (FACADES != null) {
+      synchronized (JavaParserFacade.class) {
+        FACADES.remove(typeSolver);
+      }
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<TypeSolver, JavaParserFacade> facades() {
+    try {
+      Field instances = JavaParserFacade.class.getDeclaredField("instances");
+      instances.setAccessible(true);
+      return (Map<TypeSolver, JavaParserFacade>) instances.get(null);
+    } catch (ReflectiveOperationException | RuntimeException e) {
+      log.warn("Cannot access facades of JavaParser, they are not released after runs", e);
+      return null;
+    }
+  }
+
+  /** Compilation units parsed from <code>directory</code>. */
+  public List<CompilationUnit> compilationUnits(File directory) {
+    return directory != null
+        ? compilationUnitStore.getCompilationUnits(directory.toPath())
+        : new ArrayList<>();
+  }
+
+  /** Parse <code>files</code> that were not parsed yet. */
+  public void parse(List<Path> files) {
+    compilationUnitStore.parse(files, parserConfiguration, parallelMapper);
+  }
+
+  /** Compilation unit parsed from <code>file</code>, if it was parsed. */
+  public Optional<CompilationUnit> compilationUnit(Path file) {
+    return compilationUnitStore.getCompilationUnit(file);
+  }
+
+  /** Declaration of class <code>typeName</code>, parsed if necessary. */
+  public Optional<ClassOrInterfaceDeclaration> classDeclaration(String typeName) {
+    return compilationUnitStore
+        .getType(typeName)
+        .filter(TypeDeclaration::isClassOrInterfaceDeclaration)
+        .map(TypeDeclaration::asClassOrInterfaceDeclaration)
+        .filter(declaration -> !declaration.isInterface());
+  }
 }
@@ -0,0 +1,21 @@
+package pl.matsuo.interfacer.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/** Single pass of {@link InterfacesAdder}, from its start until start of the next one. */
+@Name("pl.matsuo.interfacer.Pass")
+@Label("Interfacer Pass")
+@Category("Interfacer")
+@Description("Pass of interface adding")
+class PassEvent extends jdk.jfr.Event {
+
+  @Label("Pass")
+  int pass;
+
+  PassEvent(int pass) {
+    this.pass = pass;
+  }
+}
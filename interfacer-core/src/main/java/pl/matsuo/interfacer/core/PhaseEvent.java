@@ -0,0 +1,23 @@
+package pl.matsuo.interfacer.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Execution of a phase timed by {@link RunReport#time(RunReport.Phase,
+ * java.util.function.Supplier)}.
+ */
+@Name("pl.matsuo.interfacer.Phase")
+@Label("Interfacer Phase")
+@Category("Interfacer")
+@Description("Phase of interface adding, like parsing or matching, in given pass")
+class PhaseEvent extends jdk.jfr.Event {
+
+  @Label("Pass")
+  int pass;
+
+  @Label("Phase")
+  String phase;
+}
@@ -0,0 +1,244 @@
+package pl.matsuo.interfacer.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import lombok.Getter;
+
+/**
+ * Timings and counters of single {@link InterfacesAdder} run. Phases are timed per pass; pass
+ * <code>0</code> covers work done before the first pass, like interface scanning and parsing of
+ * initial files. Phases executed on many threads report time summed over threads. Assignability
+ * checks are part of matching, and files parsed lazily while matching count to both phases.
+ *
+ * <p>Passes and timed phases are also emitted as flight recorder events, see {@link
+ * FlightRecorderSupport}.
+ *
+ * <p>Peak heap is sampled when timed phases end, so it is the highest heap usage observed at phase
+ * boundaries, not exact peak of the run.
+ */
+public class RunReport {
+
+  /** Timed phases of the run. */
+  public enum Phase {
+    CLASSPATH_SCAN,
+    SOURCE_INTERFACE_SCAN,
+    PARSE,
+    MATCH,
+    ASSIGNABILITY_CHECK,
+    WRITE
+  }
+
+  /** Counted events of the run. */
+  public enum Counter {
+    FILES_PARSED,
+    /** Parsed files represented by stubs created from Avro schemas, see {@link AvroSchemaStubs}. */
+    SCHEMA_STUBS,
+    CLASSES_EXAMINED,
+    /** Pairs of class and interface considered. */
+    CHECKS_ATTEMPTED,
+    /** Pairs rejected by {@link InterfaceIndex} without type resolution. */
+    CHECKS_REJECTED_EARLY,
+    /** Lookups of types by name in type solver. */
+    SYMBOL_RESOLUTIONS,
+    /** Lookups of types by name that did not find the type. */
+    RESOLUTION_FAILURES,
+    INTERFACES_ADDED
+  }
+
+  final long startNanos = System.nanoTime();
+  final Map<Integer, Map<Phase, LongAdder>> phaseNanos = new ConcurrentSkipListMap<>();
+  final Map<Counter, LongAdder> counters = new EnumMap<>(Counter.class);
+  final LongAccumulator peakHeapBytes = new LongAccumulator(Math::max, 0);
+
+  /** Pass currently executed, <code>0</code> before the first pass. */
+  @Getter volatile int passes;
+
+  /** Wall time of the run, set by {@link #finish()}. */
+  @Getter long totalMillis;
+
+  /** Event of current pass, null before the first pass or if flight recorder is not available. */
+  PassEvent passEvent;
+
+  public RunReport() {
+    for (Counter counter : Counter.values()) {
+      counters.put(counter, new LongAdder());
+    }
+  }
+
+  /** Start pass number <code>pass</code>; following phase times are recorded for it. */
+  public void startPass(int pass) {
+    passes = pass;
+    sampleHeap();
+    commitPassEvent();
+    if (FlightRecorderSupport.AVAILABLE) {
+      passEvent = new PassEvent(pass);
+      passEvent.begin();
+    }
+  }
+
+  private void commitPassEvent() {
+    if (passEvent != null) {
+      passEvent.commit();
+      passEvent = null;
+    }
+  }
+
+  /** Execute <code>action</code> and record its time as <code>phase</code> of current pass. */
+  public <T> T time(Phase phase, Supplier<T> action) {
+    PhaseEvent event = null;
+    if (FlightRecorderSupport.AVAILABLE) {
+      event = new PhaseEvent();
+      event.begin();
+    }
+
+    long start = System.nanoTime();
+    try {
+      return action.get();
+    } finally {
+      add(phase, System.nanoTime() - start);
+      sampleHeap();
+      if (event != null) {
+        event.end();
+        if (event.shouldCommit()) {
+          event.pass = passes;
+          event.phase = label(phase);
+          event.commit();
+        }
+      }
+    }
+  }
+
+  /** Add <code>nanos</code> to time of <code>phase</code> in current pass. */
+  public void add(Phase phase, long nanos) {
+    phaseNanos
+        .computeIfAbsent(passes, pass -> new ConcurrentSkipListMap<>())
+        .computeIfAbsent(phase, p -> new LongAdder())
+        .add(nanos);
+  }
+
+  public void increment(Counter counter) {
+    add(counter, 1);
+  }
+
+  public void add(Counter counter, long value) {
+    counters.get(counter).add(value);
+  }
+
+  public long count(Counter counter) {
+    return counters.get(counter).sum();
+  }
+
+  /** Time of <code>phase</code> in <code>pass</code>, in nanoseconds. */
+  public long nanos(int pass, Phase phase) {
+    LongAdder nanos = phaseNanos.getOrDefault(pass, new EnumMap<>(Phase.class)).get(phase);
+    return nanos != null ? nanos.sum() : 0;
+  }
+
+  /** Time of <code>phase</code> summed over all passes, in nanoseconds. */
+  public long nanos(Phase phase) {
+    long result = 0;
+    for (Integer pass : phaseNanos.keySet()) {
+      result += nanos(pass, phase);
+    }
+    return result;
+  }
+
+  public long getPeakHeapBytes() {
+    return peakHeapBytes.get();
+  }
+
+  /** Record end of the run. */
+  public void finish() {
+    totalMillis = (System.nanoTime() - startNanos) / 1_000_000;
+    sampleHeap();
+    commitPassEvent();
+  }
+
+  void sampleHeap() {
+    peakHeapBytes.accumulate(ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed());
+  }
+
+  /** Compact, three line summary of the run. */
+  public String summary() {
+    StringBuilder summary =
+        new StringBuilder(
+            String.format(
+                "Interfacer: %d passes in %d ms, peak heap %d MB%n ",
+                passes, totalMillis, getPeakHeapBytes() / 1024 / 1024));
+    for (Phase phase : Phase.values()) {
+      summary.append(String.format(" %s %d ms,", label(phase), nanos(phase) / 1_000_000));
+    }
+    summary.setLength(summary.length() - 1);
+    summary.append(String.format("%n "));
+    for (Counter counter : Counter.values()) {
+      summary.append(String.format(" %s %d,", label(counter), count(counter)));
+    }
+    summary.setLength(summary.length() - 1);
+    return summary.toString();
+  }
+
+  /** Report as JSON object with phase times, in milliseconds, for every pass. */
+  public String toJson() {
+    StringBuilder json = new StringBuilder("{\n");
+    json.append("  \"timestamp\": ")
+        .append(System.currentTimeMillis())
+        .append(",\n  \"passes\": ")
+        .append(passes)
+        .append(",\n  \"totalMillis\": ")
+        .append(totalMillis)
+        .append(",\n  \"peakHeapBytes\": ")
+        .append(getPeakHeapBytes())
+        .append(",\n  \"counters\": {");
+    String separator = "\n";
+    for (Counter counter : Counter.values()) {
+      json.append(String.format("%s    \"%s\": %d", separator, key(counter), count(counter)));
+      separator = ",\n";
+    }
+    json.append("\n  },\n  \"phases\": [");
+    separator = "\n";
+    for (Integer pass : phaseNanos.keySet()) {
+      json.append(separator).append(String.format("    {\"pass\": %d", pass));
+      for (Phase phase : Phase.values()) {
+        json.append(
+            String.format(
+                Locale.ROOT, ", \"%sMillis\": %.3f", key(phase), nanos(pass, phase) / 1_000_000.0));
+      }
+      json.append("}");
+      separator = ",\n";
+    }
+    return json.append("\n  ]\n}\n").toString();
+  }
+
+  /** Write {@link #toJson()} to <code>file</code>, creating its directory if necessary. */
+  public void write(File file) throws IOException {
+    if (file.getParentFile() != null) {
+      Files.createDirectories(file.getParentFile().toPath());
+    }
+    Files.write(file.toPath(), toJson().getBytes(UTF_8));
+  }
+
+  static String label(Enum<?> value) {
+    return value.name().toLowerCase().replace('_', ' ');
+  }
+
+  /** Camel case name of <code>value</code>, eg. <code>classpathScan</code>. */
+  static String key(Enum<?> value) {
+    StringBuilder key = new StringBuilder();
+    for (String word : value.name().toLowerCase().split("_")) {
+      key.append(
+          key.length() == 0 ? word : Character.toUpperCase(word.charAt(0)) + word.substring(1));
+    }
+    return key.toString();
+  }
+}
@@ -0,0 +1,34 @@
+package pl.matsuo.interfacer.core;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * Call of {@link pl.matsuo.interfacer.model.ifc.IfcResolve#matches} lasting longer than threshold.
+ * Default threshold may be changed in recording settings, eg. <code>
+ * pl.matsuo.interfacer.SlowMatch#threshold=1 ms</code>.
+ */
+@Name("pl.matsuo.interfacer.SlowMatch")
+@Label("Interfacer Slow Match")
+@Category("Interfacer")
+@Description("Check of class against interface lasting longer than threshold")
+@Threshold("20 ms")
+class SlowMatchEvent extends jdk.jfr.Event {
+
+  static final String MATCHED = "matched";
+  static final String NOT_MATCHED = "not matched";
+  static final String FAILED = "failed";
+
+  @Label("Class")
+  String className;
+
+  @Label("Interface")
+  String interfaceName;
+
+  @Label("Outcome")
+  @Description("One of: matched, not matched, failed")
+  String outcome;
+}
@@ -1,5 +1,7 @@
 package pl.matsuo.interfacer.core;
 
+import static pl.matsuo.core.util.collection.CollectionUtil.filterMap;
+
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ParserConfiguration;
 import com.github.javaparser.ast.CompilationUnit;
@@ -13,6 +15,7 @@ import java.util.List;
 import lombok.extern.slf4j.Slf4j;
 import pl.matsuo.interfacer.model.ifc.IfcResolve;
 import pl.matsuo.interfacer.model.ifc.TypeDeclarationIfcResolve;
+import pl.matsuo.interfacer.model.ref.TypeResolutionCache;
 
 /** Implements scanning sources for interfaces that should be used during interface adding. */
 @Slf4j
@@ -30,23 +33,16 @@ public class SourceInterfacesScanner {
 
     final SourceRoot source = new SourceRoot(interfacesDirectory.toPath(), parserConfiguration);
     try {
+      List<CompilationUnit> compilationUnits = new ArrayList<>();
       for (ParseResult<CompilationUnit> parseResult : source.tryToParse()) {
         // Only deal with files without parse errors
         if (parseResult.isSuccessful()) {
-          parseResult
-              .getResult()
-              .ifPresent(
-                  cu -> {
-                    // Do the actual logic
-                    IfcResolve ifcResolve = getIfcResolve(cu);
-                    if (ifcResolve != null) {
-                      ifcs.add(ifcResolve);
-                    }
-                  });
+          parseResult.getResult().ifPresent(compilationUnits::add);
         } else {
           log.warn("Parse failure for " + parseResult.getProblems());
         }
       }
+      ifcs.addAll(scanInterfacesFromSrc(compilationUnits, new TypeResolutionCache(null)));
     } catch (IOException e) {
       throw new RuntimeException("Error reading from source directory", e);
     }
@@ -54,14 +50,25 @@ public class SourceInterfacesScanner {
     return ifcs;
   }
 
+  /**
+   * Create {@link IfcResolve} for interfaces from already parsed compilation units, resolving types
+   * with <code>typeResolutionCache</code>.
+   */
+  public List<IfcResolve> scanInterfacesFromSrc(
+      List<CompilationUnit> compilationUnits, TypeResolutionCache typeResolutionCache) {
+    return filterMap(
+        compilationUnits, compilationUnit -> getIfcResolve(compilationUnit, typeResolutionCache));
+  }
+
   /** Create {@link IfcResolve} for interface represented by <code>compilationUnit</code>. */
-  public IfcResolve getIfcResolve(CompilationUnit compilationUnit) {
+  public IfcResolve getIfcResolve(
+      CompilationUnit compilationUnit, TypeResolutionCache typeResolutionCache) {
     return compilationUnit
         .getPrimaryType()
         .filter(BodyDeclaration::isClassOrInterfaceDeclaration)
         .map(type -> (ClassOrInterfaceDeclaration) type)
         .filter(ClassOrInterfaceDeclaration::isInterface)
-        .map(type -> new TypeDeclarationIfcResolve(compilationUnit, type))
+        .map(type -> new TypeDeclarationIfcResolve(compilationUnit, type, typeResolutionCache))
         .orElse(null);
   }
 }
@@ -1,23 +1,23 @@
 package pl.matsuo.interfacer.model.ifc;
 
-import static com.github.javaparser.symbolsolver.reflectionmodel.ReflectionFactory.typeDeclarationFor;
 import static java.lang.String.join;
 import static java.util.Arrays.asList;
 import static pl.matsuo.core.util.collection.CollectionUtil.map;
 import static pl.matsuo.core.util.collection.CollectionUtil.toMap;
 
 import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
-import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
 import java.lang.reflect.Method;
 import java.lang.reflect.TypeVariable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import lombok.extern.slf4j.Slf4j;
 import pl.matsuo.interfacer.model.ref.MethodReference;
 import pl.matsuo.interfacer.model.ref.ReflectionMethodReference;
+import pl.matsuo.interfacer.model.ref.TypeResolutionCache;
 import pl.matsuo.interfacer.model.tv.TypeVariableReference;
 
 @ToString
@@ -26,7 +26,7 @@ import pl.matsuo.interfacer.model.tv.TypeVariableReference;
 public class ClassIfcResolve extends AbstractIfcResolve {
 
   final Class<?> clazz;
-  final TypeSolver typeSolver;
+  @Getter final TypeResolutionCache typeResolutionCache;
 
   @Override
   public String getName() {
@@ -49,7 +49,7 @@ public class ClassIfcResolve extends AbstractIfcResolve {
   public List<MethodReference> getMethods() {
     List<MethodReference> result = new ArrayList<>();
     for (Method method : clazz.getMethods()) {
-      result.add(new ReflectionMethodReference(method, typeSolver));
+      result.add(new ReflectionMethodReference(method, typeResolutionCache));
     }
 
     return result;
@@ -57,7 +57,7 @@ public class ClassIfcResolve extends AbstractIfcResolve {
 
   @Override
   public ResolvedReferenceTypeDeclaration getResolvedTypeDeclaration() {
-    return typeDeclarationFor(clazz, typeSolver);
+    return typeResolutionCache.typeDeclaration(clazz);
   }
 
   @Override
@@ -0,0 +1,110 @@
+package pl.matsuo.interfacer.model.ifc;
+
+import static java.lang.String.join;
+import static java.util.Collections.unmodifiableList;
+import static java.util.Collections.unmodifiableMap;
+import static pl.matsuo.core.util.collection.CollectionUtil.map;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.StaticJavaParser;
+import com.github.javaparser.ast.NodeList;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.declarations.ResolvedTypeParameterDeclaration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import lombok.Getter;
+import pl.matsuo.interfacer.model.ref.MethodReference;
+import pl.matsuo.interfacer.model.ref.TypeResolutionCache;
+import pl.matsuo.interfacer.model.tv.TypeVariableReference;
+
+/**
+ * Immutable interface prepared for matching. Methods, resolved type declaration and type variables
+ * of <code>source</code> are computed once, and the interface type is parsed once into a template
+ * that is copied for every class getting the interface. Safe for concurrent matching.
+ */
+public class IfcDescriptor extends AbstractIfcResolve {
+
+  @Getter final IfcResolve source;
+  @Getter final String name;
+  final List<MethodReference> methods;
+  @Getter final ResolvedReferenceTypeDeclaration resolvedTypeDeclaration;
+  final Map<String, TypeVariableReference> typeVariables;
+  final List<String> typeParameterNames;
+  final ClassOrInterfaceType template;
+  @Getter final TypeResolutionCache typeResolutionCache;
+
+  IfcDescriptor(AbstractIfcResolve source) {
+    this.source = source;
+    name = source.getName();
+    methods = unmodifiableList(new ArrayList<>(source.getMethods()));
+    resolvedTypeDeclaration = source.getResolvedTypeDeclaration();
+    typeVariables = unmodifiableMap(new LinkedHashMap<>(source.typeVariables()));
+    typeParameterNames =
+        unmodifiableList(
+            map(
+                resolvedTypeDeclaration.getTypeParameters(),
+                ResolvedTypeParameterDeclaration::getName));
+    template = StaticJavaParser.parseClassOrInterfaceType(name);
+    typeResolutionCache = source.getTypeResolutionCache();
+  }
+
+  /** Descriptor of <code>ifc</code>; descriptors are returned as they are. */
+  public static IfcDescriptor compile(IfcResolve ifc) {
+    if (ifc instanceof IfcDescriptor) {
+      return (IfcDescriptor) ifc;
+    } else if (ifc instanceof AbstractIfcResolve) {
+      return new IfcDescriptor((AbstractIfcResolve) ifc);
+    }
+
+    throw new IllegalArgumentException("Unsupported interface " + ifc);
+  }
+
+  @Override
+  public String getGenericName(Map<String, String> typeParams) {
+    if (typeParameterNames.isEmpty()) {
+      return name;
+    } else {
+      return name + "<" + join(", ", map(typeParameterNames, typeParams::get)) + ">";
+    }
+  }
+
+  /** Copy of the parsed template with <code>typeParams</code> as type arguments. */
+  @Override
+  public ClassOrInterfaceType getGenericType(
+      Map<String, String> typeParams, JavaParser javaParser) {
+    ClassOrInterfaceType type = template.clone();
+    if (!typeParameterNames.isEmpty()) {
+      NodeList<Type> typeArguments = new NodeList<>();
+      for (String typeVariable : typeParameterNames) {
+        String typeParam = typeParams.get(typeVariable);
+        typeArguments.add(
+            javaParser
+                .parseType(typeParam)
+                .getResult()
+                .orElseThrow(() -> new RuntimeException("Cannot parse " + typeParam)));
+      }
+      type.setTypeArguments(typeArguments);
+    }
+
+    return type;
+  }
+
+  @Override
+  public List<MethodReference> getMethods() {
+    return methods;
+  }
+
+  @Override
+  protected Map<String, TypeVariableReference> typeVariables() {
+    return typeVariables;
+  }
+
+  @Override
+  public String toString() {
+    return "IfcDescriptor(" + name + ")";
+  }
+}
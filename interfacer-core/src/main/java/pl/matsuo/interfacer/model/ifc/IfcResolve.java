@@ -1,10 +1,13 @@
 package pl.matsuo.interfacer.model.ifc;
 
+import com.github.javaparser.JavaParser;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
 import java.util.List;
 import java.util.Map;
 import pl.matsuo.interfacer.model.ref.MethodReference;
+import pl.matsuo.interfacer.model.ref.TypeResolutionCache;
 
 public interface IfcResolve {
 
@@ -12,10 +15,22 @@ public interface IfcResolve {
 
   String getGenericName(Map<String, String> typeParams);
 
+  /** Interface type with <code>typeParams</code>, to be added to a matching class. */
+  default ClassOrInterfaceType getGenericType(
+      Map<String, String> typeParams, JavaParser javaParser) {
+    return javaParser
+        .parseClassOrInterfaceType(getGenericName(typeParams))
+        .getResult()
+        .orElseThrow(() -> new RuntimeException("Cannot parse " + getGenericName(typeParams)));
+  }
+
   List<MethodReference> getMethods();
 
   ResolvedReferenceTypeDeclaration getResolvedTypeDeclaration();
 
+  /** Cache used to resolve types when matching this interface. */
+  TypeResolutionCache getTypeResolutionCache();
+
   /**
    * Return list of interface's type params specifications required to match this interface by the
    * declaration. If class is not generic, returns empty list if declaration fulfills interface.
@@ -11,10 +11,12 @@ import com.github.javaparser.ast.type.TypeParameter;
 import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
 import java.util.List;
 import java.util.Map;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.ToString;
 import pl.matsuo.interfacer.model.ref.MethodReference;
 import pl.matsuo.interfacer.model.ref.MethodUsageReference;
+import pl.matsuo.interfacer.model.ref.TypeResolutionCache;
 import pl.matsuo.interfacer.model.tv.TypeVariableReference;
 
 @ToString
@@ -23,6 +25,7 @@ public class TypeDeclarationIfcResolve extends AbstractIfcResolve {
 
   final CompilationUnit compileUnit;
   final ClassOrInterfaceDeclaration declaration;
+  @Getter final TypeResolutionCache typeResolutionCache;
 
   @Override
   public String getName() {
@@ -52,7 +55,7 @@ public class TypeDeclarationIfcResolve extends AbstractIfcResolve {
         method ->
             !method.declaringType().getPackageName().equals("java.lang")
                 || !method.declaringType().getClassName().equals("Object"),
-        MethodUsageReference::new);
+        method -> new MethodUsageReference(method, typeResolutionCache));
   }
 
   @Override
@@ -8,6 +8,11 @@ public interface MethodReference {
 
   String getName();
 
+  int getParameterCount();
+
+  /** Full signature of the method, including return and parameter types. */
+  String describe();
+
   Map<String, String> matches(
       MethodDeclaration methodDeclaration, Map<String, TypeVariableReference> typeVariables);
 }
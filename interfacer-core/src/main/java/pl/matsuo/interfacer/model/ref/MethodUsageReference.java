@@ -1,23 +1,48 @@
 package pl.matsuo.interfacer.model.ref;
 
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableList;
 
 import com.github.javaparser.ast.body.MethodDeclaration;
 import com.github.javaparser.resolution.MethodUsage;
 import com.github.javaparser.resolution.types.ResolvedType;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import pl.matsuo.interfacer.model.tv.TypeVariableReference;
 
+/**
+ * Method of interface parsed from sources. Parameter and return types are resolved once, when the
+ * reference is created.
+ */
 @Slf4j
-@RequiredArgsConstructor
 public class MethodUsageReference implements MethodReference {
 
   final MethodUsage methodUsage;
+  final TypeResolutionCache typeResolutionCache;
+  final String name;
+  final List<ResolvedType> paramTypes;
+  final ResolvedType returnType;
+
+  public MethodUsageReference(MethodUsage methodUsage, TypeResolutionCache typeResolutionCache) {
+    this.methodUsage = methodUsage;
+    this.typeResolutionCache = typeResolutionCache;
+    name = methodUsage.getName();
+    paramTypes = unmodifiableList(new ArrayList<>(methodUsage.getParamTypes()));
+    returnType = methodUsage.returnType();
+  }
 
   public String getName() {
-    return methodUsage.getName();
+    return name;
+  }
+
+  public int getParameterCount() {
+    return paramTypes.size();
+  }
+
+  public String describe() {
+    return returnType.describe() + " " + methodUsage.getDeclaration().getQualifiedSignature();
   }
 
   public Map<String, String> matches(
@@ -44,11 +69,12 @@ public class MethodUsageReference implements MethodReference {
   }
 
   private boolean parametersMatch(MethodDeclaration methodDeclaration) {
-    for (int i = 0; i < methodUsage.getNoParams(); i++) {
-      ResolvedType paramType = methodUsage.getParamType(i);
-      ResolvedType resolvedType = methodDeclaration.getParameter(i).getType().resolve();
+    for (int i = 0; i < paramTypes.size(); i++) {
+      ResolvedType paramType = paramTypes.get(i);
+      ResolvedType resolvedType =
+          typeResolutionCache.resolve(methodDeclaration.getParameter(i).getType());
 
-      if (!paramType.isAssignableBy(resolvedType)) {
+      if (!typeResolutionCache.isAssignable(paramType, resolvedType)) {
         return false;
       }
     }
@@ -56,15 +82,15 @@ public class MethodUsageReference implements MethodReference {
   }
 
   private boolean returnTypeMatches(MethodDeclaration methodDeclaration) {
-    if (methodUsage.returnType().isPrimitive() || methodUsage.returnType().isVoid()) {
-      if (!methodUsage
-          .returnType()
+    if (returnType.isPrimitive() || returnType.isVoid()) {
+      if (!returnType
           .toString()
-          .equals(methodDeclaration.getType().resolve().toString())) {
+          .equals(typeResolutionCache.resolve(methodDeclaration.getType()).toString())) {
         return false;
       }
     } else {
-      if (!methodUsage.returnType().isAssignableBy(methodDeclaration.getType().resolve())) {
+      if (!typeResolutionCache.isAssignable(
+          returnType, typeResolutionCache.resolve(methodDeclaration.getType()))) {
         return false;
       }
     }
@@ -1,14 +1,9 @@
 package pl.matsuo.interfacer.model.ref;
 
-import static com.github.javaparser.symbolsolver.reflectionmodel.ReflectionFactory.typeDeclarationFor;
-import static pl.matsuo.core.util.collection.CollectionUtil.map;
-
 import com.github.javaparser.ast.body.MethodDeclaration;
-import com.github.javaparser.ast.body.Parameter;
 import com.github.javaparser.ast.type.ClassOrInterfaceType;
 import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
 import com.github.javaparser.resolution.types.ResolvedType;
-import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
 import java.lang.reflect.Method;
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
@@ -17,19 +12,52 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import pl.matsuo.interfacer.model.tv.TypeVariableReference;
 
+/**
+ * Method of interface loaded from classpath. Erased and generic signature types are read once, when
+ * the reference is created, together with positions of parameters that may bind type variables.
+ */
 @Slf4j
-@RequiredArgsConstructor
 public class ReflectionMethodReference implements MethodReference {
 
   final Method method;
-  final TypeSolver typeSolver;
+  final TypeResolutionCache typeResolutionCache;
+  final String name;
+  final Class<?>[] parameterTypes;
+  final Type[] genericParameterTypes;
+  final Class<?> returnType;
+  final Type genericReturnType;
+  final List<Integer> typeVariablePositions = new ArrayList<>();
+  final boolean genericReturn;
+
+  public ReflectionMethodReference(Method method, TypeResolutionCache typeResolutionCache) {
+    this.method = method;
+    this.typeResolutionCache = typeResolutionCache;
+    name = method.getName();
+    parameterTypes = method.getParameterTypes();
+    genericParameterTypes = method.getGenericParameterTypes();
+    returnType = method.getReturnType();
+    genericReturnType = method.getGenericReturnType();
+    for (int i = 0; i < genericParameterTypes.length; i++) {
+      if (bindsTypeVariables(genericParameterTypes[i])) {
+        typeVariablePositions.add(i);
+      }
+    }
+    genericReturn = bindsTypeVariables(genericReturnType);
+  }
 
   public String getName() {
-    return method.getName();
+    return name;
+  }
+
+  public int getParameterCount() {
+    return parameterTypes.length;
+  }
+
+  public String describe() {
+    return method.toGenericString();
   }
 
   public Map<String, String> matches(
@@ -55,11 +83,14 @@ public class ReflectionMethodReference implements MethodReference {
     Map<String, String> result = new HashMap<>();
 
     Map<String, String> resultConstraints =
-        typeConstraints(methodDeclaration.getType(), method.getGenericReturnType());
-    Map<String, String> parameterConstraints =
-        typeConstraints(
-            map(methodDeclaration.getParameters(), Parameter::getType),
-            method.getGenericParameterTypes());
+        genericReturn
+            ? typeConstraints(methodDeclaration.getType(), genericReturnType)
+            : new HashMap<>();
+    Map<String, String> parameterConstraints = new HashMap<>();
+    for (Integer i : typeVariablePositions) {
+      parameterConstraints.putAll(
+          typeConstraints(methodDeclaration.getParameter(i).getType(), genericParameterTypes[i]));
+    }
 
     // todo: this is not a correct way of merging type constraints
     result.putAll(resultConstraints);
@@ -85,7 +116,6 @@ public class ReflectionMethodReference implements MethodReference {
     Map<String, String> result = new HashMap<>();
 
     if (generic instanceof ParameterizedType) {
-      log.info("ParameterizedType " + generic);
       if (param instanceof ClassOrInterfaceType) {
         List<com.github.javaparser.ast.type.Type> typeArguments =
             ((ClassOrInterfaceType) param)
@@ -98,21 +128,27 @@ public class ReflectionMethodReference implements MethodReference {
         throw new RuntimeException("Not implemented yet");
       }
     } else if (generic instanceof TypeVariable) {
-      log.info("TypeVariable " + generic);
       result.put(((TypeVariable<?>) generic).getName(), param.resolve().describe());
     } else {
-      log.info("Not a generic: " + generic + " for concrete: " + param);
+      log.debug("Not a generic: {} for concrete: {}", generic, param);
     }
 
     return result;
   }
 
+  /** Only parameterized types and type variables produce type constraints. */
+  static boolean bindsTypeVariables(Type generic) {
+    return generic instanceof ParameterizedType || generic instanceof TypeVariable;
+  }
+
   private boolean parametersMatch(MethodDeclaration methodDeclaration) {
-    for (int i = 0; i < method.getParameterCount(); i++) {
-      Class<?> paramType = method.getParameters()[i].getType();
-      ResolvedType resolvedType = methodDeclaration.getParameter(i).getType().resolve();
+    for (int i = 0; i < parameterTypes.length; i++) {
+      Class<?> paramType = parameterTypes[i];
+      ResolvedType resolvedType =
+          typeResolutionCache.resolve(methodDeclaration.getParameter(i).getType());
 
-      if (!typeDeclarationFor(paramType, typeSolver).isAssignableBy(resolvedType)) {
+      if (!typeResolutionCache.isAssignable(
+          typeResolutionCache.typeDeclaration(paramType), resolvedType)) {
         return false;
       }
     }
@@ -120,15 +156,17 @@ public class ReflectionMethodReference implements MethodReference {
   }
 
   private boolean returnTypeMatches(MethodDeclaration methodDeclaration) {
-    if (method.getReturnType().isPrimitive()) {
-      if (!methodDeclaration.getType().toString().equals(method.getReturnType().getName())) {
+    if (returnType.isPrimitive()) {
+      if (!methodDeclaration.getType().toString().equals(returnType.getName())) {
         return false;
       }
     } else {
       ResolvedReferenceTypeDeclaration resolvedReferenceTypeDeclaration =
-          typeDeclarationFor(method.getReturnType(), typeSolver);
+          typeResolutionCache.typeDeclaration(returnType);
 
-      if (!resolvedReferenceTypeDeclaration.isAssignableBy(methodDeclaration.getType().resolve())) {
+      if (!typeResolutionCache.isAssignable(
+          resolvedReferenceTypeDeclaration,
+          typeResolutionCache.resolve(methodDeclaration.getType()))) {
         return false;
       }
     }
@@ -0,0 +1,235 @@
+package pl.matsuo.interfacer.model.ref;
+
+import static com.github.javaparser.symbolsolver.reflectionmodel.ReflectionFactory.typeDeclarationFor;
+import static java.util.Collections.unmodifiableSet;
+
+import com.github.javaparser.ast.body.CallableDeclaration;
+import com.github.javaparser.ast.body.TypeDeclaration;
+import com.github.javaparser.ast.expr.Expression;
+import com.github.javaparser.ast.stmt.Statement;
+import com.github.javaparser.ast.type.Type;
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.types.ResolvedReferenceType;
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Memoized type resolution shared by all interfaces and method references of single run. Classes
+ * are resolved with <code>typeSolver</code>, ast types with the symbol solver of their compilation
+ * unit. Resolved types refer to the asts instead of copying them, so entries stay valid when
+ * interfaces are added to classes during the run.
+ *
+ * <p>Subtype relation is cached as ancestor closures of types and results of assignability checks.
+ * These depend on implemented types of classes, so they have to be invalidated with {@link
+ * #invalidate(String)} when a class gets new interface.
+ *
+ * <p>Ast type is keyed by its text and the declarations giving it meaning: enclosing type (its
+ * compilation unit's package and imports, nested types and type parameters) and type parameters of
+ * enclosing method. Types in anonymous or local classes are not cached.
+ */
+public class TypeResolutionCache {
+
+  @Getter final TypeSolver typeSolver;
+  final Map<Class<?>, ResolvedReferenceTypeDeclaration> declarations = new ConcurrentHashMap<>();
+  final Map<String, ResolvedType> types = new ConcurrentHashMap<>();
+  final Map<String, Set<String>> ancestors = new ConcurrentHashMap<>();
+  final Map<String, Assignability> assignabilities = new ConcurrentHashMap<>();
+  final AtomicLong hits = new AtomicLong();
+  final AtomicLong misses = new AtomicLong();
+
+  public TypeResolutionCache(TypeSolver typeSolver) {
+    this.typeSolver = typeSolver;
+  }
+
+  /** Declaration of <code>clazz</code> resolved with <code>typeSolver</code>. */
+  public ResolvedReferenceTypeDeclaration typeDeclaration(Class<?> clazz) {
+    return memoize(declarations, clazz, key -> typeDeclarationFor(key, typeSolver));
+  }
+
+  /** Result of <code>type.resolve()</code>. */
+  public ResolvedType resolve(Type type) {
+    Optional<String> key = key(type);
+    if (!key.isPresent()) {
+      misses.incrementAndGet();
+      return type.resolve();
+    }
+
+    return memoize(types, key.get(), k -> type.resolve());
+  }
+
+  /** Qualified names of all ancestors of <code>declaration</code>, direct and indirect. */
+  public Set<String> ancestors(ResolvedReferenceTypeDeclaration declaration) {
+    return memoize(ancestors, declaration.getQualifiedName(), name -> ancestorNames(declaration));
+  }
+
+  /** Result of <code>supertype.isAssignableBy(subtype)</code>. */
+  public boolean isAssignable(ResolvedReferenceTypeDeclaration supertype, ResolvedType subtype) {
+    return isAssignable(
+        supertype.getQualifiedName(), subtype, () -> isAssignableBy(supertype, subtype));
+  }
+
+  /** Result of <code>supertype.isAssignableBy(subtype)</code>. */
+  public boolean isAssignable(ResolvedType supertype, ResolvedType subtype) {
+    if (!isCacheable(supertype)) {
+      misses.incrementAndGet();
+      return supertype.isAssignableBy(subtype);
+    }
+
+    return isAssignable(supertype.describe(), subtype, () -> supertype.isAssignableBy(subtype));
+  }
+
+  private boolean isAssignable(String supertype, ResolvedType subtype, BooleanSupplier check) {
+    if (!isCacheable(subtype)) {
+      misses.incrementAndGet();
+      return check.getAsBoolean();
+    }
+
+    return memoize(
+            assignabilities,
+            supertype + " <- " + subtype.describe(),
+            key -> new Assignability(check.getAsBoolean(), dependencies(subtype)))
+        .assignable;
+  }
+
+  /**
+   * Class subtype is checked with its ancestor closure. Declarations of different models check
+   * assignability by asking each other, which for reflection interface and class read with
+   * javassist from indexed jar never ends.
+   */
+  private boolean isAssignableBy(ResolvedReferenceTypeDeclaration supertype, ResolvedType subtype) {
+    if (subtype.isReferenceType()) {
+      Optional<ResolvedReferenceTypeDeclaration> declaration =
+          subtype.asReferenceType().getTypeDeclaration();
+      if (declaration.isPresent()) {
+        String name = supertype.getQualifiedName();
+        return name.equals(Object.class.getName())
+            || name.equals(declaration.get().getQualifiedName())
+            || ancestors(declaration.get()).contains(name);
+      }
+    }
+    return supertype.isAssignableBy(subtype);
+  }
+
+  /**
+   * Forget subtype relations that may change when class <code>typeName</code> gets new implemented
+   * type: its ancestors, ancestors of its subtypes and assignability of types referring to them.
+   */
+  public void invalidate(String typeName) {
+    ancestors
+        .entrySet()
+        .removeIf(entry -> entry.getKey().equals(typeName) || entry.getValue().contains(typeName));
+    assignabilities.values().removeIf(assignability -> assignability.dependsOn.contains(typeName));
+  }
+
+  /**
+   * Forget resolved ast types, which keep asts they were resolved from reachable. Subtype relations
+   * are kept, as they refer to types by name.
+   */
+  public void evictAstTypes() {
+    types.clear();
+  }
+
+  /** Cached result of assignability check and names of types the result depends on. */
+  @RequiredArgsConstructor
+  static class Assignability {
+    final boolean assignable;
+    final Set<String> dependsOn;
+  }
+
+  /** Types with type variables or wildcards depend on context, they are not cached. */
+  static boolean isCacheable(ResolvedType type) {
+    if (type.isTypeVariable() || type.isWildcard()) {
+      return false;
+    } else if (type.isArray()) {
+      return isCacheable(type.asArrayType().getComponentType());
+    } else if (type.isReferenceType()) {
+      return type.asReferenceType().typeParametersValues().stream()
+          .allMatch(TypeResolutionCache::isCacheable);
+    }
+    return true;
+  }
+
+  /** Names of reference types used in <code>type</code> together with their ancestors. */
+  private Set<String> dependencies(ResolvedType type) {
+    Set<String> result = new HashSet<>();
+    if (type.isArray()) {
+      result.addAll(dependencies(type.asArrayType().getComponentType()));
+    } else if (type.isReferenceType()) {
+      ResolvedReferenceType referenceType = type.asReferenceType();
+      result.add(referenceType.getQualifiedName());
+      referenceType
+          .getTypeDeclaration()
+          .ifPresent(declaration -> result.addAll(ancestors(declaration)));
+      referenceType.typeParametersValues().forEach(value -> result.addAll(dependencies(value)));
+    }
+    return result;
+  }
+
+  /** Ancestor closure of <code>declaration</code>, skipping ancestors that can not be resolved. */
+  static Set<String> ancestorNames(ResolvedReferenceTypeDeclaration declaration) {
+    Set<String> result = new HashSet<>();
+    Deque<ResolvedReferenceTypeDeclaration> queue = new ArrayDeque<>();
+    queue.add(declaration);
+    while (!queue.isEmpty()) {
+      for (ResolvedReferenceType ancestor : queue.poll().getAncestors(true)) {
+        if (result.add(ancestor.getQualifiedName())) {
+          ancestor.getTypeDeclaration().ifPresent(queue::add);
+        }
+      }
+    }
+    return unmodifiableSet(result);
+  }
+
+  private <K, V> V memoize(Map<K, V> cache, K key, Function<K, V> resolver) {
+    V value = cache.get(key);
+    if (value != null) {
+      hits.incrementAndGet();
+      return value;
+    }
+
+    misses.incrementAndGet();
+    return cache.computeIfAbsent(key, resolver);
+  }
+
+  static Optional<String> key(Type type) {
+    // anonymous and local classes are not identified by qualified name of enclosing type
+    if (type.findAncestor(Statement.class).isPresent()
+        || type.findAncestor(Expression.class).isPresent()) {
+      return Optional.empty();
+    }
+
+    Optional<String> enclosingType =
+        type.findAncestor(TypeDeclaration.class).flatMap(TypeDeclaration::getFullyQualifiedName);
+    String typeParameters =
+        type.findAncestor(CallableDeclaration.class)
+            .map(callable -> callable.getTypeParameters().toString())
+            .orElse("");
+
+    return enclosingType.map(name -> name + "|" + typeParameters + "|" + type.asString());
+  }
+
+  public long getHits() {
+    return hits.get();
+  }
+
+  public long getMisses() {
+    return misses.get();
+  }
+
+  @Override
+  public String toString() {
+    return "Type resolution cache: " + getHits() + " hits, " + getMisses() + " misses";
+  }
+}
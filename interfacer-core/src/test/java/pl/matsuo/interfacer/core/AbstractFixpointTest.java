@@ -0,0 +1,51 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pl.matsuo.interfacer.core.TestResources.fileForResource;
+import static pl.matsuo.interfacer.core.TestResources.readFile;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Base of tests run on a copy of <code>/fixpoint/classes</code> with interfaces from <code>
+ * /fixpoint/interfaces</code>. SampleResult gets HasValue in first pass, Sample gets HasResult in
+ * second one and SampleOwner gets HasResultOwner in third one, Unrelated gets no interface.
+ */
+public abstract class AbstractFixpointTest {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  File scanDir;
+  File interfacesDir;
+
+  @Before
+  public void copyFixpoint() throws IOException {
+    scanDir = copyResourceDirectory("/fixpoint/classes");
+    interfacesDir = fileForResource("/fixpoint/interfaces");
+  }
+
+  File copyResourceDirectory(String resourcePath) throws IOException {
+    File directory = temporaryFolder.newFolder();
+    FileUtils.copyDirectory(fileForResource(resourcePath), directory);
+    return directory;
+  }
+
+  void addInterfaces(InterfacesAdder interfacesAdder) {
+    interfacesAdder.addInterfacesAllFiles(scanDir, interfacesDir, null, emptyList());
+  }
+
+  void assertFixpointInterfaces() throws IOException {
+    assertTrue(readFile(scanDir, "test/SampleResult.java").contains("implements test.HasValue"));
+    assertTrue(readFile(scanDir, "test/Sample.java").contains("implements test.HasResult"));
+    assertTrue(
+        readFile(scanDir, "test/SampleOwner.java").contains("implements test.HasResultOwner"));
+    assertFalse(readFile(scanDir, "test/Unrelated.java").contains("implements"));
+  }
+}
@@ -0,0 +1,44 @@
+package pl.matsuo.interfacer.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pl.matsuo.interfacer.core.TestResources.readFile;
+
+import java.io.IOException;
+import org.junit.Test;
+
+public class TestAvroSchemaStubs extends AbstractFixpointTest {
+
+  @Test
+  public void testAvroSchemas() throws IOException {
+    scanDir = copyResourceDirectory("/avro/classes");
+    String result = readFile(scanDir, "test/AvroResult.java");
+    String sample = readFile(scanDir, "test/AvroSample.java");
+
+    InterfacesAdder interfacesAdder = new InterfacesAdder();
+    interfacesAdder.setAvroSchemas(true);
+    addInterfaces(interfacesAdder);
+
+    // generated classes are represented by stubs, only interfaces are parsed in full
+    RunReport report = interfacesAdder.getReport();
+    assertEquals(2, report.count(RunReport.Counter.SCHEMA_STUBS));
+    assertEquals(5, report.count(RunReport.Counter.FILES_PARSED));
+    assertEquals(2, report.getPasses());
+
+    String header = "implements org.apache.avro.specific.SpecificRecord {";
+    assertEquals(
+        result.replace(
+            header, "implements org.apache.avro.specific.SpecificRecord, test.HasValue {"),
+        readFile(scanDir, "test/AvroResult.java"));
+    assertEquals(
+        sample.replace(
+            header, "implements org.apache.avro.specific.SpecificRecord, test.HasResult {"),
+        readFile(scanDir, "test/AvroSample.java"));
+
+    // accessors not found in the source, eg. generated with other settings, disable stubs
+    assertTrue(AvroSchemaStubs.stub(result, "AvroResult").isPresent());
+    assertFalse(
+        AvroSchemaStubs.stub(result.replace("java.lang.Integer", "int"), "AvroResult").isPresent());
+  }
+}
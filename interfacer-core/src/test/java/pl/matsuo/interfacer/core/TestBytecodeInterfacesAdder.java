@@ -0,0 +1,71 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static pl.matsuo.interfacer.core.TestResources.fileForResource;
+import static pl.matsuo.interfacer.core.TestResources.jarOf;
+
+import java.io.File;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import javax.tools.ToolProvider;
+import org.junit.Test;
+import pl.matsuo.interfacer.showcase.GenericInterface;
+
+public class TestBytecodeInterfacesAdder extends AbstractFixpointTest {
+
+  @Test
+  public void testBytecodeMode() throws Exception {
+    File classesDir = temporaryFolder.newFolder();
+    List<String> sources = new ArrayList<>();
+    for (String resourcePath : asList("/fixpoint/classes/test", "/fixpoint/interfaces/test")) {
+      for (File file : fileForResource(resourcePath).listFiles()) {
+        sources.add(file.getPath());
+      }
+    }
+    sources.add(fileForResource("/classes/test/SampleGenericClass.java").getPath());
+    String classpathElement = jarOf(GenericInterface.class).getPath();
+    List<String> arguments =
+        new ArrayList<>(asList("-d", classesDir.getPath(), "-cp", classpathElement));
+    arguments.addAll(sources);
+    assertEquals(
+        0,
+        ToolProvider.getSystemJavaCompiler()
+            .run(null, null, null, arguments.toArray(new String[0])));
+
+    BytecodeInterfacesAdder interfacesAdder = new BytecodeInterfacesAdder();
+    interfacesAdder.setParallelism(2);
+    interfacesAdder.addInterfaces(
+        classesDir, interfacesDir, "pl.matsuo.interfacer.showcase", asList(classpathElement));
+    assertEquals(3, interfacesAdder.getReport().getPasses());
+    assertEquals(4, interfacesAdder.getReport().count(RunReport.Counter.INTERFACES_ADDED));
+
+    try (URLClassLoader classLoader =
+        new URLClassLoader(
+            new URL[] {classesDir.toURI().toURL()}, GenericInterface.class.getClassLoader())) {
+      Class<?> hasResult = classLoader.loadClass("test.HasResult");
+      Class<?> sample = classLoader.loadClass("test.Sample");
+      assertTrue(hasResult.isAssignableFrom(sample));
+      // covariant return is reached through bridge method
+      Object result =
+          hasResult.getMethod("getResult").invoke(sample.getConstructor().newInstance());
+      assertTrue(classLoader.loadClass("test.HasValue").isInstance(result));
+      assertTrue(
+          classLoader
+              .loadClass("test.HasResultOwner")
+              .isAssignableFrom(classLoader.loadClass("test.SampleOwner")));
+      assertEquals(0, classLoader.loadClass("test.Unrelated").getInterfaces().length);
+
+      Class<?> genericClass = classLoader.loadClass("test.SampleGenericClass");
+      assertEquals(
+          "pl.matsuo.interfacer.showcase.GenericInterface<java.lang.String>",
+          genericClass.getGenericInterfaces()[0].getTypeName());
+      GenericInterface.class
+          .getMethod("setSingleton", Object.class)
+          .invoke(genericClass.getConstructor().newInstance(), "value");
+    }
+  }
+}
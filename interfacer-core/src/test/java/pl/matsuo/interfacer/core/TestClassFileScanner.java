@@ -0,0 +1,35 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static pl.matsuo.interfacer.core.TestResources.jarOf;
+
+import org.junit.Test;
+import pl.matsuo.interfacer.showcase.GenericInterface;
+import pl.matsuo.interfacer.showcase.HasName;
+import pl.matsuo.interfacer.showcase.MutableOwner;
+
+public class TestClassFileScanner {
+
+  @Test
+  public void testClassFileScanner() throws Exception {
+    String classpathElement = jarOf(HasName.class).getPath();
+    String testClasses = jarOf(TestClassFileScanner.class).getPath();
+
+    assertEquals(
+        asList(
+            GenericInterface.class.getName(),
+            HasName.class.getName(),
+            MutableOwner.class.getName()),
+        new ClassFileScanner(new ParallelMapper(2))
+            .scanInterfaceNames(
+                asList(classpathElement, testClasses), "pl.matsuo.interfacer.showcase"));
+    // classes are skipped, package prefix includes subpackages
+    assertEquals(
+        asList(TestClassFileScanner.class.getName() + "$TestInterface"),
+        new ClassFileScanner(ParallelMapper.SEQUENTIAL)
+            .scanInterfaceNames(asList(testClasses), "pl.matsuo.interfacer"));
+  }
+
+  interface TestInterface {}
+}
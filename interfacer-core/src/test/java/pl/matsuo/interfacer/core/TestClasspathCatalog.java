@@ -0,0 +1,36 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
+import static pl.matsuo.core.util.collection.CollectionUtil.anyMatch;
+import static pl.matsuo.interfacer.core.TestResources.jarOf;
+import static pl.matsuo.interfacer.core.TestResources.readFile;
+
+import org.junit.Test;
+import pl.matsuo.interfacer.showcase.HasName;
+
+public class TestClasspathCatalog extends AbstractFixpointTest {
+
+  @Test
+  public void testSharedClasspathCatalog() throws Exception {
+    String classpathElement = jarOf(HasName.class).getPath();
+
+    try (ClasspathCatalog catalog =
+        new ClasspathCatalog(asList(classpathElement), "pl.matsuo.interfacer.showcase")) {
+      assertTrue(
+          anyMatch(catalog.getTypes(), type -> type.getName().equals(HasName.class.getName())));
+
+      InterfacesAdder interfacesAdder = new InterfacesAdder();
+      interfacesAdder.setClasspathCatalog(catalog);
+      for (int i = 0; i < 2; i++) {
+        scanDir = copyResourceDirectory("/fixpoint/classes");
+        addInterfaces(interfacesAdder);
+        assertTrue(readFile(scanDir, "test/Sample.java").contains("implements test.HasResult"));
+      }
+
+      // catalog given from outside is not closed by the run
+      assertNotNull(catalog.getClassLoader().loadClass(HasName.class.getName()));
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pl.matsuo.core.util.collection.CollectionUtil.anyMatch;
+import static pl.matsuo.interfacer.core.TestResources.jarOf;
+
+import com.github.javaparser.resolution.declarations.ResolvedReferenceTypeDeclaration;
+import com.github.javaparser.resolution.types.ResolvedType;
+import com.github.javaparser.symbolsolver.model.typesystem.ReferenceTypeImpl;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ClassLoaderTypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.CombinedTypeSolver;
+import java.io.File;
+import org.apache.commons.io.FileUtils;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.junit.rules.TestRule;
+import pl.matsuo.interfacer.model.ref.TypeResolutionCache;
+
+public class TestClasspathIndex {
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  @Test
+  public void testClasspathIndex() throws Exception {
+    File jar = new File(temporaryFolder.newFolder(), "library.jar");
+    FileUtils.copyFile(jarOf(Test.class), jar);
+    File indexDirectory = temporaryFolder.newFolder();
+
+    try (ClasspathIndex index =
+        new ClasspathIndex(asList(jar.getPath()), indexDirectory, ParallelMapper.SEQUENTIAL)) {
+      assertEquals("org/junit/Test.class", index.find("org.junit.Test").get().getEntryName());
+      assertFalse(index.find("org.junit.Missing").isPresent());
+    }
+    // index is built once per jar and then reused
+    File[] indexFiles = indexDirectory.listFiles();
+    assertEquals(1, indexFiles.length);
+    assertTrue(indexFiles[0].setLastModified(1_000_000_000_000L));
+
+    try (ClasspathIndex index =
+        new ClasspathIndex(asList(jar.getPath()), indexDirectory, ParallelMapper.SEQUENTIAL)) {
+      CombinedTypeSolver typeSolver = new CombinedTypeSolver();
+      typeSolver.add(new IndexedClasspathTypeSolver(index));
+      typeSolver.add(new ClassLoaderTypeSolver(getClass().getClassLoader()));
+
+      ResolvedReferenceTypeDeclaration declaration =
+          typeSolver.solveType("org.junit.rules.TemporaryFolder");
+      assertTrue(
+          anyMatch(
+              declaration.getAllAncestors(),
+              ancestor -> ancestor.getQualifiedName().equals("org.junit.rules.ExternalResource")));
+      assertTrue(typeSolver.hasType("org.junit.runners.Parameterized.Parameters"));
+
+      // reflection interfaces are checked against classes read from index by their ancestors
+      TypeResolutionCache cache = new TypeResolutionCache(typeSolver);
+      ResolvedType temporaryFolder = new ReferenceTypeImpl(declaration, typeSolver);
+      assertTrue(cache.isAssignable(cache.typeDeclaration(TestRule.class), temporaryFolder));
+      assertFalse(cache.isAssignable(cache.typeDeclaration(Runnable.class), temporaryFolder));
+    }
+    assertEquals(1_000_000_000_000L, indexFiles[0].lastModified());
+
+    // touched jar keeps its index, changed jar is indexed again
+    assertTrue(jar.setLastModified(jar.lastModified() - 60_000));
+    try (ClasspathIndex index =
+        new ClasspathIndex(asList(jar.getPath()), indexDirectory, ParallelMapper.SEQUENTIAL)) {
+      assertTrue(index.find("org.junit.Test").isPresent());
+    }
+    assertEquals(1, indexDirectory.listFiles().length);
+
+    FileUtils.copyFile(jarOf(FileUtils.class), jar);
+    try (ClasspathIndex index =
+        new ClasspathIndex(asList(jar.getPath()), indexDirectory, ParallelMapper.SEQUENTIAL)) {
+      assertFalse(index.find("org.junit.Test").isPresent());
+      assertTrue(index.find("org.apache.commons.io.FileUtils").isPresent());
+    }
+    assertEquals(1, indexDirectory.listFiles().length);
+  }
+}
@@ -0,0 +1,93 @@
+package pl.matsuo.interfacer.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+import static pl.matsuo.interfacer.core.TestResources.fileForResource;
+import static pl.matsuo.interfacer.core.TestResources.readFile;
+
+import com.github.javaparser.ast.CompilationUnit;
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.List;
+import java.util.Set;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import pl.matsuo.interfacer.model.ifc.IfcResolve;
+
+public class TestCompilationUnitWriter extends AbstractFixpointTest {
+
+  @Test
+  public void testUnmodifiedFilesUntouched() throws IOException {
+    File unrelated = new File(scanDir, "test/Unrelated.java");
+    String unrelatedContent = readFile(scanDir, "test/Unrelated.java");
+    assertTrue(unrelated.setLastModified(1_000_000_000_000L));
+
+    addInterfaces(new InterfacesAdder());
+
+    // only the header is changed, original formatting is kept
+    assertEquals(
+        readFile(fileForResource("/fixpoint/classes"), "test/Sample.java")
+            .replace("public class Sample {", "public class Sample implements test.HasResult {"),
+        readFile(scanDir, "test/Sample.java"));
+    assertEquals(unrelatedContent, readFile(scanDir, "test/Unrelated.java"));
+    assertEquals(1_000_000_000_000L, unrelated.lastModified());
+    // no temporary files left behind
+    assertEquals(4, new File(scanDir, "test").list().length);
+  }
+
+  @Test
+  public void testPermissionsKept() throws IOException {
+    Path sample = new File(scanDir, "test/Sample.java").toPath();
+    assumeTrue(Files.getFileStore(sample).supportsFileAttributeView(PosixFileAttributeView.class));
+    Set<PosixFilePermission> permissions = PosixFilePermissions.fromString("rwxr-xr--");
+    Files.setPosixFilePermissions(sample, permissions);
+
+    addInterfaces(new InterfacesAdder());
+
+    assertTrue(readFile(scanDir, "test/Sample.java").contains("implements test.HasResult"));
+    assertEquals(permissions, Files.getPosixFilePermissions(sample));
+  }
+
+  @Test
+  public void testSplicingImplementedTypes() throws IOException {
+    File scanDir = temporaryFolder.newFolder();
+    String source =
+        "package test;\r\n\r\n/** Zażółć. */\r\npublic class Spliced\timplements java.io.Serializable"
+            + " {\r\n  public Integer getValue() {\r\n    return 1;\r\n  }\r\n}\r\n"
+            + "class Second<T extends Number>/* no space */{\r\n"
+            + "  public Integer getValue() { return 2; }\r\n}\r\n";
+    FileUtils.writeStringToFile(new File(scanDir, "test/Spliced.java"), source, UTF_8);
+
+    ParsingContext parsingContext = new ParsingContext(emptyList(), scanDir, null);
+    CompilationUnit compilationUnit = parsingContext.compilationUnits(scanDir).get(0);
+    InterfacesAdder interfacesAdder = new InterfacesAdder();
+    ParsingContext interfacesContext = new ParsingContext(emptyList(), scanDir, interfacesDir);
+    List<IfcResolve> ifcs =
+        new SourceInterfacesScanner()
+            .scanInterfacesFromSrc(
+                interfacesContext.compilationUnits(interfacesDir),
+                interfacesContext.typeResolutionCache);
+    List<ClassOrInterfaceDeclaration> declarations =
+        compilationUnit.findAll(ClassOrInterfaceDeclaration.class);
+    for (ClassOrInterfaceDeclaration declaration : declarations) {
+      assertEquals(
+          1, interfacesAdder.addInterfaces(declaration, ifcs, parsingContext.javaParser).size());
+    }
+    new CompilationUnitWriter().writeAll(declarations);
+
+    assertEquals(
+        source
+            .replace("Serializable {", "Serializable, test.HasValue {")
+            .replace("*/{", "*/ implements test.HasValue {"),
+        readFile(scanDir, "test/Spliced.java"));
+  }
+}
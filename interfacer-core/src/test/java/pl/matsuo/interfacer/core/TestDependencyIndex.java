@@ -0,0 +1,33 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+
+import com.github.javaparser.ast.CompilationUnit;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class TestDependencyIndex extends AbstractFixpointTest {
+
+  @Test
+  public void testDependencyIndex() {
+    ParsingContext parsingContext = new ParsingContext(emptyList(), scanDir, scanDir);
+    InterfacesAdder interfacesAdder = new InterfacesAdder();
+
+    List<CompilationUnit> compilationUnits = new ArrayList<>();
+    for (String name : asList("Sample", "SampleOwner", "SampleResult", "Unrelated")) {
+      compilationUnits.add(
+          interfacesAdder
+              .parseFile(parsingContext.javaParser, new File(scanDir, "test/" + name + ".java"))
+              .getResult()
+              .get());
+    }
+
+    DependencyIndex dependencyIndex = new DependencyIndex(compilationUnits);
+    assertEquals(4, dependencyIndex.getTypeNames().size());
+    assertEquals(asList("test.Sample"), dependencyIndex.dependentsOf(asList("test.SampleResult")));
+  }
+}
@@ -0,0 +1,55 @@
+package pl.matsuo.interfacer.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static pl.matsuo.core.util.collection.CollectionUtil.anyMatch;
+import static pl.matsuo.core.util.collection.CollectionUtil.filter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Test;
+
+public class TestFlightRecorderSupport extends AbstractFixpointTest {
+
+  @Test
+  public void testFlightRecorderEvents() throws IOException {
+    Path recordingFile = new File(temporaryFolder.newFolder(), "interfacer.jfr").toPath();
+
+    InterfacesAdder interfacesAdder = new InterfacesAdder();
+    try (Recording recording = new Recording()) {
+      recording.enable("pl.matsuo.interfacer.Pass");
+      recording.enable("pl.matsuo.interfacer.Phase");
+      recording.enable("pl.matsuo.interfacer.ClassMatching");
+      recording.enable("pl.matsuo.interfacer.SlowMatch").withThreshold(Duration.ZERO);
+      recording.start();
+      addInterfaces(interfacesAdder);
+      recording.stop();
+      recording.dump(recordingFile);
+    }
+
+    List<RecordedEvent> events = RecordingFile.readAllEvents(recordingFile);
+    assertEquals(3, filter(events, event -> isEvent(event, "Pass")).size());
+    assertTrue(anyMatch(events, event -> isEvent(event, "Phase")));
+    assertEquals(
+        interfacesAdder.getReport().count(RunReport.Counter.CLASSES_EXAMINED),
+        filter(events, event -> isEvent(event, "ClassMatching")).size());
+    assertTrue(
+        anyMatch(
+            events,
+            event ->
+                isEvent(event, "SlowMatch")
+                    && event.getString("className").equals("test.Sample")
+                    && event.getString("interfaceName").equals("test.HasResult")
+                    && event.getString("outcome").equals("matched")));
+  }
+
+  private static boolean isEvent(RecordedEvent event, String name) {
+    return event.getEventType().getName().equals("pl.matsuo.interfacer." + name);
+  }
+}
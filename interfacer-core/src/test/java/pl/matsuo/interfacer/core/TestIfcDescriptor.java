@@ -0,0 +1,44 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static pl.matsuo.interfacer.core.TestResources.fileForResource;
+
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import java.io.File;
+import java.util.Map;
+import org.junit.Test;
+import pl.matsuo.interfacer.model.ifc.IfcDescriptor;
+import pl.matsuo.interfacer.showcase.GenericInterface;
+
+public class TestIfcDescriptor {
+
+  @Test
+  public void testDescriptorImmutable() {
+    File scanDir = fileForResource("/classes/test");
+    ParsingContext parsingContext = new ParsingContext(emptyList(), scanDir, scanDir);
+    IfcDescriptor descriptor =
+        IfcDescriptor.compile(
+            new ClasspathInterfacesScanner()
+                .processClassFromClasspath(
+                    GenericInterface.class, parsingContext.typeResolutionCache));
+
+    assertSame(descriptor, IfcDescriptor.compile(descriptor));
+    assertSame(descriptor.getMethods(), descriptor.getMethods());
+
+    // every class gets its own copy of the parsed template
+    ClassOrInterfaceDeclaration sample =
+        parsingContext.classDeclaration("test.SampleGenericClass").get();
+    Map<String, String> typeParams = descriptor.matches(sample);
+    assertNotNull(typeParams);
+    assertNotSame(
+        descriptor.getGenericType(typeParams, parsingContext.javaParser),
+        descriptor.getGenericType(typeParams, parsingContext.javaParser));
+    assertEquals(
+        "pl.matsuo.interfacer.showcase.GenericInterface<java.lang.String>",
+        descriptor.getGenericName(typeParams));
+  }
+}
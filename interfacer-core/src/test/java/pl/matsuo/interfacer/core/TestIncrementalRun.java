@@ -0,0 +1,102 @@
+package pl.matsuo.interfacer.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static pl.matsuo.interfacer.core.TestResources.fileForResource;
+import static pl.matsuo.interfacer.core.TestResources.readFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.TreeSet;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+
+public class TestIncrementalRun extends AbstractFixpointTest {
+
+  @Test
+  public void testIncremental() throws IOException {
+    File manifestFile = new File(temporaryFolder.newFolder(), "manifest.txt");
+
+    InterfacesAdder interfacesAdder = new InterfacesAdder();
+    interfacesAdder.setManifestFile(manifestFile);
+    addInterfaces(interfacesAdder);
+    assertTrue(manifestFile.isFile());
+
+    // regenerate sources and add new class depending on unchanged one
+    FileUtils.copyDirectory(fileForResource("/fixpoint/classes"), scanDir);
+    FileUtils.writeStringToFile(
+        new File(scanDir, "test/Extra.java"),
+        "package test;\n\npublic class Extra {\n"
+            + "  public SampleResult getResult() {\n    return null;\n  }\n}\n",
+        UTF_8);
+    addInterfaces(interfacesAdder);
+
+    assertFixpointInterfaces();
+    assertTrue(readFile(scanDir, "test/Extra.java").contains("implements test.HasResult"));
+
+    IncrementalManifest manifest = IncrementalManifest.load(manifestFile);
+    assertEquals(5, manifest.files.size());
+    assertEquals(
+        new TreeSet<>(asList("test.HasResult")),
+        manifest.getFile("test/Extra.java").getInterfaces());
+  }
+
+  @Test
+  public void testIncrementalDependencyChanged() throws IOException {
+    File manifestFile = new File(temporaryFolder.newFolder(), "manifest.txt");
+
+    InterfacesAdder interfacesAdder = new InterfacesAdder();
+    interfacesAdder.setManifestFile(manifestFile);
+    addInterfaces(interfacesAdder);
+    assertTrue(readFile(scanDir, "test/Sample.java").contains("implements test.HasResult"));
+
+    // regenerate sources with SampleResult no longer matching HasValue
+    FileUtils.copyDirectory(fileForResource("/fixpoint/classes"), scanDir);
+    FileUtils.writeStringToFile(
+        new File(scanDir, "test/SampleResult.java"),
+        "package test;\n\npublic class SampleResult {\n"
+            + "  public Integer getNumber() {\n    return 1;\n  }\n}\n",
+        UTF_8);
+    addInterfaces(interfacesAdder);
+
+    // Sample and SampleOwner are regenerated unchanged, but their stored outputs are stale
+    assertFalse(readFile(scanDir, "test/SampleResult.java").contains("implements"));
+    assertFalse(readFile(scanDir, "test/Sample.java").contains("implements"));
+    assertFalse(readFile(scanDir, "test/SampleOwner.java").contains("implements"));
+
+    IncrementalManifest manifest = IncrementalManifest.load(manifestFile);
+    assertTrue(manifest.getFile("test/Sample.java").getInterfaces().isEmpty());
+    assertTrue(manifest.getFile("test/SampleOwner.java").getInterfaces().isEmpty());
+  }
+
+  @Test
+  public void testIncrementalSourceDirectory() throws IOException {
+    File manifestFile = new File(temporaryFolder.newFolder(), "manifest.txt");
+    File sourceDir = copyResourceDirectory("/fixpoint/classes");
+
+    InterfacesAdder interfacesAdder = new InterfacesAdder();
+    interfacesAdder.setManifestFile(manifestFile);
+    interfacesAdder.setSourceDirectory(sourceDir);
+    addInterfaces(interfacesAdder);
+    assertFixpointInterfaces();
+
+    // only changed SampleResult is copied, Sample and SampleOwner keep outputs of previous run
+    String sampleResult =
+        "package test;\n\npublic class SampleResult {\n"
+            + "  public Integer getNumber() {\n    return 1;\n  }\n}\n";
+    FileUtils.writeStringToFile(new File(sourceDir, "test/SampleResult.java"), sampleResult, UTF_8);
+    FileUtils.writeStringToFile(new File(scanDir, "test/SampleResult.java"), sampleResult, UTF_8);
+    addInterfaces(interfacesAdder);
+
+    assertFalse(readFile(scanDir, "test/SampleResult.java").contains("implements"));
+    assertFalse(readFile(scanDir, "test/Sample.java").contains("implements"));
+    assertFalse(readFile(scanDir, "test/SampleOwner.java").contains("implements"));
+
+    IncrementalManifest manifest = IncrementalManifest.load(manifestFile);
+    assertTrue(manifest.getFile("test/Sample.java").getInterfaces().isEmpty());
+    assertTrue(manifest.getFile("test/SampleOwner.java").getInterfaces().isEmpty());
+  }
+}
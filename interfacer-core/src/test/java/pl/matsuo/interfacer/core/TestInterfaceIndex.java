@@ -0,0 +1,43 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static pl.matsuo.interfacer.core.TestResources.fileForResource;
+
+import com.github.javaparser.ast.CompilationUnit;
+import java.io.File;
+import java.util.List;
+import org.junit.Test;
+import pl.matsuo.interfacer.model.ifc.IfcResolve;
+import pl.matsuo.interfacer.showcase.GenericInterface;
+import pl.matsuo.interfacer.showcase.HasName;
+
+public class TestInterfaceIndex {
+
+  @Test
+  public void testInterfaceIndex() {
+    File sampleClassFile = fileForResource("/classes/test/SampleClass.java");
+    File scanDir = sampleClassFile.getParentFile();
+    ParsingContext parsingContext = new ParsingContext(emptyList(), scanDir, scanDir);
+
+    ClasspathInterfacesScanner interfacesScanner = new ClasspathInterfacesScanner();
+    IfcResolve hasName =
+        interfacesScanner.processClassFromClasspath(
+            HasName.class, parsingContext.typeResolutionCache);
+    IfcResolve genericInterface =
+        interfacesScanner.processClassFromClasspath(
+            GenericInterface.class, parsingContext.typeResolutionCache);
+
+    CompilationUnit compilationUnit =
+        new InterfacesAdder()
+            .parseFile(parsingContext.javaParser, sampleClassFile)
+            .getResult()
+            .get();
+
+    List<IfcResolve> candidates =
+        new InterfaceIndex(asList(genericInterface, hasName))
+            .candidates(InterfacesAdder.classDeclaration(compilationUnit).get());
+    assertEquals(asList(hasName), candidates);
+  }
+}
@@ -1,17 +1,39 @@
 package pl.matsuo.interfacer.core;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static pl.matsuo.core.util.collection.CollectionUtil.filter;
+import static pl.matsuo.interfacer.core.TestResources.fileForResource;
+import static pl.matsuo.interfacer.core.TestResources.readFile;
 
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.symbolsolver.javaparsermodel.JavaParserFacade;
+import com.github.javaparser.symbolsolver.model.resolution.TypeSolver;
+import com.github.javaparser.symbolsolver.resolution.typesolvers.ClassLoaderTypeSolver;
+import com.github.javaparser.utils.Log;
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import javax.tools.ToolProvider;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.io.FileUtils;
 import org.junit.Test;
 import pl.matsuo.core.util.collection.Pair;
 import pl.matsuo.interfacer.model.ifc.IfcResolve;
@@ -20,7 +42,7 @@ import pl.matsuo.interfacer.showcase.HasName;
 import pl.matsuo.interfacer.showcase.MutableOwner;
 
 @Slf4j
-public class TestInterfacesAdder {
+public class TestInterfacesAdder extends AbstractFixpointTest {
 
   @Test
   public void testHasName() {
@@ -34,6 +56,9 @@ public class TestInterfacesAdder {
     List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications =
         doTestInterface("/classes/test/SampleGenericClass.java", GenericInterface.class);
     assertEquals(1, modifications.size());
+    assertEquals(
+        "pl.matsuo.interfacer.showcase.GenericInterface<java.lang.String>",
+        modifications.get(0).getValue().getImplementedTypes(0).toString());
   }
 
   @Test
@@ -43,6 +68,28 @@ public class TestInterfacesAdder {
     assertEquals(0, modifications.size());
   }
 
+  @Test
+  public void testUnresolvableAncestor() throws IOException {
+    // superclass of lib.Child refers to class missing from classpath
+    File libDir = temporaryFolder.newFolder();
+    List<String> arguments = new ArrayList<>(asList("-d", libDir.getPath()));
+    for (File file : fileForResource("/unresolvable/lib/lib").listFiles()) {
+      arguments.add(file.getPath());
+    }
+    assertEquals(
+        0,
+        ToolProvider.getSystemJavaCompiler()
+            .run(null, null, null, arguments.toArray(new String[0])));
+    assertTrue(new File(libDir, "lib/Missing.class").delete());
+
+    File scanDir = copyResourceDirectory("/unresolvable/classes");
+    new InterfacesAdder()
+        .addInterfacesAllFiles(
+            scanDir, fileForResource("/unresolvable/interfaces"), null, asList(libDir.getPath()));
+
+    assertTrue(readFile(scanDir, "test/Orphan.java").contains("implements test.HasSize"));
+  }
+
   @Test
   public void testMutableOwner() {
     List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications =
@@ -50,8 +97,155 @@ public class TestInterfacesAdder {
     assertEquals(1, modifications.size());
   }
 
-  public static File fileForResource(String resourcePath) {
-    return new File(TestInterfacesAdder.class.getResource(resourcePath).getFile());
+  @Test
+  public void testMultiplePasses() throws IOException {
+
+    addInterfaces(new InterfacesAdder());
+
+    assertFixpointInterfaces();
+  }
+
+  @Test
+  public void testSubtypeOfModifiedClass() throws IOException {
+    scanDir = copyResourceDirectory("/hierarchy/classes");
+
+    addInterfaces(new InterfacesAdder());
+
+    assertTrue(readFile(scanDir, "test/SampleResult.java").contains("implements test.HasValue"));
+    // Holder refers only to SubResult, which becomes HasValue through its modified superclass
+    assertTrue(readFile(scanDir, "test/Holder.java").contains("implements test.HasResult"));
+  }
+
+  @Test
+  public void testMultiplePassesParallel() throws IOException {
+
+    InterfacesAdder interfacesAdder = new InterfacesAdder();
+    interfacesAdder.setParallelism(4);
+    addInterfaces(interfacesAdder);
+
+    assertFixpointInterfaces();
+  }
+
+  @Test
+  public void testStreaming() throws IOException {
+    File manifestFile = new File(temporaryFolder.newFolder(), "manifest.txt");
+    // budget of 1 MB gives batches of about 10 kB of sources, so every padded file is a batch
+    String padding = "\n// " + String.join("", Collections.nCopies(6000, "x")) + "\n";
+    for (String name : asList("Sample", "SampleOwner", "SampleResult", "Unrelated")) {
+      FileUtils.writeStringToFile(
+          new File(scanDir, "test/" + name + ".java"), padding, UTF_8, true);
+    }
+    List<Path> files = CompilationUnitStore.javaFiles(scanDir.toPath());
+    assertEquals(4, InterfacesAdder.batches(files, 10_000).size());
+    assertEquals(2, InterfacesAdder.batches(files, 13_000).size());
+
+    InterfacesAdder interfacesAdder = new InterfacesAdder();
+    interfacesAdder.setMemoryBudget(1);
+    interfacesAdder.setManifestFile(manifestFile);
+    addInterfaces(interfacesAdder);
+
+    // every pass parses again files of classes depending on classes modified in previous one
+    assertFixpointInterfaces();
+
+    // new class depending on class recorded in manifest
+    FileUtils.writeStringToFile(
+        new File(scanDir, "test/Extra.java"),
+        "package test;\n\npublic class Extra {\n"
+            + "  public SampleResult getResult() {\n    return null;\n  }\n}\n",
+        UTF_8);
+    addInterfaces(interfacesAdder);
+
+    assertTrue(readFile(scanDir, "test/Extra.java").contains("implements test.HasResult"));
+    IncrementalManifest manifest = IncrementalManifest.load(manifestFile);
+    assertEquals(5, manifest.files.size());
+    assertEquals(
+        new TreeSet<>(asList("test.HasResult")),
+        manifest.getFile("test/Sample.java").getInterfaces());
+    assertEquals(
+        new TreeSet<>(asList("test.HasResult")),
+        manifest.getFile("test/Extra.java").getInterfaces());
+  }
+
+  @Test
+  public void testFacadesOfOtherRunsKept() throws IOException {
+    TypeSolver otherSolver = new ClassLoaderTypeSolver(getClass().getClassLoader());
+    JavaParserFacade facade = JavaParserFacade.get(otherSolver);
+    int facades = ParsingContext.FACADES.size();
+
+    addInterfaces(new InterfacesAdder());
+
+    // facades of the run are released, facades of other type solvers are untouched
+    assertEquals(facades, ParsingContext.FACADES.size());
+    assertSame(facade, JavaParserFacade.get(otherSolver));
+  }
+
+  @Test
+  public void testConcurrentAdders() throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<List<String>>> results = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        int index = i;
+        results.add(
+            executor.submit(
+                () -> {
+                  File runDir = copyResourceDirectory("/fixpoint/classes");
+                  List<String> messages = new ArrayList<>();
+                  Log.Adapter adapter = new CollectingLogAdapter(messages);
+
+                  InterfacesAdder interfacesAdder = new InterfacesAdder();
+                  interfacesAdder.setParallelism(index % 2 + 1);
+                  interfacesAdder.setJavaParserLog(adapter);
+                  interfacesAdder.addInterfacesAllFiles(runDir, interfacesDir, null, emptyList());
+
+                  JavaParserLogRouter.withAdapter(
+                      adapter,
+                      () -> {
+                        Log.info("run %s", () -> index);
+                        return null;
+                      });
+
+                  assertTrue(
+                      readFile(runDir, "test/SampleOwner.java")
+                          .contains("implements test.HasResultOwner"));
+                  // JavaParser messages of this run only
+                  for (String message : messages) {
+                    assertTrue(
+                        message, !message.contains("junit") || message.contains(runDir.getPath()));
+                  }
+                  assertFalse(readFile(runDir, "test/Unrelated.java").contains("implements"));
+                  return messages;
+                }));
+      }
+
+      for (int i = 0; i < results.size(); i++) {
+        // messages of other runs must not be routed to this one
+        assertEquals(
+            asList("run " + i),
+            filter(results.get(i).get(), message -> message.startsWith("run ")));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @RequiredArgsConstructor
+  static class CollectingLogAdapter implements Log.Adapter {
+
+    final List<String> messages;
+
+    @Override
+    public void info(Supplier<String> message) {
+      messages.add(message.get());
+    }
+
+    @Override
+    public void trace(Supplier<String> message) {}
+
+    @Override
+    public void error(Supplier<Throwable> throwableSupplier, Supplier<String> messageSupplier) {
+      messages.add(messageSupplier.get());
+    }
   }
 
   public List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> doTestInterface(
@@ -65,7 +259,7 @@ public class TestInterfacesAdder {
 
     ClasspathInterfacesScanner interfacesScanner = new ClasspathInterfacesScanner();
     IfcResolve genericInterface =
-        interfacesScanner.processClassFromClasspath(ifc, parsingContext.typeSolver);
+        interfacesScanner.processClassFromClasspath(ifc, parsingContext.typeResolutionCache);
 
     assertNotNull(genericInterface);
 
@@ -77,10 +271,13 @@ public class TestInterfacesAdder {
     }
 
     List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications =
-        interfacesAdder.processAllFiles(
-            asList(compilationUnitParseResult),
-            asList(genericInterface),
-            parsingContext.javaParser);
+        compilationUnitParseResult
+            .getResult()
+            .map(
+                compilationUnit ->
+                    interfacesAdder.addInterfaces(
+                        compilationUnit, asList(genericInterface), parsingContext.javaParser))
+            .orElse(emptyList());
 
     modifications.forEach(mod -> log.info(mod.toString()));
 
@@ -109,8 +306,13 @@ public class TestInterfacesAdder {
     }
 
     List<Pair<IfcResolve, ClassOrInterfaceDeclaration>> modifications =
-        interfacesAdder.processAllFiles(
-            asList(compilationUnitParseResult), ifcResolves, parsingContext.javaParser);
+        compilationUnitParseResult
+            .getResult()
+            .map(
+                compilationUnit ->
+                    interfacesAdder.addInterfaces(
+                        compilationUnit, ifcResolves, parsingContext.javaParser))
+            .orElse(emptyList());
 
     modifications.forEach(mod -> log.info(mod.toString()));
 
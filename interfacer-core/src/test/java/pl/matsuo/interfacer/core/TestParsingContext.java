@@ -0,0 +1,55 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+public class TestParsingContext extends AbstractFixpointTest {
+
+  @Test
+  public void testConcurrentTypeResolution() {
+    ParallelMapper parallelMapper = new ParallelMapper(8);
+    List<String> typeNames =
+        asList(
+            "test.Sample",
+            "test.SampleOwner",
+            "test.SampleResult",
+            "test.Unrelated",
+            "test.HasResult",
+            "java.lang.String",
+            "java.util.List",
+            "org.junit.Test",
+            "test.Missing");
+    List<String> lookups = new ArrayList<>();
+    for (int i = 0; i < 2000; i++) {
+      lookups.add(typeNames.get(i % typeNames.size()));
+    }
+
+    try (ParsingContext parsingContext =
+        ParsingContext.builder()
+            .classLoader(getClass().getClassLoader())
+            .scanDirectory(scanDir)
+            .interfacesDirectory(interfacesDir)
+            .parallelMapper(parallelMapper)
+            .scanFiles(emptyList())
+            .build()) {
+      for (int i = 0; i < 5; i++) {
+        List<Boolean> solved =
+            parallelMapper.map(
+                lookups, name -> parsingContext.typeSolver.tryToSolveType(name).isSolved());
+        for (int j = 0; j < lookups.size(); j++) {
+          assertEquals(lookups.get(j), !lookups.get(j).equals("test.Missing"), solved.get(j));
+        }
+        assertEquals(typeNames.size(), parsingContext.solvedTypes.size());
+        // results are dropped with asts, files are parsed again in next iteration
+        parsingContext.evict(scanDir);
+        assertTrue(parsingContext.solvedTypes.isEmpty());
+      }
+    }
+  }
+}
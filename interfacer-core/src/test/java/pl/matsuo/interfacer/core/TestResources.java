@@ -0,0 +1,24 @@
+package pl.matsuo.interfacer.core;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.File;
+import java.io.IOException;
+import org.apache.commons.io.FileUtils;
+
+/** Files of test resources and classpath elements used by tests. */
+public class TestResources {
+
+  public static File fileForResource(String resourcePath) {
+    return new File(TestResources.class.getResource(resourcePath).getFile());
+  }
+
+  public static String readFile(File directory, String path) throws IOException {
+    return FileUtils.readFileToString(new File(directory, path), UTF_8);
+  }
+
+  /** Jar or directory from which <code>type</code> was loaded. */
+  public static File jarOf(Class<?> type) throws Exception {
+    return new File(type.getProtectionDomain().getCodeSource().getLocation().toURI());
+  }
+}
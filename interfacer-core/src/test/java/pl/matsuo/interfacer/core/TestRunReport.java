@@ -0,0 +1,43 @@
+package pl.matsuo.interfacer.core;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static pl.matsuo.interfacer.core.TestResources.readFile;
+
+import java.io.File;
+import java.io.IOException;
+import org.junit.Test;
+
+public class TestRunReport extends AbstractFixpointTest {
+
+  @Test
+  public void testRunReport() throws IOException {
+    File reportFile = new File(temporaryFolder.newFolder(), "report/report.json");
+
+    InterfacesAdder interfacesAdder = new InterfacesAdder();
+    interfacesAdder.setReportFile(reportFile);
+    addInterfaces(interfacesAdder);
+
+    RunReport report = interfacesAdder.getReport();
+    assertEquals(3, report.getPasses());
+    assertEquals(3, report.count(RunReport.Counter.INTERFACES_ADDED));
+    // 4 classes and 3 interfaces
+    assertEquals(7, report.count(RunReport.Counter.FILES_PARSED));
+    assertTrue(report.count(RunReport.Counter.CLASSES_EXAMINED) >= 4);
+    assertEquals(
+        report.count(RunReport.Counter.CLASSES_EXAMINED) * 3,
+        report.count(RunReport.Counter.CHECKS_ATTEMPTED));
+    assertTrue(
+        report.count(RunReport.Counter.CHECKS_REJECTED_EARLY)
+            < report.count(RunReport.Counter.CHECKS_ATTEMPTED));
+    assertTrue(report.count(RunReport.Counter.SYMBOL_RESOLUTIONS) > 0);
+    assertTrue(report.nanos(1, RunReport.Phase.MATCH) > 0);
+    assertTrue(report.nanos(0, RunReport.Phase.PARSE) > 0);
+    assertTrue(report.getPeakHeapBytes() > 0);
+
+    String json = readFile(reportFile.getParentFile(), "report.json");
+    assertTrue(json.contains("\"passes\": 3"));
+    assertTrue(json.contains("\"checksRejectedEarly\": "));
+    assertTrue(json.contains("{\"pass\": 3, \"classpathScanMillis\": "));
+  }
+}
@@ -0,0 +1,50 @@
+package pl.matsuo.interfacer.core;
+
+import static java.util.Collections.emptyList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
+import com.github.javaparser.ast.type.Type;
+import java.util.List;
+import org.junit.Test;
+import pl.matsuo.interfacer.model.ifc.IfcResolve;
+import pl.matsuo.interfacer.model.ref.TypeResolutionCache;
+import pl.matsuo.interfacer.showcase.HasName;
+
+public class TestTypeResolutionCache extends AbstractFixpointTest {
+
+  @Test
+  public void testTypeResolutionCache() {
+    ParsingContext parsingContext = new ParsingContext(emptyList(), scanDir, interfacesDir);
+    TypeResolutionCache cache = parsingContext.typeResolutionCache;
+
+    List<IfcResolve> ifcs =
+        new SourceInterfacesScanner()
+            .scanInterfacesFromSrc(parsingContext.compilationUnits(interfacesDir), cache);
+    ClassOrInterfaceDeclaration sample = parsingContext.classDeclaration("test.Sample").get();
+    Type resultType = sample.getMethodsByName("getResult").get(0).getType();
+
+    assertSame(cache.resolve(resultType), cache.resolve(resultType));
+    assertSame(cache.typeDeclaration(HasName.class), cache.typeDeclaration(HasName.class));
+    assertEquals(2, cache.getHits());
+    assertEquals(2, cache.getMisses());
+
+    new InterfacesAdder()
+        .addInterfacesUntilFixpoint(
+            InterfacesAdder.classDeclarations(parsingContext.compilationUnits(scanDir)),
+            new DependencyIndex(parsingContext.compilationUnits(scanDir)),
+            ifcs,
+            parsingContext);
+    // results are reused by classes checked again after their dependency was modified
+    assertTrue(cache.getHits() > 2);
+    // ancestors cached while matching are invalidated when interface is added
+    assertTrue(cache.ancestors(sample.resolve()).contains("test.HasResult"));
+    assertFalse(
+        cache
+            .ancestors(parsingContext.classDeclaration("test.Unrelated").get().resolve())
+            .contains("test.HasResult"));
+  }
+}
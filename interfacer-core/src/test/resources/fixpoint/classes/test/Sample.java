@@ -0,0 +1,8 @@
+package test;
+
+public class Sample {
+
+  public SampleResult getResult() {
+    return new SampleResult();
+  }
+}
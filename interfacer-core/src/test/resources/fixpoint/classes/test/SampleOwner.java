@@ -0,0 +1,8 @@
+package test;
+
+public class SampleOwner {
+
+  public Sample getOwner() {
+    return new Sample();
+  }
+}
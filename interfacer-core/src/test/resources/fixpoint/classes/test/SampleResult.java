@@ -0,0 +1,8 @@
+package test;
+
+public class SampleResult {
+
+  public Integer getValue() {
+    return 1;
+  }
+}
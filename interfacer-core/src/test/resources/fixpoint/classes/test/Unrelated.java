@@ -0,0 +1,8 @@
+package test;
+
+public class Unrelated {
+
+  public String getDescription() {
+    return "unrelated";
+  }
+}
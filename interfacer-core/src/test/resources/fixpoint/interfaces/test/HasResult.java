@@ -0,0 +1,6 @@
+package test;
+
+public interface HasResult {
+
+  HasValue getResult();
+}
@@ -0,0 +1,6 @@
+package test;
+
+public interface HasResultOwner {
+
+  HasResult getOwner();
+}
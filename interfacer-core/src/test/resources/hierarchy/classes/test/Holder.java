@@ -0,0 +1,8 @@
+package test;
+
+public class Holder {
+
+  public SubResult getResult() {
+    return new SubResult();
+  }
+}
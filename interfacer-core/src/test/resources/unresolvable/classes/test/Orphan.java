@@ -0,0 +1,8 @@
+package test;
+
+public class Orphan extends lib.Child {
+
+  public int getSize() {
+    return 1;
+  }
+}
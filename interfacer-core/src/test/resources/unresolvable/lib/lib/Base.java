@@ -0,0 +1,3 @@
+package lib;
+
+public class Base<T> {}
@@ -0,0 +1,3 @@
+package lib;
+
+public class Child extends Base<Missing> {}
@@ -0,0 +1,4 @@
+package lib;
+
+/** Removed from classpath after compilation. */
+public class Missing {}
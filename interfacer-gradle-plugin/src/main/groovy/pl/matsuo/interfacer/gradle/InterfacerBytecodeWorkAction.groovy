@@ -0,0 +1,29 @@
+package pl.matsuo.interfacer.gradle
+
+import org.gradle.api.logging.Logger
+import org.gradle.api.logging.Logging
+import org.gradle.workers.WorkAction
+import pl.matsuo.interfacer.core.BytecodeInterfacesAdder
+
+/**
+ * Adds interfaces to compiled classes, see {@link BytecodeInterfacesAdder}. Executed by the worker
+ * API in isolated classloader at the end of <code>compileJava</code>, so classes of the classpath
+ * scanned for interfaces are not loaded by the build.
+ */
+abstract class InterfacerBytecodeWorkAction implements WorkAction<InterfacerBytecodeWorkParameters> {
+
+    static final Logger log = Logging.getLogger(InterfacerBytecodeWorkAction)
+
+    @Override
+    void execute() {
+        BytecodeInterfacesAdder interfacesAdder = new BytecodeInterfacesAdder()
+        interfacesAdder.setParallelism(parameters.parallelism.get())
+        interfacesAdder.setReportFile(parameters.reportFile.getOrNull())
+        interfacesAdder.addInterfaces(
+                parameters.classesDirectory.get().asFile,
+                parameters.interfacesDirectory.getOrNull(),
+                parameters.interfacePackage.getOrNull(),
+                parameters.classpath.files.collect { it.getPath() })
+        log.lifecycle(interfacesAdder.report.summary())
+    }
+}
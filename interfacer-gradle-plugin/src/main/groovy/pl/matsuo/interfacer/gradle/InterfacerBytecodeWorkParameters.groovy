@@ -0,0 +1,22 @@
+package pl.matsuo.interfacer.gradle
+
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.provider.Property
+import org.gradle.workers.WorkParameters
+
+/** Parameters of single {@link InterfacerBytecodeWorkAction} execution. */
+interface InterfacerBytecodeWorkParameters extends WorkParameters {
+
+    DirectoryProperty getClassesDirectory()
+
+    Property<File> getInterfacesDirectory()
+
+    Property<String> getInterfacePackage()
+
+    ConfigurableFileCollection getClasspath()
+
+    Property<Integer> getParallelism()
+
+    Property<File> getReportFile()
+}
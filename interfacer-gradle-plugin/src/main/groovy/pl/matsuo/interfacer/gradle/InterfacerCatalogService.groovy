@@ -0,0 +1,99 @@
+package pl.matsuo.interfacer.gradle
+
+import groovy.transform.Immutable
+import org.gradle.api.logging.Logger
+import org.gradle.api.logging.Logging
+import org.gradle.api.services.BuildService
+import org.gradle.api.services.BuildServiceParameters
+import pl.matsuo.interfacer.core.ClasspathCatalog
+import pl.matsuo.interfacer.core.ParallelMapper
+
+import java.util.concurrent.CompletableFuture
+import java.util.concurrent.CompletionException
+import java.util.concurrent.ConcurrentHashMap
+import java.util.concurrent.ConcurrentLinkedQueue
+
+/**
+ * Shares classpath catalogs between interfacer executions. Catalog owns a classloader over the
+ * compile classpath only, so classes of the project are not visible to the build and are not
+ * shared with other plugins. Catalogs are kept in static map, so they survive between builds run
+ * by the same daemon while fingerprints of their classpath do not change. Catalog is created once
+ * per key, outside of the map lock, by the first execution requesting it.
+ *
+ * <p>Replaced catalogs may still be used by other executions, so they are closed together with
+ * catalogs not used during the build when the build finishes.
+ */
+abstract class InterfacerCatalogService implements BuildService<BuildServiceParameters.None>, AutoCloseable {
+
+    static final Logger log = Logging.getLogger(InterfacerCatalogService)
+
+    static final Map<String, CachedCatalog> catalogs = new ConcurrentHashMap<>()
+
+    final Queue<CachedCatalog> outdated = new ConcurrentLinkedQueue<>()
+    final Set<String> usedKeys = ConcurrentHashMap.newKeySet()
+
+    /** Catalog being created or created for classpath with fingerprint. */
+    @Immutable(knownImmutableClasses = [CompletableFuture])
+    static class CachedCatalog {
+        String fingerprint
+        CompletableFuture<ClasspathCatalog> catalog
+    }
+
+    /**
+     * Catalog for classpath and interfacePackage, created with parallelism threads and jar indexes
+     * stored in indexDirectory if missing or outdated.
+     */
+    ClasspathCatalog catalog(List<String> classpath, String interfacePackage, int parallelism, File indexDirectory) {
+        String key = interfacePackage + '|' + indexDirectory + '|' + classpath.join(File.pathSeparator)
+        // walks the classpath, so it is computed without holding the map lock
+        String fingerprint = ClasspathCatalog.fingerprint(classpath, interfacePackage)
+        usedKeys.add(key)
+
+        CachedCatalog created = null
+        CachedCatalog cached = catalogs.compute(key) { k, current ->
+            if (current != null && current.fingerprint == fingerprint) {
+                log.info("Reusing classpath catalog for " + interfacePackage)
+                return current
+            }
+
+            if (current != null) {
+                log.info("Classpath changed, catalog for " + interfacePackage + " will be recreated")
+                outdated.add(current)
+            }
+            created = new CachedCatalog(fingerprint, new CompletableFuture<ClasspathCatalog>())
+            return created
+        }
+
+        if (cached.is(created)) {
+            try {
+                cached.catalog.complete(
+                        new ClasspathCatalog(classpath, interfacePackage, new ParallelMapper(parallelism), indexDirectory))
+            } catch (RuntimeException e) {
+                // next execution tries again
+                catalogs.remove(key, cached)
+                cached.catalog.completeExceptionally(e)
+            }
+        }
+
+        try {
+            return cached.catalog.join()
+        } catch (CompletionException e) {
+            throw e.cause instanceof RuntimeException ? e.cause : e
+        }
+    }
+
+    /** Close replaced catalogs and catalogs not used during the build, releasing their classloaders. */
+    @Override
+    void close() {
+        catalogs.keySet().findAll { !usedKeys.contains(it) }.each { key ->
+            CachedCatalog cached = catalogs.remove(key)
+            if (cached != null) {
+                log.info("Closing unused classpath catalog " + key)
+                outdated.add(cached)
+            }
+        }
+        for (CachedCatalog cached = outdated.poll(); cached != null; cached = outdated.poll()) {
+            cached.catalog.thenAccept { it.close() }
+        }
+    }
+}
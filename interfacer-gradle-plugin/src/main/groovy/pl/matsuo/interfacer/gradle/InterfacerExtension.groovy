@@ -1,5 +1,6 @@
 package pl.matsuo.interfacer.gradle
 
+import org.gradle.api.file.DirectoryProperty
 import org.gradle.api.model.ObjectFactory
 import org.gradle.api.provider.Property
 
@@ -9,12 +10,26 @@ class InterfacerExtension {
 
     final Property<File> interfacesDirectory
     final Property<File> scanDirectory
+    final DirectoryProperty outputDirectory
     final Property<String> interfacePackage
+    final Property<Integer> parallelism
+    final Property<Boolean> incremental
+    final Property<File> classpathIndexDirectory
+    final Property<Integer> memoryBudget
+    final Property<Boolean> avroSchemas
+    final Property<Boolean> bytecode
 
     @Inject
     InterfacerExtension(ObjectFactory objects) {
         interfacesDirectory = objects.property(File)
         scanDirectory = objects.property(File)
+        outputDirectory = objects.directoryProperty()
         interfacePackage = objects.property(String)
+        parallelism = objects.property(Integer).convention(1)
+        incremental = objects.property(Boolean).convention(true)
+        classpathIndexDirectory = objects.property(File)
+        memoryBudget = objects.property(Integer).convention(0)
+        avroSchemas = objects.property(Boolean).convention(false)
+        bytecode = objects.property(Boolean).convention(false)
     }
 }
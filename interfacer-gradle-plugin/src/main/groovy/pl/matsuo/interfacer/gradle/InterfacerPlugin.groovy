@@ -2,16 +2,95 @@ package pl.matsuo.interfacer.gradle
 
 import org.gradle.api.Plugin
 import org.gradle.api.Project
+import org.gradle.api.plugins.JavaPlugin
+import org.gradle.api.tasks.PathSensitivity
+import org.gradle.api.tasks.compile.JavaCompile
+import org.gradle.workers.WorkerExecutor
+import pl.matsuo.interfacer.core.BytecodeInterfacesAdder
+
+import javax.inject.Inject
 
 class InterfacerPlugin implements Plugin<Project> {
+
+    final WorkerExecutor workerExecutor
+
+    @Inject
+    InterfacerPlugin(WorkerExecutor workerExecutor) {
+        this.workerExecutor = workerExecutor
+    }
+
     @Override
     void apply(Project project) {
-        project.extensions.create('interfacer', InterfacerExtension)
+        InterfacerExtension extension = project.extensions.create('interfacer', InterfacerExtension)
+        extension.outputDirectory.convention(project.layout.buildDirectory.dir('generated/sources/interfacer'))
+        extension.classpathIndexDirectory.convention(
+                project.layout.buildDirectory.map { new File(it.asFile, 'interfacer/index') })
+
+        def catalogService = project.gradle.sharedServices
+                .registerIfAbsent('interfacerCatalog', InterfacerCatalogService) {}
+
+        def task = project.tasks.register('interfacer', InterfacerTask) {
+            usesService(catalogService)
+            it.catalogService = catalogService
+            interfacePackage = extension.interfacePackage
+            interfacesDirectory = extension.interfacesDirectory
+            scanDirectory.fileProvider(extension.scanDirectory)
+            outputDirectory = extension.outputDirectory
+            parallelism = extension.parallelism
+            incremental = extension.incremental
+            classpathIndexDirectory = extension.classpathIndexDirectory
+            memoryBudget = extension.memoryBudget
+            avroSchemas = extension.avroSchemas
+        }
+
+        project.plugins.withType(JavaPlugin) {
+            task.configure {
+                classpath.from(project.configurations.getByName(JavaPlugin.COMPILE_CLASSPATH_CONFIGURATION_NAME))
+            }
+
+            // compile processed copy instead of original sources
+            project.afterEvaluate {
+                if (extension.bytecode.get()) {
+                    addInterfacesToClasses(project, extension, workerExecutor)
+                    return
+                }
+
+                def java = project.sourceSets.main.java
+                if (extension.scanDirectory.isPresent()) {
+                    File scanDir = extension.scanDirectory.get().absoluteFile
+                    java.srcDirs = java.srcDirs.findAll { it.absoluteFile != scanDir }
+                }
+                java.srcDir(task.flatMap { it.outputDirectory })
+            }
+        }
+    }
 
-        project.tasks.create('interfacer', InterfacerTask) {
-            interfacePackage = project.interfacer.interfacePackage
-            interfacesDirectory = project.interfacer.interfacesDirectory
-            scanDirectory = project.interfacer.scanDirectory
+    /**
+     * Add interfaces to compiled classes at the end of <code>compileJava</code>, instead of
+     * compiling processed copy of sources; see {@link BytecodeInterfacesAdder}. Settings changing
+     * the classes are inputs of <code>compileJava</code>, so changing them compiles classes again.
+     */
+    static void addInterfacesToClasses(Project project, InterfacerExtension extension, WorkerExecutor workerExecutor) {
+        File reportFile = project.layout.buildDirectory.file('reports/interfacer/bytecode-report.json').get().asFile
+        project.tasks.named(JavaPlugin.COMPILE_JAVA_TASK_NAME, JavaCompile) { JavaCompile compile ->
+            def interfacesDirectory = extension.interfacesDirectory
+            def interfacePackage = extension.interfacePackage
+            def parallelism = extension.parallelism
+            inputs.property('interfacer.interfacePackage', interfacePackage).optional(true)
+            inputs.files(interfacesDirectory.map { [it] }.orElse([]))
+                    .withPropertyName('interfacer.interfacesDirectory')
+                    .withPathSensitivity(PathSensitivity.RELATIVE)
+            doLast {
+                // classes of the interface adder and the classpath are isolated from other plugins
+                workerExecutor.classLoaderIsolation().submit(InterfacerBytecodeWorkAction) { parameters ->
+                    parameters.classesDirectory.set(compile.destinationDirectory)
+                    parameters.interfacesDirectory.set(interfacesDirectory)
+                    parameters.interfacePackage.set(interfacePackage)
+                    parameters.classpath.from(compile.classpath)
+                    parameters.parallelism.set(parallelism)
+                    parameters.reportFile.set(reportFile)
+                }
+            }
         }
     }
 }
@@ -1,16 +1,38 @@
 package pl.matsuo.interfacer.gradle
 
 import org.gradle.api.DefaultTask
-import org.gradle.api.file.SourceDirectorySet
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.file.FileType
 import org.gradle.api.provider.Property
+import org.gradle.api.tasks.CacheableTask
+import org.gradle.api.tasks.Classpath
 import org.gradle.api.tasks.Input
 import org.gradle.api.tasks.InputDirectory
+import org.gradle.api.tasks.Internal
+import org.gradle.api.tasks.LocalState
 import org.gradle.api.tasks.Optional
+import org.gradle.api.tasks.OutputDirectory
+import org.gradle.api.tasks.PathSensitive
+import org.gradle.api.tasks.PathSensitivity
 import org.gradle.api.tasks.TaskAction
-import pl.matsuo.interfacer.core.InterfacesAdder
+import org.gradle.work.ChangeType
+import org.gradle.work.Incremental
+import org.gradle.work.InputChanges
+import org.gradle.workers.WorkerExecutor
 
-import java.util.function.Supplier
+import javax.inject.Inject
+import java.nio.file.Files
+import java.nio.file.StandardCopyOption
 
+/**
+ * Copies sources from scanDirectory to outputDirectory and adds interfaces to classes in the copy.
+ * Only files added or changed since previous execution, and files depending on them, are processed
+ * again; task outputs are cacheable, so build cache hits skip processing entirely. Processing is
+ * done by {@link InterfacerWorkAction} using worker API; all inputs are lazy providers and project
+ * is not accessed at execution time.
+ */
+@CacheableTask
 class InterfacerTask extends DefaultTask {
 
     @Input
@@ -18,57 +40,140 @@ class InterfacerTask extends DefaultTask {
     final Property<String> interfacePackage = project.objects.property(String)
 
     @InputDirectory
+    @Optional
+    @PathSensitive(PathSensitivity.RELATIVE)
     final Property<File> interfacesDirectory = project.objects.property(File)
 
+    @Incremental
     @InputDirectory
-    final Property<File> scanDirectory = project.objects.property(File)
+    @PathSensitive(PathSensitivity.RELATIVE)
+    final DirectoryProperty scanDirectory = project.objects.directoryProperty()
 
-    def makeJavaParserLogToMavenOutput() {
-        com.github.javaparser.utils.Log.setAdapter(new com.github.javaparser.utils.Log.Adapter() {
-            void info(Supplier<String> message) { println "[parser adapter info] " + message.get() }
+    /** Directory receiving copy of scanDirectory sources with added interfaces. */
+    @OutputDirectory
+    final DirectoryProperty outputDirectory = project.objects.directoryProperty()
 
-            void trace(Supplier<String> message) {
-                println "[parser adapter trace] " + message.get()
-            }
+    /** Classpath searched for interfaces from interfacePackage. */
+    @Classpath
+    final ConfigurableFileCollection classpath = project.objects.fileCollection()
 
-            void error(Supplier<Throwable> throwableSupplier, Supplier<String> messageSupplier) {
-                println "[parser adapter error] " + messageSupplier.get()
-                println throwableSupplier.get()
-            }
-        });
+    /**
+     * Number of threads used for parsing and matching; 1 means sequential processing, value lower
+     * than 1 means using all available processors.
+     */
+    @Internal
+    final Property<Integer> parallelism = project.objects.property(Integer).convention(1)
+
+    /**
+     * Process only files changed since previous run, using manifest stored in manifestFile. When
+     * disabled, all files are processed every time.
+     */
+    @Internal
+    final Property<Boolean> incremental = project.objects.property(Boolean).convention(true)
+
+    /** Location of the manifest recording results of previous run. */
+    @Internal
+    final Property<File> manifestFile = project.objects.property(File)
+            .convention(project.layout.buildDirectory.map { new File(it.asFile, 'interfacer/manifest.txt') })
+
+    /** File receiving JSON report with timings and counters of the last execution. */
+    @Internal
+    final Property<File> reportFile = project.objects.property(File)
+            .convention(project.layout.buildDirectory.map { new File(it.asFile, 'reports/interfacer/report.json') })
+
+    /** Manifest and stored outputs are not cached; they are removed when outputs come from cache. */
+    @LocalState
+    File getManifestDirectory() {
+        manifestFile.get().absoluteFile.parentFile
+    }
+
+    /**
+     * Directory storing indexes of classpath jars. Types from indexed jars are resolved from class
+     * files instead of being loaded. Directory outside of the project shares indexes between builds.
+     */
+    @Internal
+    final Property<File> classpathIndexDirectory = project.objects.property(File)
+
+    /**
+     * Heap, in megabytes, available for asts of processed files. When set, files are processed in
+     * batches fitting the budget; 0 keeps all asts in memory until the end of run.
+     */
+    @Internal
+    final Property<Integer> memoryBudget = project.objects.property(Integer).convention(0)
+
+    /**
+     * Represent classes generated by Avro with stubs created from schemas embedded in them, instead
+     * of parsing them in full. Files with accessors not matching the schema are parsed as usual.
+     */
+    @Internal
+    final Property<Boolean> avroSchemas = project.objects.property(Boolean).convention(false)
+
+    /** Service sharing classpath catalogs between executions and builds. */
+    @Internal
+    final Property<InterfacerCatalogService> catalogService = project.objects.property(InterfacerCatalogService)
+
+    @Inject
+    WorkerExecutor getWorkerExecutor() {
+        throw new UnsupportedOperationException()
     }
 
     @TaskAction
-    def addInterfaces() {
-        try {
-            makeJavaParserLogToMavenOutput()
-
-            SourceDirectorySet sourceDirectorySet = project.objects.sourceDirectorySet('sources', 'sources')
-            File source =
-                    interfacesDirectory.isPresent() ?
-                            interfacesDirectory.get() :
-                            sourceDirectorySet.srcDirs.isEmpty() ?
-                                    null : sourceDirectorySet.srcDirs.iterator().next()
-
-            println "Ok, we have the source " + source
-
-            File scanDir = scanDirectory.get()
-            println scanDir
-
-            println "dependencies:"
-            println project.configurations.compileClasspath.allDependencies
-            List<String> files = project.configurations.compileClasspath.getIncoming().getFiles().toList().stream()
-                    .collect { it.getPath().replaceAll("[\\\\]", "/") }
-
-            new InterfacesAdder()
-                    .addInterfacesAllFiles(
-                            scanDir,
-                            source,
-                            interfacePackage.getOrNull(),
-                            files);
-        } catch (Exception e) {
-            e.printStackTrace()
-            throw e
+    def addInterfaces(InputChanges inputChanges) {
+        File outputDir = outputDirectory.get().asFile
+        copyChangedSources(inputChanges, outputDir)
+
+        // parameters are the delegate of the closure, so task properties are referenced explicitly
+        InterfacerTask task = this
+        // no isolation: catalogs are shared with the build service instance; classes of the
+        // classpath are loaded by classloaders of the catalogs, not by the build
+        workerExecutor.noIsolation().submit(InterfacerWorkAction) { parameters ->
+            parameters.interfacePackage.set(task.interfacePackage)
+            parameters.interfacesDirectory.set(task.interfacesDirectory)
+            parameters.outputDirectory.set(task.outputDirectory)
+            parameters.sourceDirectory.set(task.scanDirectory)
+            parameters.classpath.from(task.classpath)
+            parameters.parallelism.set(task.parallelism)
+            parameters.manifestFile.set(task.incremental.get() ? task.manifestFile.get() : null)
+            parameters.classpathIndexDirectory.set(task.classpathIndexDirectory)
+            parameters.memoryBudget.set(task.memoryBudget)
+            parameters.reportFile.set(task.reportFile)
+            parameters.avroSchemas.set(task.avroSchemas)
+            parameters.catalogService.set(task.catalogService)
+        }
+    }
+
+    /**
+     * Mirror scanDirectory in outputDir. Only added and modified files are copied and removed files
+     * are deleted; unchanged files keep output of previous execution. Interface adder copies again
+     * those of them whose dependencies changed, as recorded in the manifest. Without the manifest
+     * outputDir is recreated, as unchanged files can not be told from their outputs.
+     */
+    def copyChangedSources(InputChanges inputChanges, File outputDir) {
+        if (!inputChanges.incremental || !incremental.get() || !manifestFile.get().isFile()) {
+            outputDir.deleteDir()
+            outputDir.mkdirs()
+            scanDirectory.asFileTree.visit { details ->
+                if (!details.directory) {
+                    copySource(details.file, details.relativePath.getFile(outputDir))
+                }
+            }
+            return
         }
+
+        inputChanges.getFileChanges(scanDirectory).each { change ->
+            if (change.fileType == FileType.FILE) {
+                File target = new File(outputDir, change.normalizedPath)
+                if (change.changeType == ChangeType.REMOVED) {
+                    target.delete()
+                } else {
+                    copySource(change.file, target)
+                }
+            }
+        }
+    }
+
+    static void copySource(File source, File target) {
+        target.parentFile.mkdirs()
+        Files.copy(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING)
     }
 }
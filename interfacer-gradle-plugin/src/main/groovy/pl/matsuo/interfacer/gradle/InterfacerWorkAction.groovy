@@ -0,0 +1,60 @@
+package pl.matsuo.interfacer.gradle
+
+import org.gradle.api.logging.Logger
+import org.gradle.api.logging.Logging
+import org.gradle.workers.WorkAction
+import pl.matsuo.interfacer.core.InterfacesAdder
+
+import java.util.function.Supplier
+
+/**
+ * Adds interfaces to classes in the output directory. Executed by the worker API, so it does not
+ * access project and may run in parallel with other tasks. Classpath catalog is taken from {@link
+ * InterfacerCatalogService}, so it is reused between executions and builds.
+ */
+abstract class InterfacerWorkAction implements WorkAction<InterfacerWorkParameters> {
+
+    static final Logger log = Logging.getLogger(InterfacerWorkAction)
+
+    static com.github.javaparser.utils.Log.Adapter javaParserLogToGradleOutput() {
+        new com.github.javaparser.utils.Log.Adapter() {
+            void info(Supplier<String> message) { log.info("[parser adapter info] " + message.get()) }
+
+            void trace(Supplier<String> message) {
+                log.debug("[parser adapter trace] " + message.get())
+            }
+
+            void error(Supplier<Throwable> throwableSupplier, Supplier<String> messageSupplier) {
+                log.error("[parser adapter error] " + messageSupplier.get(), throwableSupplier.get())
+            }
+        }
+    }
+
+    @Override
+    void execute() {
+        List<String> files = parameters.classpath.files.collect { it.getPath().replaceAll("[\\\\]", "/") }
+
+        InterfacesAdder interfacesAdder = new InterfacesAdder()
+        interfacesAdder.setParallelism(parameters.parallelism.get())
+        interfacesAdder.setJavaParserLog(javaParserLogToGradleOutput())
+        interfacesAdder.setManifestFile(parameters.manifestFile.getOrNull())
+        interfacesAdder.setSourceDirectory(parameters.sourceDirectory.get().asFile)
+        interfacesAdder.setClasspathIndexDirectory(parameters.classpathIndexDirectory.getOrNull())
+        interfacesAdder.setClasspathCatalog(
+                parameters.catalogService.get().catalog(
+                        files,
+                        parameters.interfacePackage.getOrNull(),
+                        parameters.parallelism.get(),
+                        parameters.classpathIndexDirectory.getOrNull()))
+        interfacesAdder.setMemoryBudget(parameters.memoryBudget.get())
+        interfacesAdder.setReportFile(parameters.reportFile.getOrNull())
+        interfacesAdder.setAvroSchemas(parameters.avroSchemas.get())
+        interfacesAdder
+                .addInterfacesAllFiles(
+                        parameters.outputDirectory.get().asFile,
+                        parameters.interfacesDirectory.getOrNull(),
+                        parameters.interfacePackage.getOrNull(),
+                        files)
+        log.lifecycle(interfacesAdder.report.summary())
+    }
+}
@@ -0,0 +1,34 @@
+package pl.matsuo.interfacer.gradle
+
+import org.gradle.api.file.ConfigurableFileCollection
+import org.gradle.api.file.DirectoryProperty
+import org.gradle.api.provider.Property
+import org.gradle.workers.WorkParameters
+
+/** Parameters of single {@link InterfacerWorkAction} execution. */
+interface InterfacerWorkParameters extends WorkParameters {
+
+    Property<String> getInterfacePackage()
+
+    Property<File> getInterfacesDirectory()
+
+    DirectoryProperty getOutputDirectory()
+
+    DirectoryProperty getSourceDirectory()
+
+    ConfigurableFileCollection getClasspath()
+
+    Property<Integer> getParallelism()
+
+    Property<File> getManifestFile()
+
+    Property<File> getClasspathIndexDirectory()
+
+    Property<Integer> getMemoryBudget()
+
+    Property<File> getReportFile()
+
+    Property<Boolean> getAvroSchemas()
+
+    Property<InterfacerCatalogService> getCatalogService()
+}
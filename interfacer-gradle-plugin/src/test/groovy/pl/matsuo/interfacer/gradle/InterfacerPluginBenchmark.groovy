@@ -0,0 +1,166 @@
+package pl.matsuo.interfacer.gradle
+
+import groovy.json.JsonOutput
+import org.gradle.testkit.runner.GradleRunner
+import org.junit.Rule
+import org.junit.rules.TemporaryFolder
+import spock.lang.Specification
+
+/**
+ * Measures overhead of the plugin in TestKit builds of generated project with
+ * <code>interfacer.pluginBenchmark.classes</code> scanned classes: <code>cold</code> build in new daemon,
+ * <code>warm</code> clean build in the same daemon, <code>no-change</code> build and
+ * <code>one-file-changed</code> build. Wall time of the build, execution time of <code>interfacer</code>
+ * task and peak heap of the daemon are written as JSON to <code>interfacer.pluginBenchmark.result</code>,
+ * in the same shape as <code>MavenPluginBenchmark</code> results. Run by <code>pluginBenchmark</code> task;
+ * setting <code>interfacer.pluginBenchmark.pluginVersion</code> measures published plugin version instead
+ * of the built one.
+ */
+class InterfacerPluginBenchmark extends Specification {
+    @Rule
+    TemporaryFolder testProjectDir = new TemporaryFolder()
+
+    int classes = Integer.getInteger('interfacer.pluginBenchmark.classes', 1000)
+    int interfaces = Integer.getInteger('interfacer.pluginBenchmark.interfaces', 100)
+    String pluginVersion = System.getProperty('interfacer.pluginBenchmark.pluginVersion')
+
+    def "measure plugin builds"() {
+        given:
+        File interfacesDir = testProjectDir.newFolder('src', 'main', 'java')
+        File scanDir = testProjectDir.newFolder('build-input', 'generated')
+        File testKitDir = testProjectDir.newFolder('testkit')
+        writeInterfaces(interfacesDir)
+        writeClasses(scanDir)
+        writeBuildFile(interfacesDir, scanDir)
+
+        when:
+        def results = []
+        results << build('cold', testKitDir, 'interfacer')
+        results << build('warm', testKitDir, 'clean', 'interfacer')
+        results << build('no-change', testKitDir, 'interfacer')
+        new File(scanDir, 'gen/Record0.java').text = record(0, 'changed')
+        results << build('one-file-changed', testKitDir, 'interfacer')
+
+        File resultFile = new File(System.getProperty('interfacer.pluginBenchmark.result', 'plugin-benchmark.json'))
+        resultFile.parentFile?.mkdirs()
+        resultFile.text = JsonOutput.prettyPrint(JsonOutput.toJson(results))
+        results.each { println it }
+
+        then:
+        results*.outcome == ['SUCCESS', 'SUCCESS', 'UP_TO_DATE', 'SUCCESS']
+    }
+
+    /** Run build with <code>tasks</code> in daemon using <code>testKitDir</code> and measure it. */
+    Map build(String scenario, File testKitDir, String... tasks) {
+        File metrics = new File(testProjectDir.root, 'build/interfacer-benchmark.properties')
+        metrics.delete()
+
+        def runner = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withTestKitDir(testKitDir)
+                .withArguments(tasks)
+        if (!pluginVersion) {
+            runner.withPluginClasspath()
+        }
+
+        long start = System.nanoTime()
+        def result = runner.build()
+        long buildMillis = (System.nanoTime() - start).intdiv(1_000_000)
+
+        Properties properties = new Properties()
+        metrics.withInputStream { properties.load(it) }
+        [
+                tool         : 'gradle',
+                pluginVersion: pluginVersion ?: 'current',
+                scenario     : scenario,
+                classes      : classes,
+                outcome      : result.task(':interfacer').outcome.name(),
+                buildMillis  : buildMillis,
+                taskMillis   : properties.taskMillis as long,
+                peakHeapBytes: properties.peakHeapBytes as long,
+        ]
+    }
+
+    void writeBuildFile(File interfacesDir, File scanDir) {
+        testProjectDir.newFile('build.gradle') << """
+            import java.lang.management.ManagementFactory
+            import java.lang.management.MemoryType
+
+            plugins {
+                id 'java-library'
+                id 'io.github.tunguski.interfacer'${pluginVersion ? " version '$pluginVersion'" : ''}
+            }
+
+            repositories {
+                mavenLocal()
+                mavenCentral()
+            }
+
+            interfacer {
+                interfacesDirectory = file('${interfacesDir.path.replaceAll("[\\\\]", "/")}')
+                scanDirectory = file('${scanDir.path.replaceAll("[\\\\]", "/")}')
+                parallelism = ${Integer.getInteger('interfacer.pluginBenchmark.parallelism', 1)}
+                memoryBudget = ${Integer.getInteger('interfacer.pluginBenchmark.memoryBudget', 0)}
+            }
+
+            // task runs in the daemon, so its heap is measured from inside the build
+            def heapPools = ManagementFactory.memoryPoolMXBeans.findAll { it.type == MemoryType.HEAP }
+            long taskStart
+            gradle.taskGraph.beforeTask { task ->
+                if (task.name == 'interfacer') {
+                    System.gc()
+                    heapPools*.resetPeakUsage()
+                    taskStart = System.nanoTime()
+                }
+            }
+            gradle.taskGraph.afterTask { task, state ->
+                if (task.name == 'interfacer') {
+                    long taskMillis = (System.nanoTime() - taskStart).intdiv(1_000_000)
+                    long peakHeapBytes = heapPools.sum { it.peakUsage.used }
+                    def metrics = file('build/interfacer-benchmark.properties')
+                    metrics.parentFile.mkdirs()
+                    metrics.text = "taskMillis=\$taskMillis\\npeakHeapBytes=\$peakHeapBytes\\n"
+                }
+            }
+        """
+    }
+
+    void writeInterfaces(File directory) {
+        File packageDir = new File(directory, 'ifc')
+        packageDir.mkdirs()
+        interfaces.times { i ->
+            new File(packageDir, "HasField${i}.java").text = """package ifc;
+
+public interface HasField${i} {
+
+  String getField${i}();
+}
+"""
+        }
+    }
+
+    void writeClasses(File directory) {
+        File packageDir = new File(directory, 'gen')
+        packageDir.mkdirs()
+        classes.times { i ->
+            new File(packageDir, "Record${i}.java").text = record(i, 'extra')
+        }
+    }
+
+    /** Class matching two of generated interfaces, with one additional property. */
+    String record(int i, String extra) {
+        def fields = [i % interfaces, (i * 7 + 1) % interfaces].unique()
+        def properties = fields.collect { "Field$it" } + [extra.capitalize()]
+        """package gen;
+
+public class Record${i} {
+${properties.collect { property -> """
+  private String ${property.uncapitalize()};
+
+  public String get${property}() {
+    return ${property.uncapitalize()};
+  }
+""" }.join('')}}
+"""
+    }
+}
@@ -1,11 +1,13 @@
 package pl.matsuo.interfacer.gradle
 
+import javassist.bytecode.ClassFile
 import org.gradle.testkit.runner.GradleRunner
 import org.junit.Rule
 import org.junit.rules.TemporaryFolder
 import spock.lang.Specification
 
 import static org.gradle.testkit.runner.TaskOutcome.SUCCESS
+import static org.gradle.testkit.runner.TaskOutcome.UP_TO_DATE
 
 class InterfacerPluginFunctionalTest extends Specification {
     @Rule
@@ -18,17 +20,17 @@ class InterfacerPluginFunctionalTest extends Specification {
         buildFile << """
             plugins {
                 id 'java-library'
-                id 'com.github.tunguski'
+                id 'io.github.tunguski.interfacer'
             }
             
             repositories {
                 mavenLocal()
-                jcenter()
+                mavenCentral()
             }
             
             dependencies {
                 implementation 'org.apache.avro:avro:1.10.0'
-                implementation 'pl.matsuo.interfacer:sample-interfaces:0.0.6'
+                implementation 'pl.matsuo.interfacer:sample-interfaces:0.0.8-SNAPSHOT'
             }
         """
     }
@@ -36,9 +38,9 @@ class InterfacerPluginFunctionalTest extends Specification {
     def "can successfully diff 2 files"() {
         given:
         File srcJava = testProjectDir.newFolder("src", "main", "java")
-        File genJava = testProjectDir.newFolder('build', 'generated')
+        File genJava = testProjectDir.newFolder('build', 'avro')
         File testInterface = new File(testProjectDir.newFolder("src", "main", "java", "ifc"), 'SampleInterface.java')
-        File testScannedClass = new File(testProjectDir.newFolder('build', 'generated', 'gen'), 'SampleClass.java')
+        File testScannedClass = new File(testProjectDir.newFolder('build', 'avro', 'gen'), 'SampleClass.java')
 
         testInterface << """
         package ifc;
@@ -78,11 +80,201 @@ class InterfacerPluginFunctionalTest extends Specification {
                 .withPluginClasspath()
                 .build()
 
-        println "testScannedClass:"
-        println testScannedClass.exists()
+        def secondResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('interfacer')
+                .withPluginClasspath()
+                .build()
+
+        File processedClass = new File(testProjectDir.root, 'build/generated/sources/interfacer/gen/SampleClass.java')
+        println "processedClass:"
+        println processedClass.text
 
         then:
-        testScannedClass.text.contains("pl.matsuo.interfacer.showcase.HasName, ifc.SampleInterface")
+        processedClass.text.contains("pl.matsuo.interfacer.showcase.HasName, ifc.SampleInterface")
+        !testScannedClass.text.contains("implements")
         result.task(":interfacer").outcome == SUCCESS
+        secondResult.task(":interfacer").outcome == UP_TO_DATE
+    }
+
+    def "removes interfaces no longer matching after dependency changed"() {
+        given:
+        File interfacesDir = testProjectDir.newFolder("src", "main", "java")
+        File scanDir = testProjectDir.newFolder('build', 'avro')
+        File ifcDir = testProjectDir.newFolder("src", "main", "java", "ifc")
+        File genDir = testProjectDir.newFolder('build', 'avro', 'gen')
+
+        new File(ifcDir, 'HasValue.java') << """
+        package ifc;
+
+        public interface HasValue {
+
+          Integer getValue();
+        }
+        """
+        new File(ifcDir, 'HasResult.java') << """
+        package ifc;
+
+        public interface HasResult {
+
+          HasValue getResult();
+        }
+        """
+        File result = new File(genDir, 'SampleResult.java')
+        result << """
+        package gen;
+
+        public class SampleResult {
+
+          public Integer getValue() {
+            return 1;
+          }
+        }
+        """
+        new File(genDir, 'Sample.java') << """
+        package gen;
+
+        public class Sample {
+
+          public SampleResult getResult() {
+            return new SampleResult();
+          }
+        }
+        """
+        new File(genDir, 'Unrelated.java') << """
+        package gen;
+
+        public class Unrelated {
+        }
+        """
+
+        buildFile << """
+            interfacer {
+                interfacesDirectory = file('${interfacesDir.getPath().replaceAll("[\\\\]", "/")}')
+                scanDirectory = file('${scanDir.getPath().replaceAll("[\\\\]", "/")}')
+            }
+        """
+
+        File processedClass = new File(testProjectDir.root, 'build/generated/sources/interfacer/gen/Sample.java')
+        File unrelatedClass = new File(testProjectDir.root, 'build/generated/sources/interfacer/gen/Unrelated.java')
+
+        when:
+        GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('interfacer')
+                .withPluginClasspath()
+                .build()
+        String firstText = processedClass.text
+        unrelatedClass.setLastModified(1_000_000_000_000L)
+
+        // only the dependency changes, Sample.java stays the same
+        result.text = result.text.replace('getValue', 'getNumber')
+        def secondResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('interfacer')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        firstText.contains("implements ifc.HasResult")
+        !processedClass.text.contains("implements")
+        // files not affected by the change are not copied again
+        unrelatedClass.lastModified() == 1_000_000_000_000L
+        secondResult.task(":interfacer").outcome == SUCCESS
+    }
+
+    def "reuses classpath catalog in next build of the daemon"() {
+        given:
+        File scanDir = testProjectDir.newFolder('build', 'avro')
+        new File(testProjectDir.newFolder('build', 'avro', 'gen'), 'SampleClass.java') << """
+        package gen;
+
+        public class SampleClass {
+
+          public String getName() {
+            return "My name is";
+          }
+        }
+        """
+
+        buildFile << """
+            interfacer {
+                interfacePackage = 'pl.matsuo.interfacer.showcase'
+                scanDirectory = file('${scanDir.getPath().replaceAll("[\\\\]", "/")}')
+            }
+        """
+
+        when:
+        def result = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('interfacer', '--info')
+                .withPluginClasspath()
+                .build()
+
+        def secondResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('interfacer', '--info', '--rerun-tasks')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        !result.output.contains("Reusing classpath catalog")
+        secondResult.output.contains("Reusing classpath catalog for pl.matsuo.interfacer.showcase")
+        secondResult.task(":interfacer").outcome == SUCCESS
+    }
+
+    def "adds interfaces to compiled classes in bytecode mode"() {
+        given:
+        new File(testProjectDir.newFolder("src", "main", "java", "gen"), 'SampleClass.java') << """
+        package gen;
+
+        public class SampleClass {
+
+          public String getName() {
+            return "My name is";
+          }
+        }
+        """
+
+        buildFile << """
+            interfacer {
+                interfacePackage = providers.gradleProperty('interfacePackage')
+                bytecode = true
+            }
+        """
+
+        File compiledClass = new File(testProjectDir.root, 'build/classes/java/main/gen/SampleClass.class')
+
+        when:
+        def result = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('compileJava', '-PinterfacePackage=pl.matsuo.interfacer.showcase')
+                .withPluginClasspath()
+                .build()
+        List<String> firstInterfaces = interfaces(compiledClass)
+
+        def secondResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('compileJava', '-PinterfacePackage=pl.matsuo.interfacer.showcase')
+                .withPluginClasspath()
+                .build()
+
+        // changed settings compile classes again
+        def thirdResult = GradleRunner.create()
+                .withProjectDir(testProjectDir.root)
+                .withArguments('compileJava', '-PinterfacePackage=pl.matsuo.interfacer.missing')
+                .withPluginClasspath()
+                .build()
+
+        then:
+        result.task(":compileJava").outcome == SUCCESS
+        firstInterfaces == ['pl.matsuo.interfacer.showcase.HasName']
+        secondResult.task(":compileJava").outcome == UP_TO_DATE
+        thirdResult.task(":compileJava").outcome == SUCCESS
+        interfaces(compiledClass).isEmpty()
+    }
+
+    static List<String> interfaces(File classFile) {
+        classFile.withDataInputStream { new ClassFile(it).interfaces as List<String> }
     }
-}
\ No newline at end of file
+}
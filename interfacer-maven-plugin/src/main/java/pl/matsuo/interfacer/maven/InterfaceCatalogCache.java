@@ -0,0 +1,126 @@
+package pl.matsuo.interfacer.maven;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.annotation.PreDestroy;
+import javax.inject.Named;
+import lombok.Value;
+import org.apache.maven.SessionScoped;
+import org.apache.maven.plugin.logging.Log;
+import pl.matsuo.interfacer.core.ClasspathCatalog;
+import pl.matsuo.interfacer.core.ParallelMapper;
+
+/**
+ * Session scoped cache of {@link ClasspathCatalog}s. Modules of one reactor build with the same
+ * classpath and <code>interfacePackage</code> share classloader and scanned interfaces instead of
+ * scanning classpath again. Catalog is created once per key, outside of the map lock, by the first
+ * execution requesting it; concurrent executions wait for it. Catalog is recreated if its classpath
+ * changed during the build (e.g. a reactor dependency was rebuilt). Outdated catalogs may still be
+ * used by executions of other modules, so they are closed together with all other catalogs when
+ * Maven disposes the cache at the end of the build.
+ */
+@Named
+@SessionScoped
+public class InterfaceCatalogCache implements Closeable {
+
+  final Map<String, CachedCatalog> catalogs = new ConcurrentHashMap<>();
+  final Queue<CachedCatalog> outdated = new ConcurrentLinkedQueue<>();
+  final AtomicInteger hits = new AtomicInteger();
+  final AtomicInteger misses = new AtomicInteger();
+
+  /** Catalog being created or created for classpath with <code>fingerprint</code>. */
+  @Value
+  static class CachedCatalog {
+    String fingerprint;
+    CompletableFuture<ClasspathCatalog> catalog;
+  }
+
+  /**
+   * Catalog for <code>classpathElements</code> and <code>interfacePackage</code>, scanned with
+   * <code>parallelism</code> threads if missing, indexing jars in <code>indexDirectory</code>.
+   */
+  public ClasspathCatalog catalog(
+      List<String> classpathElements,
+      String interfacePackage,
+      int parallelism,
+      File indexDirectory,
+      Log log) {
+    String key =
+        interfacePackage + "|" + indexDirectory + "|" + String.join("|", classpathElements);
+    // walks the classpath, so it is computed without holding the map lock
+    String fingerprint = fingerprint(classpathElements, interfacePackage);
+
+    AtomicReference<CachedCatalog> created = new AtomicReference<>();
+    CachedCatalog cached =
+        catalogs.compute(
+            key,
+            (k, current) -> {
+              if (current != null && current.getFingerprint().equals(fingerprint)) {
+                hits.incrementAndGet();
+                return current;
+              }
+
+              misses.incrementAndGet();
+              if (current != null) {
+                log.info("Classpath changed, interface catalog will be recreated");
+                outdated.add(current);
+              }
+              created.set(new CachedCatalog(fingerprint, new CompletableFuture<>()));
+              return created.get();
+            });
+
+    if (cached == created.get()) {
+      try {
+        cached
+            .getCatalog()
+            .complete(
+                new ClasspathCatalog(
+                    classpathElements,
+                    interfacePackage,
+                    new ParallelMapper(parallelism),
+                    indexDirectory));
+      } catch (RuntimeException e) {
+        // next execution tries again
+        catalogs.remove(key, cached);
+        cached.getCatalog().completeExceptionally(e);
+      }
+    }
+
+    log.info("Interface catalog cache: " + hits.get() + " hits, " + misses.get() + " misses");
+    try {
+      return cached.getCatalog().join();
+    } catch (CompletionException e) {
+      throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+    }
+  }
+
+  /** Close all cached and outdated catalogs, releasing their classloaders. */
+  @PreDestroy
+  @Override
+  public void close() {
+    outdated.addAll(catalogs.values());
+    catalogs.clear();
+    for (CachedCatalog cached = outdated.poll(); cached != null; cached = outdated.poll()) {
+      cached.getCatalog().thenAccept(ClasspathCatalog::close);
+    }
+  }
+
+  private static String fingerprint(List<String> classpathElements, String interfacePackage) {
+    try {
+      return ClasspathCatalog.fingerprint(classpathElements, interfacePackage);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,70 @@
+package pl.matsuo.interfacer.maven;
+
+import java.io.File;
+import java.util.List;
+import org.apache.maven.plugin.AbstractMojo;
+import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.LifecyclePhase;
+import org.apache.maven.plugins.annotations.Mojo;
+import org.apache.maven.plugins.annotations.Parameter;
+import org.apache.maven.plugins.annotations.ResolutionScope;
+import org.apache.maven.project.MavenProject;
+import pl.matsuo.interfacer.core.BytecodeInterfacesAdder;
+
+/**
+ * Adds interfaces to classes after compilation, modifying class files in output directory instead
+ * of sources. Sources are neither parsed nor changed.
+ */
+@Mojo(
+    name = "add-interfaces-to-classes",
+    defaultPhase = LifecyclePhase.PROCESS_CLASSES,
+    requiresDependencyResolution = ResolutionScope.COMPILE,
+    threadSafe = true)
+public class InterfacerBytecodeMojo extends AbstractMojo {
+
+  /** Package aggregating interfaces that should be scanned through entities. */
+  @Parameter String interfacePackage;
+
+  /** Location of sources of interfaces, compiled into <code>classesDirectory</code>. */
+  @Parameter(defaultValue = "${project.build.sourceDirectory}")
+  File interfacesDirectory;
+
+  /** Location of class files that should be modified. */
+  @Parameter(defaultValue = "${project.build.outputDirectory}")
+  File classesDirectory;
+
+  /**
+   * Number of threads used for reading, matching and writing class files. Value <code>1</code>
+   * means sequential processing, value lower than <code>1</code> means using all available
+   * processors.
+   */
+  @Parameter(defaultValue = "1")
+  int parallelism;
+
+  /** File receiving JSON report with timings and counters of the run. */
+  @Parameter(defaultValue = "${project.build.directory}/interfacer/bytecode-report.json")
+  File reportFile;
+
+  /** The current Maven project. */
+  @Parameter(property = "project", required = true, readonly = true)
+  MavenProject project;
+
+  /** Configure execution environment and invoke interface adder. */
+  @Override
+  public void execute() throws MojoExecutionException {
+    try {
+      List<String> classpathElements = project.getCompileClasspathElements();
+
+      BytecodeInterfacesAdder interfacesAdder = new BytecodeInterfacesAdder();
+      interfacesAdder.setParallelism(parallelism);
+      interfacesAdder.setReportFile(reportFile);
+      interfacesAdder.addInterfaces(
+          classesDirectory, interfacesDirectory, interfacePackage, classpathElements);
+      for (String line : interfacesAdder.getReport().summary().split("\\R")) {
+        getLog().info(line);
+      }
+    } catch (Exception e) {
+      throw new MojoExecutionException("Error occurred", e);
+    }
+  }
+}
@@ -1,8 +1,10 @@
 package pl.matsuo.interfacer.maven;
 
 import java.io.File;
+import java.util.List;
 import org.apache.maven.plugin.AbstractMojo;
 import org.apache.maven.plugin.MojoExecutionException;
+import org.apache.maven.plugins.annotations.Component;
 import org.apache.maven.plugins.annotations.LifecyclePhase;
 import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
@@ -32,6 +34,53 @@ public class InterfacerPluginMojo extends AbstractMojo {
   @Parameter(defaultValue = "${project.build.directory}/generated-sources/avro")
   File scanDirectory;
 
+  /**
+   * Number of threads used for parsing and matching. Value <code>1</code> means sequential
+   * processing, value lower than <code>1</code> means using all available processors.
+   */
+  @Parameter(defaultValue = "1")
+  int parallelism;
+
+  /**
+   * Process only files changed since previous run, using manifest stored in <code>manifestFile
+   * </code>. When disabled, all files are processed every time.
+   */
+  @Parameter(defaultValue = "true")
+  boolean incremental;
+
+  /** Location of the manifest recording results of previous run. */
+  @Parameter(defaultValue = "${project.build.directory}/interfacer/manifest.txt")
+  File manifestFile;
+
+  /**
+   * Directory storing indexes of classpath jars. Types from indexed jars are resolved from class
+   * files instead of being loaded. Directory outside of the project, e.g. <code>
+   * ${user.home}/.interfacer/index</code>, shares indexes between builds; it is not cleaned.
+   */
+  @Parameter(defaultValue = "${project.build.directory}/interfacer/index")
+  File classpathIndexDirectory;
+
+  /**
+   * Heap, in megabytes, available for asts of processed files. When set, files are processed in
+   * batches fitting the budget; <code>0</code> keeps all asts in memory until the end of run.
+   */
+  @Parameter(defaultValue = "0")
+  int memoryBudget;
+
+  /**
+   * Represent classes generated by Avro with stubs created from schemas embedded in them, instead
+   * of parsing them in full. Files with accessors not matching the schema are parsed as usual.
+   */
+  @Parameter(defaultValue = "false")
+  boolean avroSchemas;
+
+  /** File receiving JSON report with timings and counters of the run. */
+  @Parameter(defaultValue = "${project.build.directory}/interfacer/report.json")
+  File reportFile;
+
+  /** Cache of classpath catalogs shared by executions in the same build. */
+  @Component InterfaceCatalogCache catalogCache;
+
   /** The current Maven project. */
   @Parameter(property = "project", required = true, readonly = true)
   MavenProject project;
@@ -39,15 +88,25 @@ public class InterfacerPluginMojo extends AbstractMojo {
   /** Configure execution environment and invoke interface adder. */
   @Override
   public void execute() throws MojoExecutionException {
-    JavaParserMavenUtils.makeJavaParserLogToMavenOutput(getLog());
-
     try {
-      new InterfacesAdder()
-          .addInterfacesAllFiles(
-              scanDirectory,
-              interfacesDirectory,
-              interfacePackage,
-              project.getRuntimeClasspathElements());
+      List<String> classpathElements = project.getRuntimeClasspathElements();
+
+      InterfacesAdder interfacesAdder = new InterfacesAdder();
+      interfacesAdder.setParallelism(parallelism);
+      interfacesAdder.setJavaParserLog(JavaParserMavenUtils.javaParserLogToMavenOutput(getLog()));
+      interfacesAdder.setManifestFile(incremental ? manifestFile : null);
+      interfacesAdder.setClasspathIndexDirectory(classpathIndexDirectory);
+      interfacesAdder.setMemoryBudget(memoryBudget);
+      interfacesAdder.setReportFile(reportFile);
+      interfacesAdder.setAvroSchemas(avroSchemas);
+      interfacesAdder.setClasspathCatalog(
+          catalogCache.catalog(
+              classpathElements, interfacePackage, parallelism, classpathIndexDirectory, getLog()));
+      interfacesAdder.addInterfacesAllFiles(
+          scanDirectory, interfacesDirectory, interfacePackage, classpathElements);
+      for (String line : interfacesAdder.getReport().summary().split("\\R")) {
+        getLog().info(line);
+      }
     } catch (Exception e) {
       throw new MojoExecutionException("Error occurred", e);
     }
@@ -0,0 +1,120 @@
+package pl.matsuo.interfacer.maven;
+
+import static java.util.Arrays.asList;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.maven.plugin.logging.Log;
+import org.apache.maven.plugin.logging.SystemStreamLog;
+import org.apache.maven.session.scope.internal.SessionScope;
+import org.codehaus.plexus.ContainerConfiguration;
+import org.codehaus.plexus.DefaultContainerConfiguration;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusConstants;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import pl.matsuo.interfacer.core.ClasspathCatalog;
+import pl.matsuo.interfacer.showcase.HasName;
+
+public class TestInterfaceCatalogCache {
+
+  static final String INTERFACE_PACKAGE = "pl.matsuo.interfacer.showcase";
+
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+  final Log log = new SystemStreamLog();
+  File jar;
+  List<String> classpathElements;
+
+  @Before
+  public void copyInterfacesJar() throws Exception {
+    jar = new File(temporaryFolder.newFolder(), "sample-interfaces.jar");
+    Files.copy(
+        new File(HasName.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+            .toPath(),
+        jar.toPath());
+    classpathElements = asList(jar.getPath());
+  }
+
+  @Test
+  public void testReuseAndReplacement() {
+    InterfaceCatalogCache cache = new InterfaceCatalogCache();
+    ClasspathCatalog catalog = cache.catalog(classpathElements, INTERFACE_PACKAGE, 1, null, log);
+    assertSame(catalog, cache.catalog(classpathElements, INTERFACE_PACKAGE, 1, null, log));
+    assertEquals(1, cache.hits.get());
+
+    // rebuilt reactor dependency
+    assertTrue(jar.setLastModified(jar.lastModified() - 60_000));
+    ClasspathCatalog replaced = cache.catalog(classpathElements, INTERFACE_PACKAGE, 1, null, log);
+    assertNotSame(catalog, replaced);
+    assertEquals(2, cache.misses.get());
+    // outdated catalog may still be used by executions of other modules
+    assertFalse(isClosed(catalog));
+
+    cache.close();
+    assertTrue(isClosed(catalog));
+    assertTrue(isClosed(replaced));
+  }
+
+  @Test
+  public void testConcurrentExecutions() throws Exception {
+    InterfaceCatalogCache cache = new InterfaceCatalogCache();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<ClasspathCatalog>> catalogs = new ArrayList<>();
+      for (int i = 0; i < 16; i++) {
+        catalogs.add(
+            executor.submit(
+                () -> cache.catalog(classpathElements, INTERFACE_PACKAGE, 1, null, log)));
+      }
+      for (Future<ClasspathCatalog> catalog : catalogs) {
+        assertSame(catalogs.get(0).get(), catalog.get());
+      }
+      assertEquals(1, cache.misses.get());
+    } finally {
+      executor.shutdown();
+      cache.close();
+    }
+  }
+
+  @Test
+  public void testClosedAtEndOfBuild() throws Exception {
+    // configured as by maven launcher
+    ContainerConfiguration configuration =
+        new DefaultContainerConfiguration()
+            .setClassPathScanning(PlexusConstants.SCANNING_INDEX)
+            .setAutoWiring(true)
+            .setJSR250Lifecycle(true);
+    DefaultPlexusContainer container = new DefaultPlexusContainer(configuration);
+    SessionScope sessionScope = container.lookup(SessionScope.class);
+
+    sessionScope.enter();
+    InterfaceCatalogCache cache = container.lookup(InterfaceCatalogCache.class);
+    assertSame(cache, container.lookup(InterfaceCatalogCache.class));
+    ClasspathCatalog catalog = cache.catalog(classpathElements, INTERFACE_PACKAGE, 1, null, log);
+    sessionScope.exit();
+    assertFalse(isClosed(catalog));
+
+    // maven disposes components when the build ends
+    container.dispose();
+    assertTrue(isClosed(catalog));
+  }
+
+  /** Closed classloader does not find classes of its jars. */
+  static boolean isClosed(ClasspathCatalog catalog) {
+    return catalog.getClassLoader().findResource("pl/matsuo/interfacer/showcase/HasName.class")
+        == null;
+  }
+}